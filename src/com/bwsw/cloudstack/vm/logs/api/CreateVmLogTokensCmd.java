@@ -0,0 +1,116 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.api;
+
+import com.bwsw.cloudstack.vm.logs.event.EventTypes;
+import com.bwsw.cloudstack.vm.logs.response.TokenResponse;
+import com.bwsw.cloudstack.vm.logs.service.VmLogManager;
+import com.cloud.exception.ConcurrentOperationException;
+import com.cloud.vm.VirtualMachine;
+import org.apache.cloudstack.acl.RoleType;
+import org.apache.cloudstack.acl.SecurityChecker;
+import org.apache.cloudstack.api.ACL;
+import org.apache.cloudstack.api.APICommand;
+import org.apache.cloudstack.api.ApiConstants;
+import org.apache.cloudstack.api.BaseAsyncCmd;
+import org.apache.cloudstack.api.BaseCmd;
+import org.apache.cloudstack.api.Parameter;
+import org.apache.cloudstack.api.ResponseObject;
+import org.apache.cloudstack.api.ServerApiException;
+import org.apache.cloudstack.api.response.DomainResponse;
+import org.apache.cloudstack.api.response.ListResponse;
+import org.apache.cloudstack.api.response.ProjectResponse;
+import org.apache.cloudstack.api.response.UserVmResponse;
+import org.apache.cloudstack.context.CallContext;
+
+import javax.inject.Inject;
+import java.util.List;
+
+@APICommand(name = CreateVmLogTokensCmd.API_NAME, description = "Creates tokens to publish VM logs for several virtual machines at once", responseObject = TokenResponse.class,
+        requestHasSensitiveInfo = false, responseHasSensitiveInfo = true, responseView = ResponseObject.ResponseView.Full,
+        authorized = {RoleType.Admin, RoleType.ResourceAdmin, RoleType.DomainAdmin, RoleType.User}, entityType = {VirtualMachine.class})
+public class CreateVmLogTokensCmd extends BaseAsyncCmd {
+
+    public static final String API_NAME = "createVmLogTokens";
+
+    @ACL(accessType = SecurityChecker.AccessType.OperateEntry)
+    @Parameter(name = ApiConstants.IDS, type = CommandType.LIST, collectionType = CommandType.UUID, entityType = UserVmResponse.class,
+            description = "the IDs of virtual machines (cannot be used with account and projectid)")
+    private List<Long> ids;
+
+    @Parameter(name = ApiConstants.ACCOUNT, type = CommandType.STRING, description = "the account to create tokens for all its virtual machines, must be used with domainid")
+    private String accountName;
+
+    @Parameter(name = ApiConstants.DOMAIN_ID, type = CommandType.UUID, entityType = DomainResponse.class, description = "the domain ID of the account")
+    private Long domainId;
+
+    @Parameter(name = ApiConstants.PROJECT_ID, type = CommandType.UUID, entityType = ProjectResponse.class,
+            description = "the project to create tokens for all its virtual machines")
+    private Long projectId;
+
+    @Inject
+    private VmLogManager _vmLogManager;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public String getAccountName() {
+        return accountName;
+    }
+
+    public Long getDomainId() {
+        return domainId;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    @Override
+    public String getEventType() {
+        return EventTypes.EVENT_VM_LOG_TOKENS_CREATE;
+    }
+
+    @Override
+    public String getEventDescription() {
+        return "Creating VM log tokens";
+    }
+
+    @Override
+    public long getEntityOwnerId() {
+        Long accountId = _accountService.finalyzeAccountId(getAccountName(), getDomainId(), getProjectId(), true);
+        if (accountId != null) {
+            return accountId;
+        }
+        return CallContext.current().getCallingAccount().getId();
+    }
+
+    @Override
+    public void execute() throws ServerApiException, ConcurrentOperationException {
+        ListResponse<TokenResponse> response = _vmLogManager.createTokens(getIds(), getAccountName(), getDomainId(), getProjectId());
+        response.setResponseName(getCommandName());
+        response.setObjectName("vmlogtoken");
+        setResponseObject(response);
+    }
+
+    @Override
+    public String getCommandName() {
+        return API_NAME.toLowerCase() + BaseCmd.RESPONSE_SUFFIX;
+    }
+}
@@ -22,7 +22,9 @@ import com.bwsw.cloudstack.vm.logs.response.VmLogListResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogResponse;
 import com.bwsw.cloudstack.vm.logs.service.VmLogManager;
 import com.bwsw.cloudstack.vm.logs.util.ParameterUtils;
+import com.bwsw.cloudstack.vm.logs.util.SearchAfterUtils;
 import com.cloud.exception.ConcurrentOperationException;
+import com.cloud.exception.InvalidParameterValueException;
 import com.cloud.user.Account;
 import com.cloud.uservm.UserVm;
 import com.cloud.vm.VirtualMachine;
@@ -48,9 +50,14 @@ public class GetVmLogsCmd extends BaseCmd {
     public static final String API_NAME = "getVmLogs";
 
     @ACL(accessType = SecurityChecker.AccessType.OperateEntry)
-    @Parameter(name = ApiConstants.ID, type = CommandType.UUID, entityType = UserVmResponse.class, required = true, description = "the ID of the virtual machine")
+    @Parameter(name = ApiConstants.ID, type = CommandType.UUID, entityType = UserVmResponse.class, description = "the ID of the virtual machine")
     private Long id;
 
+    @ACL(accessType = SecurityChecker.AccessType.OperateEntry)
+    @Parameter(name = ApiConstants.IDS, type = CommandType.LIST, collectionType = CommandType.UUID, entityType = UserVmResponse.class,
+            description = "the IDs of virtual machines to search logs of at once (cannot be used with id and stream)")
+    private List<Long> ids;
+
     @Parameter(name = ApiConstants.START_DATE, type = CommandType.STRING, description = "the start date/time to search VM logs in UTC, yyyy-MM-dd'T'HH:mm:ss")
     private String startDate;
 
@@ -75,6 +82,13 @@ public class GetVmLogsCmd extends BaseCmd {
     @Parameter(name = "scroll", type = CommandType.INTEGER, description = "timeout in ms for subsequent scroll requests")
     private Integer scroll;
 
+    @Parameter(name = "searchafter", type = CommandType.STRING, description = "the tag to request the page of VM logs following the one it was returned with",
+            length = Integer.MAX_VALUE)
+    private String searchAfter;
+
+    @Parameter(name = "stream", type = CommandType.BOOLEAN, description = "true to retrieve VM logs with stateless cursors (see streamVmLogs) instead of scroll")
+    private Boolean stream;
+
     @Inject
     private VmLogManager _vmLogManager;
 
@@ -82,6 +96,10 @@ public class GetVmLogsCmd extends BaseCmd {
         return id;
     }
 
+    public List<Long> getIds() {
+        return ids;
+    }
+
     public String getStartDate() {
         return startDate;
     }
@@ -114,9 +132,21 @@ public class GetVmLogsCmd extends BaseCmd {
         return scroll;
     }
 
+    public String getSearchAfter() {
+        return searchAfter;
+    }
+
+    public Boolean getStream() {
+        return stream;
+    }
+
     @Override
     public long getEntityOwnerId() {
-        UserVm vm = _responseGenerator.findUserVmById(getId());
+        Long vmId = getId();
+        if (vmId == null && getIds() != null && !getIds().isEmpty()) {
+            vmId = getIds().get(0);
+        }
+        UserVm vm = vmId != null ? _responseGenerator.findUserVmById(vmId) : null;
         if (vm != null) {
             return vm.getAccountId();
         }
@@ -127,11 +157,28 @@ public class GetVmLogsCmd extends BaseCmd {
 
     @Override
     public void execute() throws ServerApiException, ConcurrentOperationException {
-        ScrollableListResponse<VmLogResponse> listResponse = _vmLogManager
-                .listVmLogs(getId(), ParameterUtils.parseDate(getStartDate(), ApiConstants.START_DATE), ParameterUtils.parseDate(getEndDate(), ApiConstants.END_DATE),
-                        getKeywords(), getLogFile(), getSortFields(), getPage(), getPageSize(), getScroll());
+        ScrollableListResponse<VmLogResponse> listResponse;
+        if (getIds() != null && !getIds().isEmpty()) {
+            if (getId() != null || Boolean.TRUE.equals(getStream())) {
+                throw new InvalidParameterValueException("Parameter ids cannot be used with id and stream");
+            }
+            listResponse = _vmLogManager
+                    .listVmLogs(getIds(), ParameterUtils.parseDate(getStartDate(), ApiConstants.START_DATE), ParameterUtils.parseDate(getEndDate(), ApiConstants.END_DATE),
+                            getKeywords(), getLogFile(), getSortFields(), getPage(), getPageSize(), getScroll(), SearchAfterUtils.decode(getSearchAfter(), "searchafter"));
+        } else if (getId() == null) {
+            throw new InvalidParameterValueException("Either id or ids should be specified");
+        } else if (Boolean.TRUE.equals(getStream())) {
+            listResponse = _vmLogManager
+                    .streamVmLogs(getId(), ParameterUtils.parseDate(getStartDate(), ApiConstants.START_DATE), ParameterUtils.parseDate(getEndDate(), ApiConstants.END_DATE),
+                            getKeywords(), getLogFile(), getSortFields(), getPageSize());
+        } else {
+            listResponse = _vmLogManager
+                    .listVmLogs(getId(), ParameterUtils.parseDate(getStartDate(), ApiConstants.START_DATE), ParameterUtils.parseDate(getEndDate(), ApiConstants.END_DATE),
+                            getKeywords(), getLogFile(), getSortFields(), getPage(), getPageSize(), getScroll(), SearchAfterUtils.decode(getSearchAfter(), "searchafter"));
+        }
         // recreate the response for serialization to exclude generic type lists
-        VmLogListResponse response = new VmLogListResponse(listResponse.getCount(), listResponse.getItems(), listResponse.getScrollId());
+        VmLogListResponse response = new VmLogListResponse(listResponse.getCount(), listResponse.getItems(), listResponse.getScrollId(),
+                SearchAfterUtils.encode(listResponse.getSearchAfter()), listResponse.getCursor());
         response.setResponseName(getCommandName());
         setResponseObject(response);
     }
@@ -56,6 +56,10 @@ public class ListVmLogFilesCmd extends BaseListCmd {
     @Parameter(name = ApiConstants.END_DATE, type = CommandType.STRING, description = "the end date/time to search VM logs in UTC, yyyy-MM-dd'T'HH:mm:ss")
     private String endDate;
 
+    @Parameter(name = "after", type = CommandType.STRING,
+            description = "the log file to list log files after, i.e. the last log file of the previous page; startindex is ignored if specified")
+    private String after;
+
     @Inject
     private VmLogManager _vmLogManager;
 
@@ -83,6 +87,14 @@ public class ListVmLogFilesCmd extends BaseListCmd {
         this.endDate = endDate;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
     @Override
     public long getEntityOwnerId() {
         UserVm vm = _responseGenerator.findUserVmById(getId());
@@ -98,7 +110,7 @@ public class ListVmLogFilesCmd extends BaseListCmd {
     public void execute() throws ServerApiException, ConcurrentOperationException {
         ListResponse<VmLogFileResponse> response = _vmLogManager
                 .listVmLogFiles(getId(), ParameterUtils.parseDate(getStartDate(), ApiConstants.START_DATE), ParameterUtils.parseDate(getEndDate(), ApiConstants.END_DATE),
-                        getStartIndex(), getPageSizeVal());
+                        getStartIndex(), getPageSizeVal(), getAfter());
         response.setResponseName(getCommandName());
         response.setObjectName("vmlogfiles");
         setResponseObject(response);
@@ -0,0 +1,59 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+public class CacheKey {
+
+    private final String vmUuid;
+    private final List<Object> parameters;
+
+    public CacheKey(String vmUuid, Object... parameters) {
+        this.vmUuid = vmUuid;
+        this.parameters = Collections.unmodifiableList(Arrays.asList(parameters));
+    }
+
+    public String getVmUuid() {
+        return vmUuid;
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CacheKey cacheKey = (CacheKey)o;
+        return Objects.equals(vmUuid, cacheKey.vmUuid) && Objects.equals(parameters, cacheKey.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vmUuid, parameters);
+    }
+}
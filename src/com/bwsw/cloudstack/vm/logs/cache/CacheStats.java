@@ -0,0 +1,71 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int entries;
+    private final long size;
+    private final long searches;
+    private final long deduplicatedSearches;
+
+    public CacheStats(long hits, long misses, long evictions, int entries, long size) {
+        this(hits, misses, evictions, entries, size, 0, 0);
+    }
+
+    public CacheStats(long hits, long misses, long evictions, int entries, long size, long searches, long deduplicatedSearches) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.size = size;
+        this.searches = searches;
+        this.deduplicatedSearches = deduplicatedSearches;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getDeduplicatedSearches() {
+        return deduplicatedSearches;
+    }
+}
@@ -0,0 +1,87 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes calls so that concurrent calls with equal keys share a single execution and its result.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> _calls = new ConcurrentHashMap<>();
+    private final AtomicLong _executed = new AtomicLong();
+    private final AtomicLong _deduplicated = new AtomicLong();
+
+    /**
+     * Executes the call or waits for the result of the in-flight call with the equal key. A failure of the shared call is rethrown
+     * to every waiting caller.
+     */
+    public V execute(K key, Callable<V> call) throws Exception {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = _calls.putIfAbsent(key, result);
+        if (inFlight != null) {
+            _deduplicated.incrementAndGet();
+            return await(inFlight);
+        }
+        _executed.incrementAndGet();
+        try {
+            V value = call.call();
+            result.complete(value);
+            return value;
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            _calls.remove(key, result);
+        }
+    }
+
+    /**
+     * @return the number of calls executed
+     */
+    public long getExecuted() {
+        return _executed.get();
+    }
+
+    /**
+     * @return the number of calls served with results of in-flight calls
+     */
+    public long getDeduplicated() {
+        return _deduplicated.get();
+    }
+
+    private V await(CompletableFuture<V> inFlight) throws Exception {
+        try {
+            return inFlight.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception)e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * LRU cache with expiration limited by the total size of values and the size of values per VM.
+ */
+public class VmLogCacheImpl implements VmLogCache {
+
+    private final long _maxSize;
+    private final long _maxVmSize;
+    private final long _ttl;
+
+    // access order makes the least recently used entry the first one
+    private final LinkedHashMap<CacheKey, CacheEntry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> _vmSizes = new HashMap<>();
+    private long _size;
+    private long _hits;
+    private long _misses;
+    private long _evictions;
+
+    /**
+     * @param maxSize   the maximum total size of values in bytes
+     * @param maxVmSize the maximum size of values per VM in bytes
+     * @param ttl       the time to live of entries in ms
+     */
+    public VmLogCacheImpl(long maxSize, long maxVmSize, long ttl) {
+        _maxSize = maxSize;
+        _maxVmSize = maxVmSize;
+        _ttl = ttl;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T get(CacheKey key) {
+        CacheEntry entry = _entries.get(key);
+        if (entry != null && entry.isExpired(System.nanoTime())) {
+            remove(key, entry);
+            _evictions++;
+            entry = null;
+        }
+        if (entry == null) {
+            _misses++;
+            return null;
+        }
+        _hits++;
+        return (T)entry.getValue();
+    }
+
+    @Override
+    public synchronized void put(CacheKey key, Object value, long size) {
+        if (size > _maxSize || size > _maxVmSize) {
+            return;
+        }
+        CacheEntry previous = _entries.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+        evict(k -> k.getVmUuid().equals(key.getVmUuid()), () -> _vmSizes.getOrDefault(key.getVmUuid(), 0L) + size > _maxVmSize);
+        evict(k -> true, () -> _size + size > _maxSize);
+        _entries.put(key, new CacheEntry(value, size, System.nanoTime() + _ttl * 1000000));
+        _vmSizes.merge(key.getVmUuid(), size, Long::sum);
+        _size += size;
+    }
+
+    @Override
+    public synchronized CacheStats getStats() {
+        return new CacheStats(_hits, _misses, _evictions, _entries.size(), _size);
+    }
+
+    private void evict(Predicate<CacheKey> filter, BooleanSupplier condition) {
+        Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = _entries.entrySet().iterator();
+        while (condition.getAsBoolean() && iterator.hasNext()) {
+            Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+            if (filter.test(entry.getKey())) {
+                iterator.remove();
+                release(entry.getKey(), entry.getValue());
+                _evictions++;
+            }
+        }
+    }
+
+    private void remove(CacheKey key, CacheEntry entry) {
+        _entries.remove(key);
+        release(key, entry);
+    }
+
+    private void release(CacheKey key, CacheEntry entry) {
+        _size -= entry.getSize();
+        _vmSizes.computeIfPresent(key.getVmUuid(), (k, v) -> v == entry.getSize() ? null : v - entry.getSize());
+    }
+
+    private static class CacheEntry {
+
+        private final Object value;
+        private final long size;
+        private final long expiresAt;
+
+        CacheEntry(Object value, long size, long expiresAt) {
+            this.value = value;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+
+        Object getValue() {
+            return value;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
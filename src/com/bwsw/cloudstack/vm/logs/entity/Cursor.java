@@ -0,0 +1,160 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.entity;
+
+import com.bwsw.cloudstack.vm.logs.json.LocalDateTimeDeserializer;
+import com.bwsw.cloudstack.vm.logs.json.LocalDateTimeSerializer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Cursor {
+
+    private String vmUuid;
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime start;
+
+    @JsonSerialize(using = LocalDateTimeSerializer.class)
+    @JsonDeserialize(using = LocalDateTimeDeserializer.class)
+    private LocalDateTime end;
+
+    private List<String> keywords;
+    private String logFile;
+    private List<String> sort;
+    private int pageSize;
+    private List<Object> searchAfter;
+
+    public Cursor() {
+    }
+
+    public Cursor(String vmUuid, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sort, int pageSize, List<Object> searchAfter) {
+        this.vmUuid = vmUuid;
+        this.start = start;
+        this.end = end;
+        this.keywords = keywords;
+        this.logFile = logFile;
+        this.sort = sort;
+        this.pageSize = pageSize;
+        this.searchAfter = searchAfter;
+    }
+
+    @JsonProperty(EntityConstants.VM_UUID)
+    public String getVmUuid() {
+        return vmUuid;
+    }
+
+    public void setVmUuid(String vmUuid) {
+        this.vmUuid = vmUuid;
+    }
+
+    @JsonProperty(EntityConstants.START)
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public void setStart(LocalDateTime start) {
+        this.start = start;
+    }
+
+    @JsonProperty(EntityConstants.END)
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public void setEnd(LocalDateTime end) {
+        this.end = end;
+    }
+
+    @JsonProperty(EntityConstants.KEYWORDS)
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public void setKeywords(List<String> keywords) {
+        this.keywords = keywords;
+    }
+
+    @JsonProperty(EntityConstants.LOG_FILE)
+    public String getLogFile() {
+        return logFile;
+    }
+
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+    @JsonProperty(EntityConstants.SORT)
+    public List<String> getSort() {
+        return sort;
+    }
+
+    public void setSort(List<String> sort) {
+        this.sort = sort;
+    }
+
+    @JsonProperty(EntityConstants.PAGE_SIZE)
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    @JsonProperty(EntityConstants.SEARCH_AFTER)
+    public List<Object> getSearchAfter() {
+        return searchAfter;
+    }
+
+    public void setSearchAfter(List<Object> searchAfter) {
+        this.searchAfter = searchAfter;
+    }
+
+    public Cursor next(List<Object> searchAfter) {
+        return new Cursor(vmUuid, start, end, keywords, logFile, sort, pageSize, searchAfter);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        Cursor other = (Cursor)obj;
+        return Objects.equals(vmUuid, other.vmUuid) && Objects.equals(start, other.start) && Objects.equals(end, other.end) && Objects.equals(keywords, other.keywords)
+                && Objects.equals(logFile, other.logFile) && Objects.equals(sort, other.sort) && pageSize == other.pageSize && Objects.equals(searchAfter, other.searchAfter);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(vmUuid, start, end, keywords, logFile, sort, pageSize, searchAfter);
+    }
+}
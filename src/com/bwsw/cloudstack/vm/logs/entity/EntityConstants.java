@@ -27,4 +27,16 @@ public class EntityConstants {
     public static final String VM_UUID = "vm_uuid";
     public static final String VALID_FROM = "valid_from";
     public static final String VALID_TO = "valid_to";
+    public static final String START = "start";
+    public static final String END = "end";
+    public static final String KEYWORDS = "keywords";
+    public static final String LOG_FILE = "logfile";
+    public static final String SORT = "sort";
+    public static final String PAGE_SIZE = "page_size";
+    public static final String SEARCH_AFTER = "search_after";
+    public static final String INDEX = "index";
+    public static final String FIRST_SEEN = "first_seen";
+    public static final String LAST_SEEN = "last_seen";
+    public static final String DOC_COUNT = "doc_count";
+    public static final String CHECKPOINT = "checkpoint";
 }
@@ -0,0 +1,74 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.entity;
+
+import java.util.Objects;
+
+/**
+ * Statistics of a log file within a daily VM log index. Timestamps are in milliseconds since the epoch.
+ */
+public class LogFile {
+
+    private final String file;
+    private final long firstSeen;
+    private final long lastSeen;
+    private final long docCount;
+
+    public LogFile(String file, long firstSeen, long lastSeen, long docCount) {
+        this.file = file;
+        this.firstSeen = firstSeen;
+        this.lastSeen = lastSeen;
+        this.docCount = docCount;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public long getFirstSeen() {
+        return firstSeen;
+    }
+
+    public long getLastSeen() {
+        return lastSeen;
+    }
+
+    public long getDocCount() {
+        return docCount;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        LogFile other = (LogFile)obj;
+        return Objects.equals(file, other.file) && firstSeen == other.firstSeen && lastSeen == other.lastSeen && docCount == other.docCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(file, firstSeen, lastSeen, docCount);
+    }
+}
@@ -20,5 +20,8 @@ package com.bwsw.cloudstack.vm.logs.event;
 public class EventTypes {
 
     public static final String EVENT_VM_LOG_STATS = "VM.LOG.STATS";
+    public static final String EVENT_VM_LOG_STATS_DELTA = "VM.LOG.STATS.DELTA";
+    public static final String EVENT_VM_LOG_EXPORT = "VM.LOG.EXPORT";
+    public static final String EVENT_VM_LOG_TOKENS_CREATE = "VM.LOG.TOKENS.CREATE";
 
 }
@@ -27,7 +27,18 @@ public interface VmLogEventManager {
     String EVENT_SOURCE = "vm-logs";
     String EVENT_DATE_TIME = "eventDateTime";
     String STATS = "stats";
+    String BATCH_ID = "batchId";
+    String BATCH_SEQUENCE = "batchSequence";
+    String BATCH_COUNT = "batchCount";
 
+    /**
+     * Publishes statistics of all VMs. Statistics are split into events with the same batch id and sequence numbers starting from 1.
+     */
     void publishVmLogStats(Map<String, Double> stats) throws EventBusException;
 
+    /**
+     * Publishes statistics of VMs which log sizes have changed since the last published statistics; VMs without logs have zero sizes.
+     */
+    void publishVmLogStatsDelta(Map<String, Double> stats) throws EventBusException;
+
 }
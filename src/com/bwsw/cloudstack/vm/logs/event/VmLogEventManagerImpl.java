@@ -18,44 +18,42 @@
 package com.bwsw.cloudstack.vm.logs.event;
 
 import com.bwsw.cloudstack.vm.logs.service.VmLogManager;
+import com.bwsw.cloudstack.vm.logs.service.VmLogScheduler;
 import com.cloud.event.EventCategory;
 import com.cloud.utils.component.ComponentLifecycleBase;
 import com.cloud.vm.VirtualMachine;
+import com.cloud.utils.exception.CloudRuntimeException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import org.apache.cloudstack.framework.events.Event;
 import org.apache.cloudstack.framework.events.EventBus;
 import org.apache.cloudstack.framework.events.EventBusException;
 import org.apache.log4j.Logger;
 
 import javax.inject.Inject;
-import javax.naming.ConfigurationException;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.UUID;
 
+import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageBatchLength;
+import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageBatchSize;
+import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageDeadline;
+import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageDeltaThreshold;
+import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageSnapshotInterval;
 import static com.bwsw.cloudstack.vm.logs.service.VmLogManager.VmLogUsageTimeout;
 
 public class VmLogEventManagerImpl extends ComponentLifecycleBase implements VmLogEventManager {
 
     private static final Logger s_logger = Logger.getLogger(VmLogEventManagerImpl.class);
 
-    private static final String TIMER_NAME = "VM_LOG_USAGE";
+    private static final String JOB_NAME = "VM_LOG_USAGE";
 
-    private class VmLogUsageTask extends TimerTask {
-
-        @Override
-        public void run() {
-            s_logger.info("Update of VM log statistics started");
-            try {
-                publishVmLogStats(_vmLogManager.getVmLogStats());
-                s_logger.info("Update of VM log statistics finished");
-            } catch (Exception e) {
-                s_logger.error("Unable to update VM log statistics", e);
-            }
-        }
-    }
+    private static final JsonFactory s_jsonFactory = new JsonFactory();
 
     @Inject
     private EventBus _eventBus;
@@ -63,35 +61,151 @@ public class VmLogEventManagerImpl extends ComponentLifecycleBase implements VmL
     @Inject
     private VmLogManager _vmLogManager;
 
-    private Timer _timer;
+    @Inject
+    private VmLogScheduler _vmLogScheduler;
+
+    // the last published sizes, the time of the last full statistics and the leader term they were published in are accessed by the job only
+    private Map<String, Double> _publishedStats;
+
+    private long _snapshotTime;
+
+    private long _leaderTerm;
 
     @Override
     public void publishVmLogStats(Map<String, Double> stats) throws EventBusException {
-        Event event = new Event(EVENT_SOURCE, EventCategory.USAGE_EVENT.getName(), EventTypes.EVENT_VM_LOG_STATS, VirtualMachine.class.getSimpleName(), null);
-        Map<String, Object> details = new HashMap<>();
-        String eventDate = new SimpleDateFormat(EVENT_DATE_FORMAT).format(new Date());
-        details.put(EVENT_DATE_TIME, eventDate);
-        details.put(STATS, stats);
-        event.setDescription(details);
-        _eventBus.publish(event);
+        publish(EventTypes.EVENT_VM_LOG_STATS, stats);
     }
 
     @Override
-    public boolean configure(String name, Map<String, Object> params) throws ConfigurationException {
-        _timer = new Timer(TIMER_NAME);
-        return super.configure(name, params);
+    public void publishVmLogStatsDelta(Map<String, Double> stats) throws EventBusException {
+        publish(EventTypes.EVENT_VM_LOG_STATS_DELTA, stats);
     }
 
-    @Override
-    public boolean start() {
-        long timeout = VmLogUsageTimeout.value() * 1000;
-        _timer.schedule(new VmLogUsageTask(), timeout, timeout);
-        return super.start();
+    /**
+     * Publishes full statistics every {@link VmLogManager#VmLogUsageSnapshotInterval} seconds and statistics of VMs which log sizes
+     * have changed by more than {@link VmLogManager#VmLogUsageDeltaThreshold} since they were published otherwise.
+     *
+     * @param time the current time in milliseconds
+     */
+    void updateVmLogStats(Map<String, Double> stats, long time) throws EventBusException {
+        long snapshotInterval = VmLogUsageSnapshotInterval.value() * 1000L;
+        if (_publishedStats == null || snapshotInterval <= 0 || time - _snapshotTime >= snapshotInterval) {
+            publishVmLogStats(stats);
+            _publishedStats = new HashMap<>(stats);
+            _snapshotTime = time;
+            return;
+        }
+        double threshold = VmLogUsageDeltaThreshold.value();
+        Map<String, Double> delta = new HashMap<>();
+        stats.forEach((vmUuid, size) -> {
+            Double publishedSize = _publishedStats.get(vmUuid);
+            if (publishedSize == null || Math.abs(size - publishedSize) > threshold) {
+                delta.put(vmUuid, size);
+            }
+        });
+        // logs of VMs have been deleted
+        _publishedStats.keySet().stream().filter(vmUuid -> !stats.containsKey(vmUuid)).forEach(vmUuid -> delta.put(vmUuid, 0.0));
+        if (delta.isEmpty()) {
+            s_logger.debug("VM log statistics have not changed");
+            return;
+        }
+        publishVmLogStatsDelta(delta);
+        delta.forEach((vmUuid, size) -> {
+            if (stats.containsKey(vmUuid)) {
+                _publishedStats.put(vmUuid, size);
+            } else {
+                _publishedStats.remove(vmUuid);
+            }
+        });
+    }
+
+    /**
+     * Forgets published statistics if the leadership has been lost since they were published: another management server may have published
+     * statistics in the meantime so full statistics are published next.
+     */
+    void checkLeaderTerm() {
+        long leaderTerm = _vmLogScheduler.getLeaderTerm();
+        if (leaderTerm != _leaderTerm) {
+            _publishedStats = null;
+            _leaderTerm = leaderTerm;
+        }
+    }
+
+    private void publish(String eventType, Map<String, Double> stats) throws EventBusException {
+        publish(eventType, stats, VmLogUsageBatchSize.value(), VmLogUsageBatchLength.value());
+    }
+
+    /**
+     * Splits statistics into batches of at most batchSize VMs and batchLength characters (at least one VM per batch) and publishes
+     * an event per batch. Statistics are written to the description of the current event which is published once the next VM does not fit in,
+     * so the number of events is not known until the last one: only the last event has the batch count.
+     */
+    void publish(String eventType, Map<String, Double> stats, int batchSize, int batchLength) throws EventBusException {
+        String batchId = UUID.randomUUID().toString();
+        String eventDate = new SimpleDateFormat(EVENT_DATE_FORMAT).format(new Date());
+        int sequence = 1;
+        StringWriter writer = new StringWriter();
+        try {
+            JsonGenerator generator = startBatch(writer, eventDate, batchId, sequence);
+            int count = 0;
+            // the length of the statistics object written so far without the closing brace
+            int length = 1;
+            for (Map.Entry<String, Double> stat : stats.entrySet()) {
+                double size = stat.getValue();
+                int entryLength = JsonStringEncoder.getInstance().quoteAsString(stat.getKey()).length + 3 + Double.toString(size).length();
+                if (count > 0 && ((batchSize > 0 && count >= batchSize) || (batchLength > 0 && length + entryLength + 2 > batchLength))) {
+                    finishBatch(generator, null);
+                    publishBatch(eventType, writer);
+                    writer = new StringWriter();
+                    generator = startBatch(writer, eventDate, batchId, ++sequence);
+                    count = 0;
+                    length = 1;
+                }
+                generator.writeNumberField(stat.getKey(), size);
+                length += count > 0 ? entryLength + 1 : entryLength;
+                count++;
+            }
+            finishBatch(generator, sequence);
+        } catch (IOException e) {
+            throw new CloudRuntimeException("Failed to serialize VM log statistics", e);
+        }
+        publishBatch(eventType, writer);
+    }
+
+    private JsonGenerator startBatch(StringWriter writer, String eventDate, String batchId, int sequence) throws IOException {
+        JsonGenerator generator = s_jsonFactory.createGenerator(writer);
+        generator.writeStartObject();
+        generator.writeStringField(EVENT_DATE_TIME, eventDate);
+        generator.writeStringField(BATCH_ID, batchId);
+        generator.writeNumberField(BATCH_SEQUENCE, sequence);
+        generator.writeFieldName(STATS);
+        generator.writeStartObject();
+        return generator;
+    }
+
+    private void finishBatch(JsonGenerator generator, Integer batchCount) throws IOException {
+        generator.writeEndObject();
+        if (batchCount != null) {
+            generator.writeNumberField(BATCH_COUNT, batchCount);
+        }
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    private void publishBatch(String eventType, StringWriter writer) throws EventBusException {
+        Event event = new Event(EVENT_SOURCE, EventCategory.USAGE_EVENT.getName(), eventType, VirtualMachine.class.getSimpleName(), null);
+        event.setDescription(writer.toString());
+        _eventBus.publish(event);
     }
 
     @Override
-    public boolean stop() {
-        _timer.cancel();
-        return super.stop();
+    public boolean start() {
+        _vmLogScheduler.schedule(JOB_NAME, VmLogUsageTimeout::value, VmLogUsageDeadline::value, false, true, () -> {
+            s_logger.info("Update of VM log statistics started");
+            checkLeaderTerm();
+            updateVmLogStats(_vmLogManager.getVmLogStats(), System.currentTimeMillis());
+            s_logger.info("Update of VM log statistics finished");
+        });
+        return super.start();
     }
 }
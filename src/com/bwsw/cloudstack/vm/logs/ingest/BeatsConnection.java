@@ -0,0 +1,147 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads events sent with Lumberjack protocol version 2 (JSON and compressed frames) and acknowledges them once they are handled.
+ */
+class BeatsConnection implements Runnable {
+
+    private static final Logger s_logger = Logger.getLogger(BeatsConnection.class);
+
+    static final byte PROTOCOL_VERSION = '2';
+    static final byte WINDOW_SIZE_FRAME = 'W';
+    static final byte COMPRESSED_FRAME = 'C';
+    static final byte JSON_FRAME = 'J';
+    static final byte ACK_FRAME = 'A';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    private final Socket _socket;
+    private final BeatsEventHandler _handler;
+    private final int _maxWindowSize;
+    private final long _maxWindowLength;
+    private final List<byte[]> _events = new ArrayList<>();
+    private DataOutputStream _output;
+    private long _eventsLength;
+    private long _windowSize;
+    private long _windowEvents;
+    private long _sequence;
+
+    BeatsConnection(Socket socket, BeatsEventHandler handler, int maxWindowSize, long maxWindowLength) {
+        _socket = socket;
+        _handler = handler;
+        _maxWindowSize = maxWindowSize;
+        _maxWindowLength = maxWindowLength;
+    }
+
+    @Override
+    public void run() {
+        try (Socket socket = _socket) {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            _output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (readFrame(input)) {
+                // frames are processed as they are read
+            }
+        } catch (EOFException e) {
+            s_logger.debug("Beats connection closed by " + _socket.getRemoteSocketAddress());
+        } catch (Exception e) {
+            s_logger.warn("Beats connection from " + _socket.getRemoteSocketAddress() + " failed", e);
+        }
+    }
+
+    /**
+     * @return false if the end of the stream is reached before the frame
+     */
+    private boolean readFrame(DataInputStream input) throws Exception {
+        int version = input.read();
+        if (version < 0) {
+            return false;
+        }
+        if (version != PROTOCOL_VERSION) {
+            throw new IOException("Unsupported Lumberjack protocol version " + version);
+        }
+        byte type = input.readByte();
+        switch (type) {
+        case WINDOW_SIZE_FRAME:
+            _windowSize = Integer.toUnsignedLong(input.readInt());
+            _windowEvents = 0;
+            break;
+        case JSON_FRAME:
+            _sequence = Integer.toUnsignedLong(input.readInt());
+            byte[] event = readPayload(input);
+            _events.add(event);
+            _eventsLength += event.length;
+            _windowEvents++;
+            if (_windowEvents >= _windowSize) {
+                _windowEvents = 0;
+                handleWindow();
+            } else if (_events.size() >= _maxWindowSize || _eventsLength >= _maxWindowLength) {
+                // the window size is set by the client, events received so far are acknowledged to keep the memory bounded
+                handleWindow();
+            }
+            break;
+        case COMPRESSED_FRAME:
+            byte[] payload = readPayload(input);
+            try (DataInputStream compressedInput = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)), BUFFER_SIZE))) {
+                while (readFrame(compressedInput)) {
+                    // nested frames are processed as they are read
+                }
+            }
+            break;
+        default:
+            throw new IOException("Unsupported Lumberjack frame type " + type);
+        }
+        return true;
+    }
+
+    private byte[] readPayload(DataInputStream input) throws IOException {
+        long length = Integer.toUnsignedLong(input.readInt());
+        if (length > MAX_PAYLOAD_SIZE) {
+            throw new IOException("Lumberjack payload of " + length + " bytes exceeds the limit");
+        }
+        byte[] payload = new byte[(int)length];
+        input.readFully(payload);
+        return payload;
+    }
+
+    private void handleWindow() throws Exception {
+        _handler.handle(new ArrayList<>(_events));
+        _events.clear();
+        _eventsLength = 0;
+        _output.writeByte(PROTOCOL_VERSION);
+        _output.writeByte(ACK_FRAME);
+        _output.writeInt((int)_sequence);
+        _output.flush();
+    }
+}
@@ -0,0 +1,120 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import com.cloud.utils.concurrency.NamedThreadFactory;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts connections of Beats clients and handles each of them in a separate thread.
+ */
+public class BeatsServer {
+
+    private static final Logger s_logger = Logger.getLogger(BeatsServer.class);
+
+    private static final String ACCEPTOR_THREAD_NAME = "VM_LOG_INGEST_ACCEPTOR";
+    private static final String CONNECTION_THREAD_NAME = "VM_LOG_INGEST";
+    private static final long CONNECTION_THREAD_KEEP_ALIVE = 60;
+
+    private final int _port;
+    private final int _readTimeout;
+    private final int _maxWindowSize;
+    private final long _maxWindowLength;
+    private final BeatsEventHandler _handler;
+    private final ThreadPoolExecutor _executor;
+    private ServerSocket _serverSocket;
+
+    /**
+     * @param port            the port to listen on, 0 for an ephemeral port
+     * @param maxConnections  the maximum number of connections handled at the same time, other ones are closed
+     * @param readTimeout     the timeout in ms to wait for data from clients
+     * @param maxWindowSize   the maximum number of events of a connection handled at once, larger windows are acknowledged in parts
+     * @param maxWindowLength the maximum total length in bytes of events of a connection handled at once
+     */
+    public BeatsServer(int port, int maxConnections, int readTimeout, int maxWindowSize, long maxWindowLength, BeatsEventHandler handler) {
+        _port = port;
+        _readTimeout = readTimeout;
+        _maxWindowSize = maxWindowSize;
+        _maxWindowLength = maxWindowLength;
+        _handler = handler;
+        _executor = new ThreadPoolExecutor(0, maxConnections, CONNECTION_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new NamedThreadFactory(CONNECTION_THREAD_NAME));
+    }
+
+    public void start() throws IOException {
+        _serverSocket = new ServerSocket();
+        _serverSocket.setReuseAddress(true);
+        _serverSocket.bind(new InetSocketAddress(_port));
+        Thread acceptor = new Thread(this::accept, ACCEPTOR_THREAD_NAME);
+        acceptor.setDaemon(true);
+        acceptor.start();
+        s_logger.info("VM log ingest listens on port " + getPort());
+    }
+
+    public void stop() {
+        try {
+            if (_serverSocket != null) {
+                _serverSocket.close();
+            }
+        } catch (IOException e) {
+            s_logger.warn("Unable to close VM log ingest socket", e);
+        }
+        _executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return _serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!_serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = _serverSocket.accept();
+            } catch (SocketException e) {
+                // the server socket is closed
+                break;
+            } catch (IOException e) {
+                s_logger.error("Unable to accept VM log ingest connection", e);
+                continue;
+            }
+            try {
+                socket.setSoTimeout(_readTimeout);
+                socket.setTcpNoDelay(true);
+                _executor.execute(new BeatsConnection(socket, _handler, _maxWindowSize, _maxWindowLength));
+            } catch (IOException | RejectedExecutionException e) {
+                s_logger.warn("VM log ingest connection from " + socket.getRemoteSocketAddress() + " rejected", e);
+                try {
+                    socket.close();
+                } catch (IOException ce) {
+                    s_logger.debug("Unable to close VM log ingest connection", ce);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import org.elasticsearch.common.CheckedFunction;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of tokens of the VM log registry, unknown tokens are cached for a shorter time. Tokens invalidated by other management servers
+ * are resolved until their entries expire.
+ */
+public class TokenCache {
+
+    private static class Entry {
+
+        private final Token token;
+        private final long expiresAt;
+
+        Entry(Token token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // access order makes the least recently used entry the first one
+    private final LinkedHashMap<String, Entry> _entries;
+    private final CheckedFunction<String, Token, IOException> _loader;
+    private final long _ttl;
+    private final long _negativeTtl;
+
+    /**
+     * @param loader      the function to retrieve a token from the registry, returns null for unknown tokens
+     * @param ttl         the time in ms to keep entries of known tokens
+     * @param negativeTtl the time in ms to keep entries of unknown tokens
+     * @param maxSize     the maximum number of entries, least recently used ones are evicted
+     */
+    public TokenCache(CheckedFunction<String, Token, IOException> loader, long ttl, long negativeTtl, int maxSize) {
+        _loader = loader;
+        _ttl = ttl;
+        _negativeTtl = negativeTtl;
+        _entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param timestamp the event time in ms
+     * @return the UUID of the VM if the token is valid at the time, null otherwise
+     */
+    public String resolve(String token, long timestamp) throws IOException {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (_entries) {
+            entry = _entries.get(token);
+        }
+        if (entry == null || entry.expiresAt <= now) {
+            // concurrent misses of the same token load it several times which is acceptable for the registry
+            Token loaded = _loader.apply(token);
+            entry = new Entry(loaded, now + (loaded != null ? _ttl : _negativeTtl));
+            synchronized (_entries) {
+                _entries.put(token, entry);
+            }
+        }
+        Token value = entry.token;
+        if (value == null || value.getVmUuid() == null || value.getValidFrom() == null || value.getValidFrom().toInstant(ZoneOffset.UTC).toEpochMilli() > timestamp) {
+            return null;
+        }
+        if (value.getValidTo() != null && value.getValidTo().toInstant(ZoneOffset.UTC).toEpochMilli() < timestamp) {
+            return null;
+        }
+        return value.getVmUuid();
+    }
+
+    public void invalidate(String token) {
+        synchronized (_entries) {
+            _entries.remove(token);
+        }
+    }
+
+    /**
+     * Removes entries of tokens of the virtual machines.
+     */
+    public void invalidateVms(Collection<String> vmUuids) {
+        synchronized (_entries) {
+            _entries.values().removeIf(e -> e.token != null && vmUuids.contains(e.token.getVmUuid()));
+        }
+    }
+
+    public int size() {
+        synchronized (_entries) {
+            return _entries.size();
+        }
+    }
+}
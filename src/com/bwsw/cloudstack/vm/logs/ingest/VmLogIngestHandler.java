@@ -0,0 +1,134 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.service.BulkIndexer;
+import com.bwsw.cloudstack.vm.logs.service.VmLogRequestBuilder;
+import com.bwsw.cloudstack.vm.logs.util.IndexName;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.log4j.Logger;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Resolves tokens of Beats events and indexes events into daily VM log indices like the Logstash pipeline does. Events without valid tokens
+ * are dropped, events rejected by Elasticsearch because of overload are reported to be resent by clients.
+ */
+public class VmLogIngestHandler implements BeatsEventHandler {
+
+    private static final Logger s_logger = Logger.getLogger(VmLogIngestHandler.class);
+
+    private static final String INDEX_TYPE = "doc";
+    private static final String TIMESTAMP_FIELD = "@timestamp";
+    private static final String METADATA_FIELD = "@metadata";
+
+    private final ObjectMapper _objectMapper = new ObjectMapper();
+    private final TokenCache _tokenCache;
+    private final BulkIndexer _bulkIndexer;
+
+    public VmLogIngestHandler(TokenCache tokenCache, BulkIndexer bulkIndexer) {
+        _tokenCache = tokenCache;
+        _bulkIndexer = bulkIndexer;
+    }
+
+    @Override
+    public void handle(List<byte[]> events) throws Exception {
+        List<CompletableFuture<BulkItemResponse>> futures = new ArrayList<>(events.size());
+        for (byte[] event : events) {
+            IndexRequest request = getIndexRequest(event);
+            if (request != null) {
+                futures.add(_bulkIndexer.add(request));
+            }
+        }
+        int dropped = 0;
+        for (CompletableFuture<BulkItemResponse> future : futures) {
+            BulkItemResponse response;
+            try {
+                response = future.get();
+            } catch (ExecutionException e) {
+                throw new IOException("Unable to index VM logs", e.getCause());
+            }
+            if (response.isFailed()) {
+                RestStatus status = response.getFailure().getStatus();
+                if (status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= RestStatus.INTERNAL_SERVER_ERROR.getStatus()) {
+                    throw new IOException("Unable to index VM logs: " + response.getFailureMessage());
+                }
+                dropped++;
+                if (s_logger.isDebugEnabled()) {
+                    s_logger.debug("VM log dropped: " + response.getFailureMessage());
+                }
+            }
+        }
+        if (dropped > 0) {
+            s_logger.warn(dropped + " VM logs rejected by Elasticsearch are dropped");
+        }
+    }
+
+    /**
+     * @return the request to index the event or null if the event should be dropped
+     */
+    IndexRequest getIndexRequest(byte[] event) throws IOException {
+        JsonNode node;
+        try {
+            node = _objectMapper.readTree(event);
+        } catch (IOException e) {
+            s_logger.debug("Invalid VM log event", e);
+            return null;
+        }
+        if (!(node instanceof ObjectNode) || node.has(EntityConstants.VM_UUID)) {
+            return null;
+        }
+        ObjectNode document = (ObjectNode)node;
+        JsonNode token = document.get(EntityConstants.TOKEN);
+        JsonNode timestamp = document.get(TIMESTAMP_FIELD);
+        if (token == null || !token.isTextual() || timestamp == null || !timestamp.isTextual()) {
+            return null;
+        }
+        Instant time;
+        try {
+            time = Instant.parse(timestamp.asText());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+        String vmUuid = _tokenCache.resolve(token.asText(), time.toEpochMilli());
+        if (vmUuid == null) {
+            return null;
+        }
+        document.remove(EntityConstants.TOKEN);
+        document.remove(METADATA_FIELD);
+        document.put(EntityConstants.VM_UUID, vmUuid);
+        document.put(VmLogRequestBuilder.LOG_ID_FIELD, UUIDs.base64UUID());
+        return new IndexRequest(IndexName.format(vmUuid, time.atOffset(ZoneOffset.UTC).toLocalDate()), INDEX_TYPE)
+                .source(_objectMapper.writeValueAsBytes(document), XContentType.JSON);
+    }
+}
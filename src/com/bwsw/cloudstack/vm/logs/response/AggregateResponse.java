@@ -22,6 +22,8 @@ import java.util.Map;
 
 public class AggregateResponse<T> {
 
+    public static final int UNKNOWN_COUNT = -1;
+
     private final List<T> items;
     private final int count;
     private final Map<String, Object> searchAfter;
@@ -36,6 +38,9 @@ public class AggregateResponse<T> {
         return items;
     }
 
+    /**
+     * @return the total number of items or {@link #UNKNOWN_COUNT} if they are not counted
+     */
     public int getCount() {
         return count;
     }
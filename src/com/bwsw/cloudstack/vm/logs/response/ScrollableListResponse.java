@@ -23,12 +23,24 @@ public class ScrollableListResponse<T> {
 
     private final int count;
     private final String scrollId;
+    private final List<Object> searchAfter;
+    private final String cursor;
     private List<T> items;
 
     public ScrollableListResponse(int count, List<T> items, String scrollId) {
+        this(count, items, scrollId, null);
+    }
+
+    public ScrollableListResponse(int count, List<T> items, String scrollId, List<Object> searchAfter) {
+        this(count, items, scrollId, searchAfter, null);
+    }
+
+    public ScrollableListResponse(int count, List<T> items, String scrollId, List<Object> searchAfter, String cursor) {
         this.count = count;
         this.items = items;
         this.scrollId = scrollId;
+        this.searchAfter = searchAfter;
+        this.cursor = cursor;
     }
 
     public int getCount() {
@@ -39,6 +51,14 @@ public class ScrollableListResponse<T> {
         return scrollId;
     }
 
+    public List<Object> getSearchAfter() {
+        return searchAfter;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
     public List<T> getItems() {
         return items;
     }
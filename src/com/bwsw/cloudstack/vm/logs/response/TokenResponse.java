@@ -17,6 +17,7 @@
 
 package com.bwsw.cloudstack.vm.logs.response;
 
+import com.cloud.serializer.Param;
 import com.google.gson.annotations.SerializedName;
 import org.apache.cloudstack.api.BaseResponse;
 
@@ -25,6 +26,18 @@ public class TokenResponse extends BaseResponse {
     @SerializedName("token")
     private String token;
 
+    @Param(description = "the ID of the virtual machine")
+    @SerializedName("virtualmachineid")
+    private String virtualMachineId;
+
+    @Param(description = "true if the token has been created")
+    @SerializedName("success")
+    private Boolean success;
+
+    @Param(description = "the reason the token has not been created")
+    @SerializedName("errortext")
+    private String errorText;
+
     public TokenResponse() {
         super("vmlogtoken");
     }
@@ -36,4 +49,28 @@ public class TokenResponse extends BaseResponse {
     public void setToken(String token) {
         this.token = token;
     }
+
+    public String getVirtualMachineId() {
+        return virtualMachineId;
+    }
+
+    public void setVirtualMachineId(String virtualMachineId) {
+        this.virtualMachineId = virtualMachineId;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public String getErrorText() {
+        return errorText;
+    }
+
+    public void setErrorText(String errorText) {
+        this.errorText = errorText;
+    }
 }
@@ -0,0 +1,129 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.bwsw.cloudstack.vm.logs.service.BulkStats;
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+public class VmLogBulkStatsResponse extends BaseResponse {
+
+    @Param(description = "the bulk indexer name")
+    @SerializedName("name")
+    private final String name;
+
+    @Param(description = "the number of requests waiting in the queue")
+    @SerializedName("queued")
+    private final int queued;
+
+    @Param(description = "the number of bulk requests in flight")
+    @SerializedName("inflight")
+    private final int inFlight;
+
+    @Param(description = "the number of requests added to the queue")
+    @SerializedName("requests")
+    private final long requests;
+
+    @Param(description = "the number of requests dropped since the queue was full")
+    @SerializedName("dropped")
+    private final long dropped;
+
+    @Param(description = "the number of bulk requests executed including retries")
+    @SerializedName("bulks")
+    private final long bulks;
+
+    @Param(description = "the number of failed requests")
+    @SerializedName("failures")
+    private final long failures;
+
+    @Param(description = "the number of requests retried after rejections")
+    @SerializedName("retries")
+    private final long retries;
+
+    @Param(description = "the average number of requests in a bulk request")
+    @SerializedName("averagebatchsize")
+    private final long averageBatchSize;
+
+    @Param(description = "the average duration of a bulk request in ms")
+    @SerializedName("averagelatency")
+    private final long averageLatency;
+
+    @Param(description = "the maximum duration of a bulk request in ms")
+    @SerializedName("maxlatency")
+    private final long maxLatency;
+
+    public VmLogBulkStatsResponse(BulkStats stats) {
+        super("vmlogbulkstats");
+        this.name = stats.getName();
+        this.queued = stats.getQueued();
+        this.inFlight = stats.getInFlight();
+        this.requests = stats.getRequests();
+        this.dropped = stats.getDropped();
+        this.bulks = stats.getBulks();
+        this.failures = stats.getFailures();
+        this.retries = stats.getRetries();
+        this.averageBatchSize = stats.getBulks() > 0 ? stats.getBulkItems() / stats.getBulks() : 0;
+        this.averageLatency = stats.getBulks() > 0 ? stats.getTotalLatency() / stats.getBulks() : 0;
+        this.maxLatency = stats.getMaxLatency();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getBulks() {
+        return bulks;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getAverageBatchSize() {
+        return averageBatchSize;
+    }
+
+    public long getAverageLatency() {
+        return averageLatency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+}
@@ -0,0 +1,93 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.bwsw.cloudstack.vm.logs.cache.CacheStats;
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+public class VmLogCacheStatsResponse extends BaseResponse {
+
+    @Param(description = "the number of searches served from the cache")
+    @SerializedName("hits")
+    private final long hits;
+
+    @Param(description = "the number of cacheable searches not found in the cache")
+    @SerializedName("misses")
+    private final long misses;
+
+    @Param(description = "the number of search results evicted from the cache")
+    @SerializedName("evictions")
+    private final long evictions;
+
+    @Param(description = "the number of search results in the cache")
+    @SerializedName("entries")
+    private final int entries;
+
+    @Param(description = "the approximate size of search results in the cache in bytes")
+    @SerializedName("size")
+    private final long size;
+
+    @Param(description = "the number of searches sent to Elasticsearch")
+    @SerializedName("searches")
+    private final long searches;
+
+    @Param(description = "the number of searches served with results of identical concurrent searches")
+    @SerializedName("deduplicatedsearches")
+    private final long deduplicatedSearches;
+
+    public VmLogCacheStatsResponse(CacheStats stats) {
+        super("vmlogcachestats");
+        this.hits = stats.getHits();
+        this.misses = stats.getMisses();
+        this.evictions = stats.getEvictions();
+        this.entries = stats.getEntries();
+        this.size = stats.getSize();
+        this.searches = stats.getSearches();
+        this.deduplicatedSearches = stats.getDeduplicatedSearches();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getSearches() {
+        return searches;
+    }
+
+    public long getDeduplicatedSearches() {
+        return deduplicatedSearches;
+    }
+}
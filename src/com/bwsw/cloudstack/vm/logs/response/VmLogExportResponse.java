@@ -0,0 +1,74 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+public class VmLogExportResponse extends BaseResponse {
+
+    @Param(description = "the name of the export file")
+    @SerializedName("file")
+    private final String file;
+
+    @Param(description = "the path of the export file on the management server")
+    @SerializedName("path")
+    private final String path;
+
+    @Param(description = "the URL to download the export file")
+    @SerializedName("url")
+    private final String url;
+
+    @Param(description = "the number of exported log entries")
+    @SerializedName("count")
+    private final long count;
+
+    @Param(description = "the size of the export file in bytes")
+    @SerializedName("size")
+    private final long size;
+
+    public VmLogExportResponse(String file, String path, String url, long count, long size) {
+        super("vmlogexport");
+        this.file = file;
+        this.path = path;
+        this.url = url;
+        this.count = count;
+        this.size = size;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
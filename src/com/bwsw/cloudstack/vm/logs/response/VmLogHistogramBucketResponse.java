@@ -0,0 +1,47 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+public class VmLogHistogramBucketResponse extends BaseResponse {
+
+    @Param(description = "the start date/time of the bucket")
+    @SerializedName(EntityConstants.TIMESTAMP)
+    private final String timestamp;
+
+    @Param(description = "the number of logs in the bucket")
+    @SerializedName("count")
+    private final long count;
+
+    public VmLogHistogramBucketResponse(String timestamp, long count) {
+        this.timestamp = timestamp;
+        this.count = count;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
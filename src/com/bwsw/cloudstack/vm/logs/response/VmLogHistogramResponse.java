@@ -0,0 +1,58 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+import java.util.List;
+
+public class VmLogHistogramResponse extends BaseResponse {
+
+    @Param(description = "the bucket size in seconds")
+    @SerializedName("interval")
+    private final long interval;
+
+    @Param(description = "the total number of logs")
+    @SerializedName("count")
+    private final int count;
+
+    @Param(description = "the buckets")
+    @SerializedName("buckets")
+    private final List<VmLogHistogramBucketResponse> buckets;
+
+    public VmLogHistogramResponse(long interval, int count, List<VmLogHistogramBucketResponse> buckets) {
+        super("vmloghistogram");
+        this.interval = interval;
+        this.count = count;
+        this.buckets = buckets;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public List<VmLogHistogramBucketResponse> getBuckets() {
+        return buckets;
+    }
+}
@@ -0,0 +1,122 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.response;
+
+import com.bwsw.cloudstack.vm.logs.service.JobStats;
+import com.cloud.serializer.Param;
+import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.BaseResponse;
+
+import java.util.Date;
+
+public class VmLogJobStatsResponse extends BaseResponse {
+
+    @Param(description = "the job name")
+    @SerializedName("name")
+    private final String name;
+
+    @Param(description = "true if the job is running")
+    @SerializedName("running")
+    private final boolean running;
+
+    @Param(description = "the number of finished runs")
+    @SerializedName("runs")
+    private final long runs;
+
+    @Param(description = "the number of runs skipped since the management server is not the leader")
+    @SerializedName("skipped")
+    private final long skipped;
+
+    @Param(description = "the number of failed runs")
+    @SerializedName("failures")
+    private final long failures;
+
+    @Param(description = "the number of runs which have exceeded the deadline")
+    @SerializedName("timeouts")
+    private final long timeouts;
+
+    @Param(description = "the start date of the last run")
+    @SerializedName("laststart")
+    private final Date lastStart;
+
+    @Param(description = "the duration of the last finished run in ms")
+    @SerializedName("lastduration")
+    private final long lastDuration;
+
+    @Param(description = "the maximum duration of a run in ms")
+    @SerializedName("maxduration")
+    private final long maxDuration;
+
+    @Param(description = "the average duration of a run in ms")
+    @SerializedName("averageduration")
+    private final long averageDuration;
+
+    public VmLogJobStatsResponse(JobStats stats) {
+        super("vmlogjobstats");
+        this.name = stats.getName();
+        this.running = stats.isRunning();
+        this.runs = stats.getRuns();
+        this.skipped = stats.getSkipped();
+        this.failures = stats.getFailures();
+        this.timeouts = stats.getTimeouts();
+        this.lastStart = stats.getLastStart() != null ? new Date(stats.getLastStart()) : null;
+        this.lastDuration = stats.getLastDuration();
+        this.maxDuration = stats.getMaxDuration();
+        this.averageDuration = stats.getRuns() > 0 ? stats.getTotalDuration() / stats.getRuns() : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public Date getLastStart() {
+        return lastStart;
+    }
+
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public long getAverageDuration() {
+        return averageDuration;
+    }
+}
@@ -30,14 +30,30 @@ public class VmLogListResponse extends BaseResponse {
     @SerializedName("scrollid")
     private final String scrollId;
 
+    @SerializedName("searchafter")
+    private final String searchAfter;
+
+    @SerializedName("cursor")
+    private final String cursor;
+
     @SerializedName("items")
     private List<VmLogResponse> items;
 
     public VmLogListResponse(int count, List<VmLogResponse> items, String scrollId) {
+        this(count, items, scrollId, null);
+    }
+
+    public VmLogListResponse(int count, List<VmLogResponse> items, String scrollId, String searchAfter) {
+        this(count, items, scrollId, searchAfter, null);
+    }
+
+    public VmLogListResponse(int count, List<VmLogResponse> items, String scrollId, String searchAfter, String cursor) {
         super("vmlogs");
         this.count = count;
         this.items = items;
         this.scrollId = scrollId;
+        this.searchAfter = searchAfter;
+        this.cursor = cursor;
     }
 
     public int getCount() {
@@ -48,6 +64,14 @@ public class VmLogListResponse extends BaseResponse {
         return scrollId;
     }
 
+    public String getSearchAfter() {
+        return searchAfter;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
     public List<VmLogResponse> getItems() {
         return items;
     }
@@ -24,6 +24,7 @@ import com.cloud.serializer.Param;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.gson.annotations.SerializedName;
+import org.apache.cloudstack.api.ApiConstants;
 import org.apache.cloudstack.api.BaseResponse;
 
 public class VmLogResponse extends BaseResponse implements ResponseEntity {
@@ -33,6 +34,11 @@ public class VmLogResponse extends BaseResponse implements ResponseEntity {
     @SerializedName(EntityConstants.ID)
     private String id;
 
+    @Param(description = "the ID of the virtual machine, returned for searches in logs of several virtual machines")
+    @JsonProperty(EntityConstants.VM_UUID)
+    @SerializedName(ApiConstants.VIRTUAL_MACHINE_ID)
+    private String vmId;
+
     @Param(description = "the log event timestamp")
     @JsonProperty(VmLogRequestBuilder.DATE_FIELD)
     @SerializedName(EntityConstants.TIMESTAMP)
@@ -56,6 +62,14 @@ public class VmLogResponse extends BaseResponse implements ResponseEntity {
         this.id = id;
     }
 
+    public String getVmId() {
+        return vmId;
+    }
+
+    public void setVmId(String vmId) {
+        this.vmId = vmId;
+    }
+
     public String getTimestamp() {
         return timestamp;
     }
@@ -0,0 +1,79 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.security;
+
+import com.bwsw.cloudstack.vm.logs.service.VmLogManager;
+import com.cloud.utils.exception.CloudRuntimeException;
+import com.google.common.base.Strings;
+import org.apache.commons.codec.binary.Base64;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class CursorSignerImpl implements CursorSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char SEPARATOR = '.';
+
+    // used if no secret is configured so cursors are valid for this management server only
+    private final byte[] defaultKey;
+
+    public CursorSignerImpl() throws NoSuchAlgorithmException {
+        this.defaultKey = KeyGenerator.getInstance(ALGORITHM).generateKey().getEncoded();
+    }
+
+    @Override
+    public String sign(String payload) {
+        String data = Base64.encodeBase64URLSafeString(payload.getBytes(StandardCharsets.UTF_8));
+        return data + SEPARATOR + Base64.encodeBase64URLSafeString(getSignature(data));
+    }
+
+    @Override
+    public String verify(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        int separatorIndex = cursor.lastIndexOf(SEPARATOR);
+        if (separatorIndex <= 0) {
+            return null;
+        }
+        String data = cursor.substring(0, separatorIndex);
+        byte[] signature = Base64.decodeBase64(cursor.substring(separatorIndex + 1));
+        if (!MessageDigest.isEqual(getSignature(data), signature)) {
+            return null;
+        }
+        return new String(Base64.decodeBase64(data), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getSignature(String data) {
+        String secret = VmLogManager.VmLogCursorSecret.value();
+        byte[] key = Strings.isNullOrEmpty(secret) ? defaultKey : secret.getBytes(StandardCharsets.UTF_8);
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new CloudRuntimeException("Unable to sign VM log cursor", e);
+        }
+    }
+}
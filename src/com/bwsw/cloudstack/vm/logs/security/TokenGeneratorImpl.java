@@ -24,14 +24,25 @@ import java.security.NoSuchAlgorithmException;
 
 public class TokenGeneratorImpl implements TokenGenerator {
 
-    private final KeyGenerator generator;
+    private static final String ALGORITHM = "HmacSHA1";
+
+    // key generators are not thread-safe so tokens are generated concurrently with a generator per thread
+    private final ThreadLocal<KeyGenerator> generator;
 
     public TokenGeneratorImpl() throws NoSuchAlgorithmException {
-        this.generator = KeyGenerator.getInstance("HmacSHA1");
+        // fails on startup if the algorithm is not supported instead of failing the first token creation in each thread
+        KeyGenerator.getInstance(ALGORITHM);
+        this.generator = ThreadLocal.withInitial(() -> {
+            try {
+                return KeyGenerator.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
     }
 
     @Override
     public String generate() {
-        return Base64.encodeBase64URLSafeString(generator.generateKey().getEncoded());
+        return Base64.encodeBase64URLSafeString(generator.get().generateKey().getEncoded());
     }
 }
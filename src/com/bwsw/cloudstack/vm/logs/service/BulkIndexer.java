@@ -0,0 +1,320 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.cloud.utils.concurrency.NamedThreadFactory;
+import org.apache.log4j.Logger;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects write requests in a bounded queue and executes them in bulk requests limited by size and time. Up to the configured number
+ * of bulk requests are executed concurrently, items rejected by Elasticsearch because of overload are retried with backoff.
+ */
+public class BulkIndexer {
+
+    public enum OverflowPolicy {
+        /**
+         * Producers wait while the queue is full.
+         */
+        BLOCK,
+        /**
+         * Requests are rejected while the queue is full.
+         */
+        DROP
+    }
+
+    private static final Logger s_logger = Logger.getLogger(BulkIndexer.class);
+
+    private static final String FLUSHER_THREAD_SUFFIX = "_FLUSHER";
+
+    private static class PendingRequest {
+
+        private final DocWriteRequest<?> request;
+        private final CompletableFuture<BulkItemResponse> future = new CompletableFuture<>();
+
+        PendingRequest(DocWriteRequest<?> request) {
+            this.request = request;
+        }
+    }
+
+    private final String _name;
+    private final CheckedFunction<BulkRequest, BulkResponse, IOException> _executor;
+    private final int _bulkSize;
+    private final long _flushInterval;
+    private final OverflowPolicy _overflowPolicy;
+    private final BackoffPolicy _retryPolicy;
+    private final BlockingQueue<PendingRequest> _queue;
+    private final Semaphore _permits;
+    private final int _concurrency;
+    private final ExecutorService _bulkExecutor;
+    private volatile boolean _stopped;
+    private Thread _flusher;
+
+    private final LongAdder _requests = new LongAdder();
+    private final LongAdder _dropped = new LongAdder();
+    private final LongAdder _bulks = new LongAdder();
+    private final LongAdder _bulkItems = new LongAdder();
+    private final LongAdder _failures = new LongAdder();
+    private final LongAdder _retries = new LongAdder();
+    private final LongAdder _totalLatency = new LongAdder();
+    private final AtomicLong _maxLatency = new AtomicLong();
+
+    /**
+     * @param name           the name used for threads and statistics
+     * @param executor       the function to execute bulk requests
+     * @param bulkSize       the maximum number of requests in a bulk request
+     * @param flushInterval  the maximum time in ms to wait for more requests before a bulk request is executed, 0 to execute queued requests at once
+     * @param queueSize      the maximum number of requests waiting for execution
+     * @param overflowPolicy the policy for requests added while the queue is full
+     * @param concurrency    the maximum number of bulk requests executed at the same time
+     * @param retryPolicy    the delays to retry items rejected with 429 status
+     */
+    public BulkIndexer(String name, CheckedFunction<BulkRequest, BulkResponse, IOException> executor, int bulkSize, long flushInterval, int queueSize,
+            OverflowPolicy overflowPolicy, int concurrency, BackoffPolicy retryPolicy) {
+        _name = name;
+        _executor = executor;
+        _bulkSize = bulkSize;
+        _flushInterval = flushInterval;
+        _overflowPolicy = overflowPolicy;
+        _retryPolicy = retryPolicy;
+        _queue = new LinkedBlockingQueue<>(queueSize);
+        _concurrency = concurrency;
+        _permits = new Semaphore(concurrency);
+        _bulkExecutor = Executors.newCachedThreadPool(new NamedThreadFactory(name));
+    }
+
+    public void start() {
+        _flusher = new Thread(this::flush, _name + FLUSHER_THREAD_SUFFIX);
+        _flusher.setDaemon(true);
+        _flusher.start();
+    }
+
+    /**
+     * Stops the indexer, requests which have not been executed yet are completed exceptionally.
+     */
+    public void stop() {
+        _stopped = true;
+        if (_flusher != null) {
+            _flusher.interrupt();
+        }
+        _bulkExecutor.shutdownNow();
+    }
+
+    /**
+     * Adds the request to the queue.
+     *
+     * @return the future completed with the item of the bulk response, failed items are not completed exceptionally; the future is
+     * completed exceptionally with {@link RejectedExecutionException} if the request is dropped
+     */
+    public CompletableFuture<BulkItemResponse> add(DocWriteRequest<?> request) throws InterruptedException {
+        PendingRequest pendingRequest = new PendingRequest(request);
+        if (_stopped) {
+            pendingRequest.future.completeExceptionally(getStoppedException());
+            return pendingRequest.future;
+        }
+        if (_overflowPolicy == OverflowPolicy.BLOCK) {
+            _queue.put(pendingRequest);
+        } else if (!_queue.offer(pendingRequest)) {
+            _dropped.increment();
+            pendingRequest.future.completeExceptionally(new RejectedExecutionException("The bulk queue " + _name + " is full"));
+            return pendingRequest.future;
+        }
+        _requests.increment();
+        if (_stopped && _queue.remove(pendingRequest)) {
+            pendingRequest.future.completeExceptionally(getStoppedException());
+        }
+        return pendingRequest.future;
+    }
+
+    /**
+     * Adds the requests to the queue and waits for their execution.
+     *
+     * @throws IOException if any request fails
+     */
+    public void execute(Collection<? extends DocWriteRequest<?>> requests) throws IOException {
+        List<CompletableFuture<BulkItemResponse>> futures = new ArrayList<>(requests.size());
+        try {
+            for (DocWriteRequest<?> request : requests) {
+                futures.add(add(request));
+            }
+            int failures = 0;
+            String failureMessage = null;
+            for (CompletableFuture<BulkItemResponse> future : futures) {
+                BulkItemResponse response = future.get();
+                if (response.isFailed()) {
+                    failures++;
+                    failureMessage = response.getFailureMessage();
+                }
+            }
+            if (failures > 0) {
+                throw new IOException("Failed to execute " + failures + " of " + requests.size() + " bulk requests: " + failureMessage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bulk requests");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to execute bulk requests", e.getCause());
+        }
+    }
+
+    public BulkStats getStats() {
+        return new BulkStats(_name, _queue.size(), _concurrency - _permits.availablePermits(), _requests.sum(), _dropped.sum(), _bulks.sum(), _bulkItems.sum(),
+                _failures.sum(), _retries.sum(), _totalLatency.sum(), _maxLatency.get());
+    }
+
+    private void flush() {
+        List<PendingRequest> batch = new ArrayList<>(_bulkSize);
+        try {
+            while (!_stopped) {
+                batch.add(_queue.take());
+                long deadline = System.currentTimeMillis() + _flushInterval;
+                while (batch.size() < _bulkSize) {
+                    if (_queue.drainTo(batch, _bulkSize - batch.size()) == 0) {
+                        long timeout = deadline - System.currentTimeMillis();
+                        PendingRequest next = timeout > 0 ? _queue.poll(timeout, TimeUnit.MILLISECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+                _permits.acquire();
+                // requests queued while all bulk requests were in flight join the batch
+                _queue.drainTo(batch, _bulkSize - batch.size());
+                List<PendingRequest> requests = new ArrayList<>(batch);
+                batch.clear();
+                try {
+                    _bulkExecutor.execute(() -> execute(requests));
+                } catch (RejectedExecutionException e) {
+                    _permits.release();
+                    fail(requests, getStoppedException());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        fail(batch, getStoppedException());
+        batch.clear();
+        _queue.drainTo(batch);
+        fail(batch, getStoppedException());
+    }
+
+    private void execute(List<PendingRequest> requests) {
+        try {
+            Iterator<TimeValue> delays = _retryPolicy.iterator();
+            List<PendingRequest> pending = requests;
+            while (!pending.isEmpty()) {
+                pending = executeBulk(pending, delays.hasNext());
+                if (!pending.isEmpty()) {
+                    _retries.add(pending.size());
+                    Thread.sleep(delays.next().millis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(requests, getStoppedException());
+        } finally {
+            _permits.release();
+        }
+    }
+
+    /**
+     * @param retry true if rejected requests can be retried
+     * @return requests rejected by Elasticsearch because of overload to retry
+     */
+    private List<PendingRequest> executeBulk(List<PendingRequest> requests, boolean retry) {
+        BulkRequest bulkRequest = new BulkRequest();
+        requests.forEach(r -> bulkRequest.add(r.request));
+        _bulks.increment();
+        _bulkItems.add(requests.size());
+        long start = System.nanoTime();
+        BulkResponse response;
+        try {
+            response = _executor.apply(bulkRequest);
+        } catch (ElasticsearchStatusException e) {
+            if (retry && e.status() == RestStatus.TOO_MANY_REQUESTS) {
+                return requests;
+            }
+            s_logger.error("Unable to execute bulk request " + _name, e);
+            return fail(requests, e);
+        } catch (Exception e) {
+            s_logger.error("Unable to execute bulk request " + _name, e);
+            return fail(requests, e);
+        } finally {
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            _totalLatency.add(latency);
+            _maxLatency.accumulateAndGet(latency, Math::max);
+        }
+        List<PendingRequest> rejected = new ArrayList<>();
+        BulkItemResponse[] items = response.getItems();
+        for (int i = 0; i < requests.size(); i++) {
+            PendingRequest request = requests.get(i);
+            if (i >= items.length) {
+                _failures.increment();
+                request.future.completeExceptionally(new IllegalStateException("No bulk response item for the request"));
+            } else if (items[i].isFailed() && retry && items[i].getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                rejected.add(request);
+            } else {
+                if (items[i].isFailed()) {
+                    _failures.increment();
+                }
+                request.future.complete(items[i]);
+            }
+        }
+        return rejected;
+    }
+
+    private List<PendingRequest> fail(List<PendingRequest> requests, Exception e) {
+        for (PendingRequest request : requests) {
+            if (request.future.completeExceptionally(e)) {
+                _failures.increment();
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private IllegalStateException getStoppedException() {
+        return new IllegalStateException("The bulk indexer " + _name + " is stopped");
+    }
+}
@@ -0,0 +1,92 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+public class BulkStats {
+
+    private final String name;
+    private final int queued;
+    private final int inFlight;
+    private final long requests;
+    private final long dropped;
+    private final long bulks;
+    private final long bulkItems;
+    private final long failures;
+    private final long retries;
+    private final long totalLatency;
+    private final long maxLatency;
+
+    public BulkStats(String name, int queued, int inFlight, long requests, long dropped, long bulks, long bulkItems, long failures, long retries, long totalLatency,
+            long maxLatency) {
+        this.name = name;
+        this.queued = queued;
+        this.inFlight = inFlight;
+        this.requests = requests;
+        this.dropped = dropped;
+        this.bulks = bulks;
+        this.bulkItems = bulkItems;
+        this.failures = failures;
+        this.retries = retries;
+        this.totalLatency = totalLatency;
+        this.maxLatency = maxLatency;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    public long getBulks() {
+        return bulks;
+    }
+
+    public long getBulkItems() {
+        return bulkItems;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public long getTotalLatency() {
+        return totalLatency;
+    }
+
+    public long getMaxLatency() {
+        return maxLatency;
+    }
+}
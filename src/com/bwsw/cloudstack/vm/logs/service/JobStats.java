@@ -0,0 +1,85 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+public class JobStats {
+
+    private final String name;
+    private final boolean running;
+    private final long runs;
+    private final long skipped;
+    private final long failures;
+    private final long timeouts;
+    private final Long lastStart;
+    private final long lastDuration;
+    private final long maxDuration;
+    private final long totalDuration;
+
+    public JobStats(String name, boolean running, long runs, long skipped, long failures, long timeouts, Long lastStart, long lastDuration, long maxDuration, long totalDuration) {
+        this.name = name;
+        this.running = running;
+        this.runs = runs;
+        this.skipped = skipped;
+        this.failures = failures;
+        this.timeouts = timeouts;
+        this.lastStart = lastStart;
+        this.lastDuration = lastDuration;
+        this.maxDuration = maxDuration;
+        this.totalDuration = totalDuration;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public Long getLastStart() {
+        return lastStart;
+    }
+
+    public long getLastDuration() {
+        return lastDuration;
+    }
+
+    public long getMaxDuration() {
+        return maxDuration;
+    }
+
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+}
@@ -0,0 +1,118 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps VM log tokens for the Logstash translate filter. The dictionary is written as a JSON object with tokens as keys and
+ * "vm_uuid,valid_from,valid_to" values where dates are epoch milliseconds and valid_to is empty for valid tokens.
+ * The class is not thread safe.
+ */
+public class TokenDictionary {
+
+    private static final char SEPARATOR = ',';
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final JsonFactory s_jsonFactory = new JsonFactory();
+
+    // values are kept serialized since the dictionary is rewritten far more often than tokens change
+    private final Map<String, String> _entries = new HashMap<>();
+    private final Map<String, Long> _expirations = new HashMap<>();
+
+    /**
+     * @return true if the dictionary has changed
+     */
+    public boolean update(Collection<Token> tokens) {
+        boolean changed = false;
+        for (Token token : tokens) {
+            if (token.getToken() == null || token.getVmUuid() == null || token.getValidFrom() == null) {
+                continue;
+            }
+            StringBuilder value = new StringBuilder(token.getVmUuid()).append(SEPARATOR).append(toMillis(token.getValidFrom())).append(SEPARATOR);
+            if (token.getValidTo() != null) {
+                long validTo = toMillis(token.getValidTo());
+                value.append(validTo);
+                _expirations.put(token.getToken(), validTo);
+            }
+            if (!value.toString().equals(_entries.put(token.getToken(), value.toString()))) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Removes tokens invalidated before the specified time.
+     *
+     * @return true if the dictionary has changed
+     */
+    public boolean prune(LocalDateTime before) {
+        long time = toMillis(before);
+        int size = _entries.size();
+        _expirations.entrySet().removeIf(expiration -> {
+            if (expiration.getValue() < time) {
+                _entries.remove(expiration.getKey());
+                return true;
+            }
+            return false;
+        });
+        return _entries.size() != size;
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * Writes the dictionary to a temporary file and moves it to the specified one atomically so readers never see a partial dictionary.
+     */
+    public void write(Path file) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + TEMP_FILE_SUFFIX);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8); JsonGenerator generator = s_jsonFactory.createGenerator(writer)) {
+                generator.writeStartObject();
+                for (Map.Entry<String, String> entry : _entries.entrySet()) {
+                    generator.writeStringField(entry.getKey(), entry.getValue());
+                }
+                generator.writeEndObject();
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
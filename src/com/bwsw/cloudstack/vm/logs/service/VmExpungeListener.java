@@ -0,0 +1,55 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.cloud.utils.fsm.StateListener;
+import com.cloud.utils.fsm.StateMachine2;
+import com.cloud.vm.VirtualMachine;
+
+import java.util.function.Consumer;
+
+/**
+ * Notifies about user virtual machines being expunged by the management server. There is no state after {@link VirtualMachine.State#Expunging}
+ * since records of expunged virtual machines are removed so consumers should check that the record has been removed before purging.
+ */
+public class VmExpungeListener implements StateListener<VirtualMachine.State, VirtualMachine.Event, VirtualMachine> {
+
+    private final Consumer<String> _callback;
+
+    /**
+     * @param callback the consumer of UUIDs of expunged virtual machines, it should not block state transitions
+     */
+    public VmExpungeListener(Consumer<String> callback) {
+        _callback = callback;
+    }
+
+    @Override
+    public boolean preStateTransitionEvent(VirtualMachine.State oldState, VirtualMachine.Event event, VirtualMachine.State newState, VirtualMachine vo, boolean status,
+            Object opaque) {
+        return true;
+    }
+
+    @Override
+    public boolean postStateTransitionEvent(StateMachine2.Transition<VirtualMachine.State, VirtualMachine.Event> transition, VirtualMachine vo, boolean status,
+            Object opaque) {
+        if (status && transition.getToState() == VirtualMachine.State.Expunging && vo.getType() == VirtualMachine.Type.User) {
+            _callback.accept(vo.getUuid());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,194 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.ResponseEntity;
+import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
+import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.util.SearchRequestUtils;
+import com.cloud.utils.component.ComponentLifecycleBase;
+import com.cloud.utils.concurrency.NamedThreadFactory;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.CheckedFunction;
+
+import javax.naming.ConfigurationException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VmLogAsyncExecutorImpl extends ComponentLifecycleBase implements VmLogAsyncExecutor {
+
+    private static final String DEADLINE_THREAD_NAME = "VM_LOG_DEADLINE";
+
+    private final VmLogResponseParser _parser = new VmLogResponseParser();
+    private final Queue<Runnable> _pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _inFlight = new AtomicInteger();
+    private ScheduledExecutorService _deadlineExecutor;
+
+    @Override
+    public <T extends ResponseEntity> CompletableFuture<ScrollableListResponse<T>> fetch(RestHighLevelClient client, SearchRequest request, Class<T> elementClass) {
+        return submit(future -> performRequest(client, SearchRequestUtils.getRawSearchRequest(request), future, response -> _parser.parseSearch(response, elementClass)));
+    }
+
+    @Override
+    public <T extends ResponseEntity> CompletableFuture<ScrollableListResponse<T>> scroll(RestHighLevelClient client, SearchScrollRequest request, Class<T> elementClass) {
+        return submit(future -> performRequest(client, SearchRequestUtils.getRawScrollRequest(request), future, response -> _parser.parseSearch(response, elementClass)));
+    }
+
+    @Override
+    public CompletableFuture<AggregateResponse<VmLogFileResponse>> fetchLogFiles(RestHighLevelClient client, SearchRequest request) {
+        return submit(future -> client.searchAsync(request, getListener(future, _parser::parseLogFiles)));
+    }
+
+    @Override
+    public CompletableFuture<Void> index(RestHighLevelClient client, IndexRequest request) {
+        return submit(future -> client.indexAsync(request, getListener(future, response -> {
+            _parser.checkIndex(response);
+            return null;
+        })));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(RestHighLevelClient client, GetRequest request, Class<T> elementClass) {
+        return submit(future -> client.getAsync(request, getListener(future, response -> _parser.parseGet(response, elementClass))));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(RestHighLevelClient client, UpdateRequest request) {
+        return submit(future -> client.updateAsync(request, getListener(future, response -> {
+            _parser.checkUpdate(response);
+            return null;
+        })));
+    }
+
+    @Override
+    public CompletableFuture<Response> execute(RestHighLevelClient client, Request request) {
+        return submit(future -> performRequest(client, request, future, response -> response));
+    }
+
+    @Override
+    public boolean configure(String name, Map<String, Object> params) throws ConfigurationException {
+        _deadlineExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(DEADLINE_THREAD_NAME));
+        return super.configure(name, params);
+    }
+
+    @Override
+    public boolean stop() {
+        _deadlineExecutor.shutdownNow();
+        return super.stop();
+    }
+
+    int getInFlight() {
+        return _inFlight.get();
+    }
+
+    private <T> CompletableFuture<T> submit(CheckedConsumer<CompletableFuture<T>, Exception> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ScheduledFuture<?> deadlineTask = _deadlineExecutor.schedule(() -> result.completeExceptionally(new TimeoutException("Elasticsearch request deadline exceeded")),
+                VmLogManager.VmLogElasticsearchTimeout.value(), TimeUnit.SECONDS);
+        result.whenComplete((r, e) -> deadlineTask.cancel(false));
+        _pending.add(() -> {
+            if (result.isDone()) {
+                // the deadline has been exceeded while waiting
+                release();
+                return;
+            }
+            // the request keeps its slot until Elasticsearch responds even if the deadline is exceeded
+            CompletableFuture<T> callResult = new CompletableFuture<>();
+            callResult.whenComplete((r, e) -> {
+                release();
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(r);
+                }
+            });
+            try {
+                call.accept(callResult);
+            } catch (Exception e) {
+                callResult.completeExceptionally(e);
+            }
+        });
+        dispatch();
+        return result;
+    }
+
+    private void dispatch() {
+        int maxRequests = VmLogManager.VmLogElasticsearchMaxRequests.value();
+        while (!_pending.isEmpty()) {
+            int inFlight = _inFlight.get();
+            if (inFlight >= maxRequests) {
+                return;
+            }
+            if (!_inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                continue;
+            }
+            Runnable task = _pending.poll();
+            if (task == null) {
+                _inFlight.decrementAndGet();
+            } else {
+                task.run();
+            }
+        }
+    }
+
+    private void release() {
+        _inFlight.decrementAndGet();
+        dispatch();
+    }
+
+    private <T> void performRequest(RestHighLevelClient client, Request request, CompletableFuture<T> future, CheckedFunction<Response, T, Exception> parser) {
+        client.getLowLevelClient().performRequestAsync(request.getMethod(), request.getEndpoint(), request.getParameters(), request.getEntity(), new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                try {
+                    future.complete(parser.apply(response));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                future.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private <R, T> ActionListener<R> getListener(CompletableFuture<T> future, CheckedFunction<R, T, Exception> parser) {
+        return ActionListener.wrap(response -> future.complete(parser.apply(response)), future::completeExceptionally);
+    }
+}
@@ -17,20 +17,24 @@
 
 package com.bwsw.cloudstack.vm.logs.service;
 
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
 import com.bwsw.cloudstack.vm.logs.entity.ResponseEntity;
+import com.bwsw.cloudstack.vm.logs.entity.Token;
 import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
 import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramBucketResponse;
 import org.elasticsearch.action.get.GetRequest;
-import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchScrollRequest;
-import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestHighLevelClient;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableMap;
 
 public interface VmLogExecutor {
 
@@ -38,13 +42,20 @@ public interface VmLogExecutor {
 
     <T extends ResponseEntity> ScrollableListResponse<T> scroll(RestHighLevelClient client, SearchScrollRequest request, Class<T> elementClass) throws IOException;
 
-    AggregateResponse<VmLogFileResponse> fetchLogFiles(RestHighLevelClient client, SearchRequest request) throws IOException;
+    AggregateResponse<VmLogHistogramBucketResponse> fetchHistogram(RestHighLevelClient client, SearchRequest request) throws IOException;
 
-    void index(RestHighLevelClient client, IndexRequest request) throws IOException;
+    AggregateResponse<LogFile> fetchLogFileStats(RestHighLevelClient client, SearchRequest request) throws IOException;
 
-    <T> T get(RestHighLevelClient client, GetRequest request, Class<T> elementClass) throws IOException;
+    AggregateResponse<VmLogFileResponse> fetchLogFileCatalog(RestHighLevelClient client, SearchRequest request) throws IOException;
+
+    /**
+     * @return checkpoints by daily indices
+     */
+    NavigableMap<String, LocalDateTime> fetchLogFileCheckpoints(RestHighLevelClient client, SearchRequest request) throws IOException;
 
-    void update(RestHighLevelClient client, UpdateRequest request) throws IOException;
+    List<Token> fetchTokens(RestHighLevelClient client, SearchRequest request) throws IOException;
+
+    <T> T get(RestHighLevelClient client, GetRequest request, Class<T> elementClass) throws IOException;
 
     Response execute(RestHighLevelClient client, Request request) throws IOException;
 }
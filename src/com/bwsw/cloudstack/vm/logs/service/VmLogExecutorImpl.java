@@ -17,131 +17,72 @@
 
 package com.bwsw.cloudstack.vm.logs.service;
 
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
 import com.bwsw.cloudstack.vm.logs.entity.ResponseEntity;
+import com.bwsw.cloudstack.vm.logs.entity.Token;
 import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
 import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
-import com.cloud.utils.exception.CloudRuntimeException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramBucketResponse;
+import com.bwsw.cloudstack.vm.logs.util.SearchRequestUtils;
 import org.elasticsearch.action.get.GetRequest;
-import org.elasticsearch.action.get.GetResponse;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
-import org.elasticsearch.action.update.UpdateRequest;
-import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.rest.RestStatus;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.aggregations.Aggregation;
-import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
-import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
-import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
-import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregationBuilder;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NavigableMap;
 
 public class VmLogExecutorImpl implements VmLogExecutor {
 
-    private final ObjectMapper _objectMapper = new ObjectMapper();
+    private final VmLogResponseParser _parser = new VmLogResponseParser();
 
     @Override
     public <T extends ResponseEntity> ScrollableListResponse<T> fetch(RestHighLevelClient client, SearchRequest request, Class<T> elementClass) throws IOException {
-        return parseSearch(client.search(request), elementClass);
+        return _parser.parseSearch(execute(client, SearchRequestUtils.getRawSearchRequest(request)), elementClass);
     }
 
     @Override
     public <T extends ResponseEntity> ScrollableListResponse<T> scroll(RestHighLevelClient client, SearchScrollRequest request, Class<T> elementClass) throws IOException {
-        return parseSearch(client.searchScroll(request), elementClass);
+        return _parser.parseSearch(execute(client, SearchRequestUtils.getRawScrollRequest(request)), elementClass);
     }
 
-    public AggregateResponse<VmLogFileResponse> fetchLogFiles(RestHighLevelClient client, SearchRequest request) throws IOException {
-        SearchResponse response = client.search(request);
-        if (response.status() != RestStatus.OK) {
-            throw new CloudRuntimeException("Failed to retrieve VM log files");
-        }
-        if (response.getAggregations() == null) {
-            return new AggregateResponse<>(Collections.emptyList(), 0, null);
-        }
-        Aggregation valueAggregation = response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_AGGREGATION);
-        if (valueAggregation == null || !CompositeAggregationBuilder.NAME.equals(valueAggregation.getType())) {
-            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_AGGREGATION);
-        }
-
-        Aggregation countAggregation = response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION);
-        if (countAggregation == null || !CardinalityAggregationBuilder.NAME.equals(countAggregation.getType())) {
-            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION);
-        }
-
-        CompositeAggregation compositeAggregation = (CompositeAggregation)valueAggregation;
-        List<VmLogFileResponse> responses = new ArrayList<>();
-        List<? extends CompositeAggregation.Bucket> buckets = compositeAggregation.getBuckets();
-        if (buckets != null && !buckets.isEmpty()) {
-            for (CompositeAggregation.Bucket bucket : buckets) {
-                if (bucket.getKey() != null) {
-                    String file = (String)bucket.getKey().get(VmLogRequestBuilder.LOG_FILE_FIELD);
-                    if (file == null) {
-                        throw new IOException("No data for log file");
-                    }
-                    responses.add(new VmLogFileResponse(file));
-                }
-            }
-        }
-
-        return new AggregateResponse<>(responses, (int)((Cardinality)countAggregation).getValue(), compositeAggregation.afterKey());
+    @Override
+    public AggregateResponse<VmLogHistogramBucketResponse> fetchHistogram(RestHighLevelClient client, SearchRequest request) throws IOException {
+        return _parser.parseHistogram(client.search(request));
     }
 
     @Override
-    public void index(RestHighLevelClient client, IndexRequest request) throws IOException {
-        IndexResponse response = client.index(request);
-        if (response.status() != RestStatus.CREATED) {
-            throw new CloudRuntimeException("Failed to execute create operation");
-        }
+    public AggregateResponse<LogFile> fetchLogFileStats(RestHighLevelClient client, SearchRequest request) throws IOException {
+        return _parser.parseLogFileStats(client.search(request));
     }
 
     @Override
-    public <T> T get(RestHighLevelClient client, GetRequest request, Class<T> entityClass) throws IOException {
-        GetResponse response = client.get(request);
-        if (response.isExists() && !response.isSourceEmpty()) {
-            return _objectMapper.readValue(response.getSourceAsString(), entityClass);
-        }
-        return null;
+    public AggregateResponse<VmLogFileResponse> fetchLogFileCatalog(RestHighLevelClient client, SearchRequest request) throws IOException {
+        return _parser.parseLogFileCatalog(client.search(request));
     }
 
     @Override
-    public void update(RestHighLevelClient client, UpdateRequest request) throws IOException {
-        UpdateResponse response = client.update(request);
-        if (response.status() != RestStatus.OK) {
-            throw new CloudRuntimeException("Failed to execute update operation");
-        }
+    public NavigableMap<String, LocalDateTime> fetchLogFileCheckpoints(RestHighLevelClient client, SearchRequest request) throws IOException {
+        return _parser.parseLogFileCheckpoints(client.search(request));
     }
 
     @Override
-    public Response execute(RestHighLevelClient client, Request request) throws IOException {
-        return client.getLowLevelClient().performRequest(request.getMethod(), request.getEndpoint(), request.getParameters(), request.getEntity());
+    public List<Token> fetchTokens(RestHighLevelClient client, SearchRequest request) throws IOException {
+        return _parser.parseTokens(client.search(request));
     }
 
-    private <T extends ResponseEntity> List<T> parseResults(SearchResponse response, Class<T> elementClass) throws IOException {
-        List<T> results = new ArrayList<>();
-        for (SearchHit searchHit : response.getHits()) {
-            T element = _objectMapper.readValue(searchHit.getSourceAsString(), elementClass);
-            element.setId(searchHit.getId());
-            results.add(element);
-        }
-        return results;
+    @Override
+    public <T> T get(RestHighLevelClient client, GetRequest request, Class<T> entityClass) throws IOException {
+        return _parser.parseGet(client.get(request), entityClass);
     }
 
-    private <T extends ResponseEntity> ScrollableListResponse<T> parseSearch(SearchResponse response, Class<T> elementClass) throws IOException {
-        if (response.status() != RestStatus.OK || response.getHits() == null) {
-            throw new CloudRuntimeException("Failed to retrieve VM logs");
-        }
-        return new ScrollableListResponse<>((int)response.getHits().getTotalHits(), parseResults(response, elementClass), response.getScrollId());
+    @Override
+    public Response execute(RestHighLevelClient client, Request request) throws IOException {
+        return client.getLowLevelClient().performRequest(request.getMethod(), request.getEndpoint(), request.getParameters(), request.getEntity());
     }
 }
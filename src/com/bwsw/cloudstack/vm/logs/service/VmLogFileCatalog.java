@@ -0,0 +1,40 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import java.io.IOException;
+import java.util.Set;
+
+public interface VmLogFileCatalog {
+
+    /**
+     * Merges statistics of logs added to daily indices since their checkpoints into the log file catalog. Indices are skipped once their checkpoints
+     * are later than the end of their days plus {@link VmLogManager#VmLogCacheIngestLag}, entries of deleted indices are removed.
+     * <p>
+     * The catalog is updated by the leader only, other management servers check whether the catalog covers all indices.
+     *
+     * @param indices names of existing VM log indices
+     * @param leader  whether the management server is the leader
+     */
+    void refresh(Set<String> indices, boolean leader) throws IOException;
+
+    /**
+     * @return whether the catalog has been updated for all daily indices so log files can be listed from it
+     */
+    boolean isReady();
+}
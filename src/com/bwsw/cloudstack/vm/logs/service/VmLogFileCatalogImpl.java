@@ -0,0 +1,156 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
+import com.bwsw.cloudstack.vm.logs.util.DateUtils;
+import com.bwsw.cloudstack.vm.logs.util.IndexName;
+import com.cloud.utils.exception.CloudRuntimeException;
+import org.apache.log4j.Logger;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class VmLogFileCatalogImpl implements VmLogFileCatalog {
+
+    private static final Logger s_logger = Logger.getLogger(VmLogFileCatalogImpl.class);
+
+    private static final int PAGE_SIZE = 1000;
+    // logs are added to the catalog with a delay so that logs being ingested at the moment are not skipped
+    private static final long DELAY = 60;
+
+    private final RestHighLevelClient _restHighLevelClient;
+    private final VmLogExecutor _vmLogExecutor;
+    private final VmLogRequestBuilder _vmLogRequestBuilder;
+    private final BulkIndexer _bulkIndexer;
+
+    // checkpoints of daily indices in the catalog are accessed by the catalog job only
+    private Map<String, LocalDateTime> _checkpoints;
+    // checkpoints of failed index updates are reused by retries so that entries updated before the failure are not updated for a different range
+    private final Map<String, LocalDateTime> _pendingCheckpoints = new HashMap<>();
+
+    private volatile boolean _ready;
+
+    public VmLogFileCatalogImpl(RestHighLevelClient restHighLevelClient, VmLogExecutor vmLogExecutor, VmLogRequestBuilder vmLogRequestBuilder, BulkIndexer bulkIndexer) {
+        _restHighLevelClient = restHighLevelClient;
+        _vmLogExecutor = vmLogExecutor;
+        _vmLogRequestBuilder = vmLogRequestBuilder;
+        _bulkIndexer = bulkIndexer;
+    }
+
+    @Override
+    public void refresh(Set<String> indices, boolean leader) throws IOException {
+        LocalDateTime checkpoint = DateUtils.getCurrentDateTime().minusSeconds(DELAY);
+        if (!leader) {
+            // checkpoints are fetched again if the management server becomes the leader
+            _checkpoints = null;
+            _pendingCheckpoints.clear();
+            if (!_ready) {
+                Set<String> checkpointIndices = fetchCheckpoints().keySet();
+                _ready = indices.stream().filter(index -> IndexName.getVmUuid(index) != null).allMatch(checkpointIndices::contains);
+            }
+            return;
+        }
+        if (_checkpoints == null) {
+            _checkpoints = fetchCheckpoints();
+        }
+        List<String> deletedIndices = _checkpoints.keySet().stream().filter(e -> !indices.contains(e)).collect(Collectors.toList());
+        if (!deletedIndices.isEmpty()) {
+            Response response = _vmLogExecutor.execute(_restHighLevelClient, _vmLogRequestBuilder.getLogFileCatalogDeleteRequest(deletedIndices));
+            if (response.getStatusLine().getStatusCode() != RestStatus.OK.getStatus()) {
+                throw new CloudRuntimeException("Unexpected status for VM log file catalog deletion " + response.getStatusLine().getStatusCode());
+            }
+            deletedIndices.forEach(_checkpoints::remove);
+            deletedIndices.forEach(_pendingCheckpoints::remove);
+        }
+        int updated = 0;
+        for (String index : indices) {
+            LocalDate date = IndexName.getDate(index);
+            if (date == null) {
+                continue;
+            }
+            LocalDateTime completionTime = date.plusDays(1).atStartOfDay().plusSeconds(VmLogManager.VmLogCacheIngestLag.value());
+            LocalDateTime after = _checkpoints.get(index);
+            if (after == null || after.isBefore(completionTime)) {
+                LocalDateTime indexCheckpoint = _pendingCheckpoints.computeIfAbsent(index, k -> checkpoint);
+                update(IndexName.getVmUuid(index), index, after, indexCheckpoint);
+                _pendingCheckpoints.remove(index);
+                _checkpoints.put(index, indexCheckpoint);
+                updated++;
+            }
+        }
+        _ready = true;
+        s_logger.debug("VM log file catalog updated: " + updated + " indices");
+    }
+
+    @Override
+    public boolean isReady() {
+        return _ready;
+    }
+
+    /**
+     * Catalog entries of log files are updated before the checkpoint of the index so the update can be repeated after a failure,
+     * entries which have been updated already are left intact.
+     */
+    private void update(String vmUuid, String index, LocalDateTime after, LocalDateTime checkpoint) throws IOException {
+        Map<String, Object> aggregateAfter = null;
+        boolean hasMore = true;
+        while (hasMore) {
+            SearchRequest searchRequest = _vmLogRequestBuilder.getLogFileStatsRequest(index, after, checkpoint, PAGE_SIZE, aggregateAfter);
+            AggregateResponse<LogFile> response = _vmLogExecutor.fetchLogFileStats(_restHighLevelClient, searchRequest);
+            if (!response.getItems().isEmpty()) {
+                List<UpdateRequest> requests = new ArrayList<>(response.getItems().size());
+                for (LogFile logFile : response.getItems()) {
+                    requests.add(_vmLogRequestBuilder.getLogFileCatalogUpdateRequest(vmUuid, index, logFile, after, checkpoint));
+                }
+                _bulkIndexer.execute(requests);
+            }
+            aggregateAfter = response.getSearchAfter();
+            // a partial page is the last one
+            hasMore = response.getItems().size() == PAGE_SIZE && aggregateAfter != null;
+        }
+        _bulkIndexer.execute(Collections.singletonList(_vmLogRequestBuilder.getLogFileCheckpointUpdateRequest(index, checkpoint)));
+    }
+
+    private Map<String, LocalDateTime> fetchCheckpoints() throws IOException {
+        Map<String, LocalDateTime> checkpoints = new HashMap<>();
+        String after = null;
+        NavigableMap<String, LocalDateTime> page;
+        do {
+            page = _vmLogExecutor.fetchLogFileCheckpoints(_restHighLevelClient, _vmLogRequestBuilder.getLogFileCheckpointSearchRequest(PAGE_SIZE, after));
+            checkpoints.putAll(page);
+            after = page.isEmpty() ? null : page.lastKey();
+        } while (page.size() == PAGE_SIZE);
+        return checkpoints;
+    }
+}
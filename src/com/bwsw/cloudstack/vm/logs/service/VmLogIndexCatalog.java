@@ -0,0 +1,41 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface VmLogIndexCatalog {
+
+    /**
+     * Replaces the catalog content.
+     *
+     * @param indices    names of existing VM log indices
+     * @param updateTime the date/time in UTC the names have been retrieved at
+     */
+    void update(Collection<String> indices, LocalDateTime updateTime);
+
+    /**
+     * Returns dates of daily indices of the virtual machine that may contain logs for the specified date range.
+     *
+     * @return sorted dates, an empty list if there are no logs in the range or null if the catalog has not been loaded yet
+     */
+    List<LocalDate> getDates(String vmUuid, LocalDateTime start, LocalDateTime end);
+}
@@ -0,0 +1,106 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.util.DateUtils;
+import com.bwsw.cloudstack.vm.logs.util.IndexName;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+public class VmLogIndexCatalogImpl implements VmLogIndexCatalog {
+
+    private static class Snapshot {
+
+        private final Map<String, NavigableSet<LocalDate>> dates;
+        // days before this one are not expected to get new logs so absent indices for them will not be created
+        private final LocalDate completeBefore;
+
+        Snapshot(Map<String, NavigableSet<LocalDate>> dates, LocalDate completeBefore) {
+            this.dates = dates;
+            this.completeBefore = completeBefore;
+        }
+    }
+
+    private volatile Snapshot _snapshot;
+
+    @Override
+    public void update(Collection<String> indices, LocalDateTime updateTime) {
+        Map<String, NavigableSet<LocalDate>> dates = new HashMap<>();
+        for (String index : indices) {
+            LocalDate date = IndexName.getDate(index);
+            // not a daily VM log index
+            if (date == null) {
+                continue;
+            }
+            dates.computeIfAbsent(IndexName.getVmUuid(index), k -> new TreeSet<>()).add(date);
+        }
+        _snapshot = new Snapshot(dates, updateTime.minusSeconds(VmLogManager.VmLogCacheIngestLag.value()).toLocalDate());
+    }
+
+    @Override
+    public List<LocalDate> getDates(String vmUuid, LocalDateTime start, LocalDateTime end) {
+        Snapshot snapshot = _snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        NavigableSet<LocalDate> existing = snapshot.dates.getOrDefault(vmUuid, Collections.emptyNavigableSet());
+        LocalDate from;
+        if (start != null) {
+            from = start.toLocalDate();
+        } else {
+            from = existing.isEmpty() || snapshot.completeBefore.isBefore(existing.first()) ? snapshot.completeBefore : existing.first();
+        }
+        // indices for days after the current one are not expected so the requested end is limited to keep the list short
+        LocalDate to = DateUtils.getCurrentDateTime().toLocalDate();
+        if (!existing.isEmpty() && existing.last().isAfter(to)) {
+            to = existing.last();
+        }
+        if (end != null) {
+            // the end is exclusive
+            LocalDate endDate = end.minusNanos(1).toLocalDate();
+            if (endDate.isBefore(to)) {
+                to = endDate;
+            }
+        }
+        List<LocalDate> dates = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return dates;
+        }
+        for (LocalDate date : existing.subSet(from, true, to, true)) {
+            if (date.isBefore(snapshot.completeBefore)) {
+                dates.add(date);
+            }
+        }
+        // indices for recent days may be created after the catalog update
+        LocalDate date = from.isBefore(snapshot.completeBefore) ? snapshot.completeBefore : from;
+        while (!date.isAfter(to)) {
+            dates.add(date);
+            date = date.plusDays(1);
+        }
+        return dates;
+    }
+}
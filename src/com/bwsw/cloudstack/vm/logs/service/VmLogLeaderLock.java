@@ -0,0 +1,114 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.cloud.utils.db.TransactionLegacy;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Holds a database named lock on a dedicated connection. The database releases the lock once the connection is lost (e.g. on a database restart)
+ * so the holder has to check that it still owns the lock.
+ */
+class VmLogLeaderLock {
+
+    private static final Logger s_logger = Logger.getLogger(VmLogLeaderLock.class);
+
+    private static final String LOCK_QUERY = "SELECT GET_LOCK(?, 0)";
+    private static final String CHECK_QUERY = "SELECT IS_USED_LOCK(?) = CONNECTION_ID()";
+    private static final String UNLOCK_QUERY = "SELECT RELEASE_LOCK(?)";
+
+    private final String _name;
+
+    // the lock is accessed by the scheduler thread only
+    private Connection _connection;
+
+    VmLogLeaderLock(String name) {
+        _name = name;
+    }
+
+    boolean lock() throws SQLException {
+        if (_connection != null) {
+            return isHeld();
+        }
+        Connection connection = TransactionLegacy.getStandaloneConnection();
+        if (connection == null) {
+            throw new SQLException("Unable to get a database connection for the lock " + _name);
+        }
+        boolean locked = false;
+        try {
+            locked = query(connection, LOCK_QUERY);
+        } finally {
+            if (locked) {
+                _connection = connection;
+            } else {
+                close(connection);
+            }
+        }
+        return locked;
+    }
+
+    boolean isHeld() {
+        if (_connection == null) {
+            return false;
+        }
+        try {
+            return query(_connection, CHECK_QUERY);
+        } catch (SQLException e) {
+            s_logger.warn("Unable to check the lock " + _name, e);
+            return false;
+        }
+    }
+
+    void unlock() {
+        if (_connection == null) {
+            return;
+        }
+        try {
+            query(_connection, UNLOCK_QUERY);
+        } catch (SQLException e) {
+            // the lock is released along with the connection anyway
+            s_logger.warn("Unable to release the lock " + _name, e);
+        } finally {
+            close(_connection);
+            _connection = null;
+        }
+    }
+
+    private boolean query(Connection connection, String query) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, _name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                // null results are read as 0
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            s_logger.debug("Unable to close the connection of the lock " + _name, e);
+        }
+    }
+}
@@ -17,8 +17,12 @@
 
 package com.bwsw.cloudstack.vm.logs.service;
 
+import com.bwsw.cloudstack.vm.logs.cache.CacheStats;
 import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.TokenResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogExportResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogResponse;
 import com.cloud.utils.component.PluggableService;
 import org.apache.cloudstack.api.response.ListResponse;
@@ -30,6 +34,11 @@ import java.util.Map;
 
 public interface VmLogManager extends PluggableService {
 
+    int MAX_HISTOGRAM_BUCKETS = 100;
+    int MAX_SEARCH_VMS = 50;
+    // tail requests hold API worker threads while waiting
+    int MAX_TAIL_TIMEOUT = 60;
+
     ConfigKey<String> VmLogElasticsearchList = new ConfigKey<>("Advanced", String.class, "vm.log.elasticsearch.list", null,
             "Comma separated list of ElasticSearch HTTP hosts; e.g. http://localhost,http://localhost:9201", false);
 
@@ -39,20 +48,195 @@ public interface VmLogManager extends PluggableService {
     ConfigKey<String> VmLogElasticsearchPassword = new ConfigKey<>("Advanced", String.class, "vm.log.elasticsearch.password", null, "Elasticsearch password for authentication",
             false);
 
+    ConfigKey<Integer> VmLogElasticsearchTimeout = new ConfigKey<>("Advanced", Integer.class, "vm.log.elasticsearch.timeout", "30",
+            "Timeout in seconds for asynchronous Elasticsearch requests", true);
+
+    ConfigKey<Integer> VmLogElasticsearchMaxRequests = new ConfigKey<>("Advanced", Integer.class, "vm.log.elasticsearch.max.requests", "100",
+            "Maximum number of asynchronous Elasticsearch requests in flight per management server", true);
+
     ConfigKey<Integer> VmLogDefaultPageSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.page.size.default", "100", "Default page size for VM log listing", true);
 
-    ConfigKey<Integer> VmLogUsageTimeout = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.timeout", "3600", "Timeout in seconds to send VM log statistics", false);
+    ConfigKey<String> VmLogCursorSecret = new ConfigKey<>("Secure", String.class, "vm.log.cursor.secret", null,
+            "Secret key to sign VM log cursors; should be the same for all management servers", false);
+
+    ConfigKey<Integer> VmLogCacheSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.cache.size", "64",
+            "Maximum size in MB of VM log search results cached by the management server; 0 disables the cache", false);
+
+    ConfigKey<Integer> VmLogCacheVmSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.cache.vm.size", "8", "Maximum size in MB of cached VM log search results per VM",
+            false);
+
+    ConfigKey<Integer> VmLogCacheTtl = new ConfigKey<>("Advanced", Integer.class, "vm.log.cache.ttl", "3600", "Time to live in seconds of cached VM log search results", false);
+
+    ConfigKey<Integer> VmLogCacheIngestLag = new ConfigKey<>("Advanced", Integer.class, "vm.log.cache.ingest.lag", "3600",
+            "Time in seconds after which VM logs are not expected to be ingested; only searches with end dates older than that are cached", true);
+
+    ConfigKey<Integer> VmLogIndexCatalogInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.index.catalog.interval", "300",
+            "Interval in seconds to refresh the list of existing VM log indices", false);
+
+    ConfigKey<String> VmLogExportPath = new ConfigKey<>("Advanced", String.class, "vm.log.export.path", null,
+            "Directory to write VM log exports to, e.g. a mounted secondary storage path; empty disables VM log export", true);
+
+    ConfigKey<String> VmLogExportUrl = new ConfigKey<>("Advanced", String.class, "vm.log.export.url", null, "Base URL to download VM log exports from", true);
+
+    ConfigKey<Integer> VmLogExportBatchSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.export.batch.size", "5000",
+            "Number of VM log entries requested from Elasticsearch at once during export", true);
+
+    ConfigKey<String> VmLogFileCount = new ConfigKey<>("Advanced", String.class, "vm.log.file.count", "precise",
+            "Method to count VM log files in listVmLogFiles responses: precise, approximate or none", true);
+
+    ConfigKey<Integer> VmLogFileCountTtl = new ConfigKey<>("Advanced", Integer.class, "vm.log.file.count.ttl", "300",
+            "Time in seconds to reuse the number of VM log files for listVmLogFiles requests with the same date range", true);
+
+    ConfigKey<Integer> VmLogFileCatalogInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.file.catalog.interval", "0",
+            "Interval in seconds to update the catalog of VM log files; 0 disables the catalog", false);
+
+    ConfigKey<String> VmLogTokenDictionaryPath = new ConfigKey<>("Advanced", String.class, "vm.log.token.dictionary.path", null,
+            "File to write VM log tokens to for the Logstash translate filter, e.g. on a storage mounted by Logstash hosts; empty disables the dictionary", false);
+
+    ConfigKey<Integer> VmLogTokenDictionaryInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.token.dictionary.interval", "60",
+            "Interval in seconds to update the VM log token dictionary", true);
+
+    ConfigKey<Integer> VmLogBulkSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.bulk.size", "1000",
+            "Maximum number of requests in an Elasticsearch bulk request for VM log tokens and catalogs", false);
+
+    ConfigKey<Integer> VmLogBulkConcurrency = new ConfigKey<>("Advanced", Integer.class, "vm.log.bulk.concurrency", "2",
+            "Maximum number of Elasticsearch bulk requests for VM log tokens and catalogs in flight", false);
+
+    ConfigKey<Integer> VmLogBulkQueueSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.bulk.queue.size", "10000",
+            "Maximum number of requests for VM log tokens and catalogs waiting to be executed", false);
+
+    ConfigKey<Integer> VmLogBulkRetries = new ConfigKey<>("Advanced", Integer.class, "vm.log.bulk.retries", "3",
+            "Maximum number of retries of bulk items rejected by Elasticsearch because of overload", false);
+
+    ConfigKey<Integer> VmLogBulkRetryBackoff = new ConfigKey<>("Advanced", Integer.class, "vm.log.bulk.retry.backoff", "100",
+            "Initial delay in ms to retry bulk items rejected by Elasticsearch, the delay grows exponentially", false);
+
+    ConfigKey<Integer> VmLogIngestPort = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.port", "0",
+            "Port to receive VM logs from Beats clients on, e.g. 5044; 0 disables the ingest endpoint", false);
+
+    ConfigKey<Integer> VmLogIngestMaxConnections = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.max.connections", "100",
+            "Maximum number of Beats connections handled at the same time", false);
+
+    ConfigKey<Integer> VmLogIngestTimeout = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.timeout", "60",
+            "Timeout in seconds to wait for data from Beats clients", false);
+
+    ConfigKey<Integer> VmLogIngestWindowSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.window.size", "2048",
+            "Maximum number of VM logs of a Beats connection handled at once; larger windows are acknowledged in parts", false);
+
+    ConfigKey<Integer> VmLogIngestWindowLength = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.window.length", "10485760",
+            "Maximum total length in bytes of VM logs of a Beats connection handled at once; larger windows are acknowledged in parts", false);
+
+    ConfigKey<Integer> VmLogIngestBulkSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.bulk.size", "5000",
+            "Maximum number of VM logs in an Elasticsearch bulk request", false);
+
+    ConfigKey<Integer> VmLogIngestBulkInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.bulk.interval", "1000",
+            "Maximum time in ms to collect VM logs for an Elasticsearch bulk request", false);
+
+    ConfigKey<Integer> VmLogIngestBulkConcurrency = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.bulk.concurrency", "4",
+            "Maximum number of Elasticsearch bulk requests with VM logs in flight", false);
+
+    ConfigKey<Integer> VmLogIngestQueueSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.queue.size", "50000",
+            "Maximum number of VM logs waiting to be indexed", false);
+
+    ConfigKey<String> VmLogIngestQueuePolicy = new ConfigKey<>("Advanced", String.class, "vm.log.ingest.queue.policy", "block",
+            "Policy for VM logs received while the queue is full: block slows Beats clients down, drop closes their connections so that logs are resent later", false);
+
+    ConfigKey<Integer> VmLogIngestTokenCacheTtl = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.token.cache.ttl", "60",
+            "Time in seconds to cache VM log tokens for the ingest endpoint", false);
+
+    ConfigKey<Integer> VmLogIngestTokenCacheNegativeTtl = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.token.cache.negative.ttl", "5",
+            "Time in seconds to cache unknown VM log tokens for the ingest endpoint", false);
+
+    ConfigKey<Integer> VmLogIngestTokenCacheSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.ingest.token.cache.size", "100000",
+            "Maximum number of VM log tokens cached for the ingest endpoint; least recently used ones are evicted", false);
+
+    ConfigKey<Integer> VmLogTailTimeout = new ConfigKey<>("Advanced", Integer.class, "vm.log.tail.timeout", "10",
+            "Maximum time in seconds to wait for new VM logs in tail requests; each waiting request holds an API worker thread, values above 60 are ignored", true);
+
+    ConfigKey<Integer> VmLogTailInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.tail.interval", "1000",
+            "Interval in ms to check for new VM logs in tail requests", true);
+
+    ConfigKey<Integer> VmLogUsageTimeout = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.timeout", "3600", "Timeout in seconds to send VM log statistics", true);
+
+    ConfigKey<Integer> VmLogUsageDeadline = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.deadline", "600",
+            "Maximum time in seconds to collect and send VM log statistics; 0 means no deadline", true);
+
+    ConfigKey<Integer> VmLogUsageSnapshotInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.snapshot.interval", "86400",
+            "Interval in seconds to send VM log statistics for all VMs; statistics of changed VMs are sent in between, 0 disables partial statistics", false);
+
+    ConfigKey<Double> VmLogUsageDeltaThreshold = new ConfigKey<>("Advanced", Double.class, "vm.log.usage.delta.threshold", "1",
+            "Minimum change in MB of the VM log size since the last sent statistics to send partial statistics for the VM", true);
+
+    ConfigKey<Integer> VmLogUsageBatchSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.batch.size", "1000",
+            "Maximum number of VMs in a VM log statistics event; 0 means unlimited", true);
+
+    ConfigKey<Integer> VmLogUsageBatchLength = new ConfigKey<>("Advanced", Integer.class, "vm.log.usage.batch.length", "65536",
+            "Maximum length in bytes of VM log statistics in an event; 0 means unlimited", true);
+
+    ConfigKey<Integer> VmLogPurgeInterval = new ConfigKey<>("Advanced", Integer.class, "vm.log.purge.interval", "0",
+            "Interval in seconds to invalidate tokens and delete logs of expunged VMs; 0 disables the purge", false);
+
+    ConfigKey<Integer> VmLogPurgeBatchSize = new ConfigKey<>("Advanced", Integer.class, "vm.log.purge.batch.size", "50",
+            "Maximum number of expunged VMs purged by a single request", true);
 
     ScrollableListResponse<VmLogResponse> listVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sortFields, Integer page,
-            Integer pageSize, Integer scroll);
+            Integer pageSize, Integer scroll, List<Object> searchAfter);
+
+    /**
+     * Searches logs of several virtual machines at once. Logs are sorted by the timestamp unless sort fields are specified.
+     */
+    ScrollableListResponse<VmLogResponse> listVmLogs(List<Long> ids, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sortFields,
+            Integer page, Integer pageSize, Integer scroll, List<Object> searchAfter);
 
     ScrollableListResponse<VmLogResponse> scrollVmLogs(String scrollId, Integer timeout);
 
-    ListResponse<VmLogFileResponse> listVmLogFiles(Long id, LocalDateTime start, LocalDateTime end, Long startIndex, Long pageSize);
+    ScrollableListResponse<VmLogResponse> streamVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sortFields,
+            Integer pageSize);
+
+    ScrollableListResponse<VmLogResponse> streamVmLogs(String cursor);
+
+    /**
+     * Waits up to the timeout for logs following the cursor position.
+     *
+     * @param cursor the timestamp and id of the last retrieved log; logs registered after the request are retrieved if null
+     */
+    ScrollableListResponse<VmLogResponse> tailVmLogs(Long id, List<String> keywords, String logFile, Integer pageSize, List<Object> cursor, Integer timeout);
+
+    VmLogExportResponse exportVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile);
+
+    /**
+     * Counts logs per time bucket. The bucket size is chosen from the date range so that there are at most
+     * {@link #MAX_HISTOGRAM_BUCKETS} buckets.
+     */
+    VmLogHistogramResponse getVmLogHistogram(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile);
+
+    /**
+     * @param after the log file to list log files after; the start index is ignored if specified
+     */
+    ListResponse<VmLogFileResponse> listVmLogFiles(Long id, LocalDateTime start, LocalDateTime end, Long startIndex, Long pageSize, String after);
 
     String createToken(Long id);
 
+    /**
+     * Creates tokens for virtual machines with specified ids or for all user virtual machines of the account or the project.
+     *
+     * @return results for virtual machines, failures do not prevent tokens of other virtual machines from being created
+     */
+    ListResponse<TokenResponse> createTokens(List<Long> ids, String accountName, Long domainId, Long projectId);
+
     boolean invalidateToken(String token);
 
     Map<String, Double> getVmLogStats();
+
+    CacheStats getCacheStats();
+
+    /**
+     * Returns statistics of background jobs of the management server.
+     */
+    List<JobStats> getJobStats();
+
+    /**
+     * Returns statistics of bulk indexers of the management server.
+     */
+    List<BulkStats> getBulkStats();
 }
@@ -18,27 +18,55 @@
 package com.bwsw.cloudstack.vm.logs.service;
 
 import com.bwsw.cloudstack.vm.logs.api.CreateVmLogTokenCmd;
+import com.bwsw.cloudstack.vm.logs.api.CreateVmLogTokensCmd;
+import com.bwsw.cloudstack.vm.logs.api.ExportVmLogsCmd;
+import com.bwsw.cloudstack.vm.logs.api.GetVmLogBulkStatsCmd;
+import com.bwsw.cloudstack.vm.logs.api.GetVmLogCacheStatsCmd;
+import com.bwsw.cloudstack.vm.logs.api.GetVmLogHistogramCmd;
+import com.bwsw.cloudstack.vm.logs.api.GetVmLogJobStatsCmd;
 import com.bwsw.cloudstack.vm.logs.api.GetVmLogsCmd;
 import com.bwsw.cloudstack.vm.logs.api.InvalidateVmLogTokenCmd;
 import com.bwsw.cloudstack.vm.logs.api.ListVmLogFilesCmd;
 import com.bwsw.cloudstack.vm.logs.api.ScrollVmLogsCmd;
+import com.bwsw.cloudstack.vm.logs.api.StreamVmLogsCmd;
+import com.bwsw.cloudstack.vm.logs.api.TailVmLogsCmd;
+import com.bwsw.cloudstack.vm.logs.cache.CacheKey;
+import com.bwsw.cloudstack.vm.logs.cache.CacheStats;
+import com.bwsw.cloudstack.vm.logs.cache.SingleFlight;
+import com.bwsw.cloudstack.vm.logs.cache.VmLogCache;
+import com.bwsw.cloudstack.vm.logs.cache.VmLogCacheImpl;
+import com.bwsw.cloudstack.vm.logs.entity.Cursor;
 import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.entity.LogFileCount;
 import com.bwsw.cloudstack.vm.logs.entity.SortField;
 import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.bwsw.cloudstack.vm.logs.ingest.BeatsServer;
+import com.bwsw.cloudstack.vm.logs.ingest.TokenCache;
+import com.bwsw.cloudstack.vm.logs.ingest.VmLogIngestHandler;
 import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
 import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.TokenResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogExportResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramBucketResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogResponse;
+import com.bwsw.cloudstack.vm.logs.security.CursorSigner;
 import com.bwsw.cloudstack.vm.logs.security.TokenGenerator;
 import com.bwsw.cloudstack.vm.logs.util.DateUtils;
 import com.bwsw.cloudstack.vm.logs.util.HttpUtils;
+import com.bwsw.cloudstack.vm.logs.util.IndexName;
 import com.cloud.exception.InvalidParameterValueException;
 import com.cloud.user.AccountManager;
 import com.cloud.utils.component.ComponentLifecycleBase;
 import com.cloud.utils.exception.CloudRuntimeException;
 import com.cloud.vm.VMInstanceVO;
+import com.cloud.vm.VirtualMachine;
 import com.cloud.vm.dao.VMInstanceDao;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import org.apache.cloudstack.acl.SecurityChecker;
@@ -48,6 +76,7 @@ import org.apache.cloudstack.api.response.ListResponse;
 import org.apache.cloudstack.context.CallContext;
 import org.apache.cloudstack.framework.config.ConfigKey;
 import org.apache.cloudstack.framework.config.Configurable;
+import org.apache.cloudstack.framework.jobs.AsyncJobExecutionContext;
 import org.apache.http.HttpHost;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -55,6 +84,8 @@ import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.util.EntityUtils;
 import org.apache.log4j.Logger;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
@@ -65,20 +96,45 @@ import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.rest.RestStatus;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Collectors;
 
 public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogManager, Configurable {
@@ -87,7 +143,102 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
     private static final Map<String, String> s_logFields = ImmutableMap
             .of(EntityConstants.TIMESTAMP, VmLogRequestBuilder.DATE_FIELD, EntityConstants.FILE, VmLogRequestBuilder.LOG_FILE_SORT_FIELD, EntityConstants.LOG,
                     VmLogRequestBuilder.DATA_SORT_FIELD);
-    private static final Pattern s_indexPattern = Pattern.compile("vmlog-(.+)-[0-9]{4}-[0-9]{2}-[0-9]{2}");
+    private static final String STATS_INDICES_FIELD = "indices";
+    private static final String[] STATS_STORE_SIZE_PATH = new String[] {"total", "store", "size_in_bytes"};
+    private static final String LOGS_CACHE_TYPE = "logs";
+    private static final String LOG_FILES_CACHE_TYPE = "logfiles";
+    private static final String LOG_FILE_CURSORS_CACHE_TYPE = "logfilecursors";
+    private static final String LOG_FILE_COUNT_CACHE_TYPE = "logfilecount";
+    // approximate size of an object header and references in bytes
+    private static final int OBJECT_SIZE = 64;
+    private static final long MB = 1024 * 1024;
+    private static final List<SortField> TIMESTAMP_SORTING = Collections.singletonList(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+    private static final DateTimeFormatter EXPORT_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String EXPORT_FILE_SUFFIX = ".ndjson.gz";
+    private static final String EXPORT_TEMP_FILE_SUFFIX = ".tmp";
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final String INDEX_CATALOG_JOB_NAME = "VM_LOG_INDEX_CATALOG";
+    private static final String FILE_CATALOG_JOB_NAME = "VM_LOG_FILE_CATALOG";
+    private static final String TOKEN_DICTIONARY_JOB_NAME = "VM_LOG_TOKEN_DICTIONARY";
+    private static final String PURGE_JOB_NAME = "VM_LOG_PURGE";
+    private static final String BULK_INDEXER_NAME = "VM_LOG_BULK";
+    private static final String INGEST_BULK_INDEXER_NAME = "VM_LOG_INGEST_BULK";
+    // bucket sizes in seconds
+    private static final long[] HISTOGRAM_INTERVALS = new long[] {1, 5, 10, 30, 60, 5 * 60, 10 * 60, 30 * 60, 3600, 3 * 3600, 6 * 3600, 12 * 3600, 86400, 7 * 86400, 30 * 86400};
+    private static final int DEFAULT_HISTOGRAM_DAYS = 30;
+    private static final int TOKEN_DICTIONARY_PAGE_SIZE = 1000;
+    // tokens are searched again for the delay since they may have not been searchable during the previous update
+    private static final long TOKEN_DICTIONARY_DELAY = 60;
+    // Elasticsearch index.max_result_window default
+    private static final long MAX_RESULT_WINDOW = 10000;
+
+    private static class LogFileQuery {
+
+        private final String vmUuid;
+        private final List<LocalDate> dates;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final long pageSize;
+        private final boolean cacheable;
+        private final LogFileCount count;
+
+        LogFileQuery(String vmUuid, List<LocalDate> dates, LocalDateTime start, LocalDateTime end, long pageSize, boolean cacheable, LogFileCount count) {
+            this.vmUuid = vmUuid;
+            this.dates = dates;
+            this.start = start;
+            this.end = end;
+            this.pageSize = pageSize;
+            this.cacheable = cacheable;
+            this.count = count;
+        }
+
+        String getVmUuid() {
+            return vmUuid;
+        }
+
+        List<LocalDate> getDates() {
+            return dates;
+        }
+
+        LocalDateTime getStart() {
+            return start;
+        }
+
+        LocalDateTime getEnd() {
+            return end;
+        }
+
+        long getPageSize() {
+            return pageSize;
+        }
+
+        boolean isCacheable() {
+            return cacheable;
+        }
+
+        LogFileCount getCount() {
+            return count;
+        }
+    }
+
+    static class LogFileCountEntry {
+
+        private final int count;
+        private final long createdAt;
+
+        LogFileCountEntry(int count, long createdAt) {
+            this.count = count;
+            this.createdAt = createdAt;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        long getCreatedAt() {
+            return createdAt;
+        }
+    }
 
     @Inject
     private VMInstanceDao _vmInstanceDao;
@@ -98,14 +249,57 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
     @Inject
     private VmLogExecutor _vmLogExecutor;
 
+    @Inject
+    private VmLogAsyncExecutor _vmLogAsyncExecutor;
+
+    @Inject
+    private VmLogScheduler _vmLogScheduler;
+
     @Inject
     private TokenGenerator _tokenGenerator;
 
+    @Inject
+    private CursorSigner _cursorSigner;
+
     @Inject
     private AccountManager _accountManager;
 
+    @Inject
+    private VmLogIndexCatalog _vmLogIndexCatalog;
+
     private RestHighLevelClient _restHighLevelClient;
 
+    private VmLogCache _vmLogCache;
+
+    // writes of tokens and catalogs are batched into bulk requests
+    private BulkIndexer _bulkIndexer;
+
+    // identical concurrent searches share a single request to Elasticsearch
+    private SingleFlight<SearchRequest, ScrollableListResponse<VmLogResponse>> _searchFlight = new SingleFlight<>();
+
+    // log files are listed from the catalog once it has been updated for all indices
+    private VmLogFileCatalog _vmLogFileCatalog;
+
+    // the token dictionary is accessed by the dictionary job only
+    private final TokenDictionary _tokenDictionary = new TokenDictionary();
+    // expunging virtual machines are purged once their records are removed, tokens and logs are purged independently
+    private final Queue<String> _expungingVms = new ConcurrentLinkedQueue<>();
+    private final Queue<String> _tokenPurgeQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<String> _logPurgeQueue = new ConcurrentLinkedQueue<>();
+    private final VmExpungeListener _vmExpungeListener = new VmExpungeListener(this::addExpungedVm);
+
+    private LocalDateTime _tokenDictionaryCheckpoint;
+
+    // the dictionary is written on the first update and after changes
+    private boolean _tokenDictionaryChanged = true;
+
+    // the ingest endpoint is created on start if a port is configured
+    private TokenCache _ingestTokenCache;
+
+    private BulkIndexer _ingestBulkIndexer;
+
+    private BeatsServer _beatsServer;
+
     private ObjectMapper _objectMapper = new ObjectMapper();
 
     @Override
@@ -113,59 +307,99 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         List<Class<?>> commands = new ArrayList<>();
         commands.add(GetVmLogsCmd.class);
         commands.add(ScrollVmLogsCmd.class);
+        commands.add(StreamVmLogsCmd.class);
         commands.add(ListVmLogFilesCmd.class);
+        commands.add(GetVmLogHistogramCmd.class);
+        commands.add(ExportVmLogsCmd.class);
+        commands.add(TailVmLogsCmd.class);
         commands.add(CreateVmLogTokenCmd.class);
+        commands.add(CreateVmLogTokensCmd.class);
         commands.add(InvalidateVmLogTokenCmd.class);
+        commands.add(GetVmLogCacheStatsCmd.class);
+        commands.add(GetVmLogJobStatsCmd.class);
+        commands.add(GetVmLogBulkStatsCmd.class);
         return commands;
     }
 
     @Override
     public ScrollableListResponse<VmLogResponse> listVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sortFields,
-            Integer page, Integer pageSize, Integer scroll) {
-        if (pageSize == null) {
-            pageSize = VmLogDefaultPageSize.value();
+            Integer page, Integer pageSize, Integer scroll, List<Object> searchAfter) {
+        pageSize = getPageSize(pageSize);
+        page = getPage(page);
+        checkDates(start, end);
+        checkScroll(scroll);
+        List<SortField> sorting = getSortFields(sortFields);
+        if (scroll == null && searchAfter != null) {
+            checkSearchAfter(searchAfter, sorting);
         }
-        if (pageSize == null || pageSize < 1) {
-            throw new InvalidParameterValueException("Invalid page size");
+
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
         }
-        if (page == null) {
-            page = 1;
-        } else if (page < 1) {
-            throw new InvalidParameterValueException("Invalid page");
+        List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmInstanceVO.getUuid(), start, end);
+        if (dates != null && dates.isEmpty()) {
+            return new ScrollableListResponse<>(0, Collections.emptyList(), null);
         }
-        if (start != null && end != null && end.isBefore(start)) {
-            throw new InvalidParameterValueException("Invalid start/end dates");
+        SearchRequest searchRequest = _vmLogRequestBuilder
+                .getLogSearchRequest(vmInstanceVO.getUuid(), dates, page, pageSize, scroll, start, end, keywords, logFile, sorting, searchAfter);
+        CacheKey cacheKey = null;
+        if (scroll == null && isCacheable(end)) {
+            cacheKey = new CacheKey(vmInstanceVO.getUuid(), LOGS_CACHE_TYPE, start, end, normalize(keywords), logFile, sorting, searchAfter != null ? null : page, pageSize,
+                    searchAfter);
         }
-        if (scroll != null && scroll < 0) {
-            throw new InvalidParameterValueException("Invalid scroll");
+        try {
+            return getPageResponse(fetchLogs(searchRequest, cacheKey), page, scroll, searchAfter);
+        } catch (Exception e) {
+            s_logger.error("Unable to retrieve VM logs", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM logs");
         }
-        List<SortField> sorting = null;
-        if (sortFields != null && !sortFields.isEmpty()) {
-            sorting = sortFields.stream().map(s -> {
-                SortField.SortOrder order = SortField.SortOrder.ASC;
-                if (s != null && s.startsWith(SortField.SortOrder.DESC.getPrefix())) {
-                    s = s.substring(SortField.SortOrder.DESC.getPrefix().length());
-                    order = SortField.SortOrder.DESC;
-                }
-                String field = s_logFields.get(s);
-                if (field == null) {
-                    throw new InvalidParameterValueException("Invalid sort field");
-                }
-                return new SortField(field, order);
-            }).distinct().collect(Collectors.toList());
-            Map<String, List<SortField>> sortByFields = sorting.stream().collect(Collectors.groupingBy(SortField::getField));
-            if (!sortByFields.entrySet().stream().allMatch(kv -> kv.getValue().size() == 1)) {
-                throw new InvalidParameterValueException("Invalid sort");
-            }
+    }
+
+    @Override
+    public ScrollableListResponse<VmLogResponse> listVmLogs(List<Long> ids, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile,
+            List<String> sortFields, Integer page, Integer pageSize, Integer scroll, List<Object> searchAfter) {
+        if (ids == null || ids.isEmpty()) {
+            throw new InvalidParameterValueException("Invalid virtual machine ids");
+        }
+        if (ids.size() > MAX_SEARCH_VMS) {
+            throw new InvalidParameterValueException("Logs of at most " + MAX_SEARCH_VMS + " virtual machines can be searched at once");
+        }
+        pageSize = getPageSize(pageSize);
+        page = getPage(page);
+        checkDates(start, end);
+        checkScroll(scroll);
+        List<SortField> sorting = getSortFields(sortFields);
+        if (sorting == null) {
+            // logs of different virtual machines are merged by time
+            sorting = TIMESTAMP_SORTING;
+        }
+        if (scroll == null && searchAfter != null) {
+            checkSearchAfter(searchAfter, sorting);
         }
 
-        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
-        if (vmInstanceVO == null) {
-            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+        Map<String, List<LocalDate>> vmDates = new TreeMap<>();
+        for (Long id : ids) {
+            VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+            if (vmInstanceVO == null) {
+                throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+            }
+            List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmInstanceVO.getUuid(), start, end);
+            if (dates == null || !dates.isEmpty()) {
+                vmDates.put(vmInstanceVO.getUuid(), dates);
+            }
+        }
+        if (vmDates.isEmpty()) {
+            return new ScrollableListResponse<>(0, Collections.emptyList(), null);
+        }
+        SearchRequest searchRequest = _vmLogRequestBuilder.getLogSearchRequest(vmDates, page, pageSize, scroll, start, end, keywords, logFile, sorting, searchAfter);
+        CacheKey cacheKey = null;
+        if (scroll == null && isCacheable(end)) {
+            cacheKey = new CacheKey(String.join(",", vmDates.keySet()), LOGS_CACHE_TYPE, start, end, normalize(keywords), logFile, sorting,
+                    searchAfter != null ? null : page, pageSize, searchAfter);
         }
-        SearchRequest searchRequest = _vmLogRequestBuilder.getLogSearchRequest(vmInstanceVO.getUuid(), page, pageSize, scroll, start, end, keywords, logFile, sorting);
         try {
-            return _vmLogExecutor.fetch(_restHighLevelClient, searchRequest, VmLogResponse.class);
+            return getPageResponse(fetchLogs(searchRequest, cacheKey), page, scroll, searchAfter);
         } catch (Exception e) {
             s_logger.error("Unable to retrieve VM logs", e);
             throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM logs");
@@ -190,7 +424,187 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
     }
 
     @Override
-    public ListResponse<VmLogFileResponse> listVmLogFiles(Long id, LocalDateTime start, LocalDateTime end, Long startIndex, Long pageSize) {
+    public ScrollableListResponse<VmLogResponse> streamVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, List<String> sortFields,
+            Integer pageSize) {
+        pageSize = getPageSize(pageSize);
+        checkDates(start, end);
+        List<SortField> sorting = getSortFields(sortFields);
+
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+        }
+        return stream(new Cursor(vmInstanceVO.getUuid(), start, end, keywords, logFile, sortFields, pageSize, null), sorting);
+    }
+
+    @Override
+    public ScrollableListResponse<VmLogResponse> streamVmLogs(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            throw new InvalidParameterValueException("Invalid cursor");
+        }
+        String payload = _cursorSigner.verify(cursor);
+        if (payload == null) {
+            throw new InvalidParameterValueException("Invalid cursor");
+        }
+        Cursor cursorEntity;
+        try {
+            cursorEntity = _objectMapper.readValue(payload, Cursor.class);
+        } catch (IOException e) {
+            throw new InvalidParameterValueException("Invalid cursor");
+        }
+        if (cursorEntity.getVmUuid() == null || cursorEntity.getPageSize() < 1 || cursorEntity.getSearchAfter() == null) {
+            throw new InvalidParameterValueException("Invalid cursor");
+        }
+        List<SortField> sorting = getSortFields(cursorEntity.getSort());
+        checkSearchAfter(cursorEntity.getSearchAfter(), sorting);
+
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findByUuid(cursorEntity.getVmUuid());
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine for the cursor");
+        }
+        // the cursor is not bound to the caller that has requested it
+        _accountManager.checkAccess(CallContext.current().getCallingAccount(), SecurityChecker.AccessType.OperateEntry, false, vmInstanceVO);
+        return stream(cursorEntity, sorting);
+    }
+
+    @Override
+    public ScrollableListResponse<VmLogResponse> tailVmLogs(Long id, List<String> keywords, String logFile, Integer pageSize, List<Object> cursor, Integer timeout) {
+        pageSize = getPageSize(pageSize);
+        int maxTimeout = Math.min(VmLogTailTimeout.value(), MAX_TAIL_TIMEOUT);
+        if (timeout == null) {
+            timeout = maxTimeout;
+        } else if (timeout < 0 || timeout > maxTimeout) {
+            throw new InvalidParameterValueException("Invalid timeout");
+        }
+        if (cursor == null) {
+            // tail logs registered after the request, empty ids precede ids of logs with the same timestamp
+            cursor = Arrays.asList(DateUtils.getCurrentDateTime().toInstant(ZoneOffset.UTC).toEpochMilli(), "", "");
+        } else if (cursor.size() != 3 || !(cursor.get(0) instanceof Number) || cursor.get(1) != null && !(cursor.get(1) instanceof String)
+                || !(cursor.get(2) instanceof String)) {
+            // logs indexed without log_id have null values
+            throw new InvalidParameterValueException("Invalid cursor");
+        }
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+        }
+        LocalDateTime after = LocalDateTime.ofInstant(Instant.ofEpochMilli(((Number)cursor.get(0)).longValue()), ZoneOffset.UTC);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+        try {
+            while (true) {
+                // the cursor is provided by the client so days are taken from the catalog instead of being listed since the cursor
+                List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmInstanceVO.getUuid(), after, null);
+                // the probe is much cheaper than the sorted search and finds nothing most of the time
+                if ((dates == null || !dates.isEmpty()) && _vmLogExecutor
+                        .fetch(_restHighLevelClient, _vmLogRequestBuilder.getLogProbeRequest(vmInstanceVO.getUuid(), dates, after, keywords, logFile), VmLogResponse.class)
+                        .getCount() > 0) {
+                    SearchRequest searchRequest = _vmLogRequestBuilder
+                            .getLogSearchRequest(vmInstanceVO.getUuid(), dates, 1, pageSize, null, null, null, keywords, logFile, TIMESTAMP_SORTING, cursor);
+                    ScrollableListResponse<VmLogResponse> response = _vmLogExecutor.fetch(_restHighLevelClient, searchRequest, VmLogResponse.class);
+                    if (!response.getItems().isEmpty()) {
+                        return new ScrollableListResponse<>(response.getItems().size(), response.getItems(), null, response.getSearchAfter());
+                    }
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                Thread.sleep(Math.min(VmLogTailInterval.value(), TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            s_logger.error("Unable to retrieve VM logs", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM logs");
+        }
+        return new ScrollableListResponse<>(0, Collections.emptyList(), null, cursor);
+    }
+
+    @Override
+    public VmLogExportResponse exportVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile) {
+        String exportPath = VmLogExportPath.value();
+        if (Strings.isNullOrEmpty(exportPath)) {
+            throw new InvalidParameterValueException("VM log export is disabled");
+        }
+        return exportVmLogs(id, start, end, keywords, logFile, Paths.get(exportPath));
+    }
+
+    /**
+     * Writes VM logs as gzip compressed NDJSON page by page so memory usage does not depend on the number of exported logs.
+     */
+    VmLogExportResponse exportVmLogs(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, Path directory) {
+        checkDates(start, end);
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+        }
+        String vmUuid = vmInstanceVO.getUuid();
+        List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmUuid, start, end);
+        int batchSize = VmLogExportBatchSize.value();
+        String fileName = vmUuid + "-" + EXPORT_DATE_FORMATTER.format(LocalDateTime.now()) + "-" + UUID.randomUUID().toString().substring(0, 8) + EXPORT_FILE_SUFFIX;
+        Path file = directory.resolve(fileName);
+        Path tempFile = directory.resolve(fileName + EXPORT_TEMP_FILE_SUFFIX);
+        long count = 0;
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(tempFile), EXPORT_BUFFER_SIZE);
+                 JsonGenerator generator = _objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                List<Object> searchAfter = null;
+                boolean hasMore = dates == null || !dates.isEmpty();
+                while (hasMore) {
+                    SearchRequest searchRequest = _vmLogRequestBuilder
+                            .getLogSearchRequest(vmUuid, dates, 1, batchSize, null, start, end, keywords, logFile, TIMESTAMP_SORTING, searchAfter);
+                    ScrollableListResponse<VmLogResponse> response = _vmLogExecutor.fetch(_restHighLevelClient, searchRequest, VmLogResponse.class);
+                    for (VmLogResponse log : response.getItems()) {
+                        writeLog(generator, log);
+                    }
+                    count += response.getItems().size();
+                    searchAfter = response.getSearchAfter();
+                    // a partial page is the last one
+                    hasMore = response.getItems().size() == batchSize && searchAfter != null;
+                    reportExportProgress(count, response.getCount(), hasMore);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+            s_logger.info("Exported " + count + " VM logs to " + file);
+            return new VmLogExportResponse(fileName, file.toString(), getExportUrl(fileName), count, Files.size(file));
+        } catch (Exception e) {
+            s_logger.error("Unable to export VM logs", e);
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ex) {
+                s_logger.warn("Unable to delete " + tempFile, ex);
+            }
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to export VM logs");
+        }
+    }
+
+    @Override
+    public VmLogHistogramResponse getVmLogHistogram(Long id, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile) {
+        checkDates(start, end);
+        VMInstanceVO vmInstanceVO = _vmInstanceDao.findById(id);
+        if (vmInstanceVO == null) {
+            throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
+        }
+        List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmInstanceVO.getUuid(), start, end);
+        long interval = getHistogramInterval(start, end, dates);
+        if (dates != null && dates.isEmpty()) {
+            return new VmLogHistogramResponse(interval, 0, Collections.emptyList());
+        }
+        SearchRequest searchRequest = _vmLogRequestBuilder
+                .getLogHistogramRequest(vmInstanceVO.getUuid(), dates, start, end, keywords, logFile, TimeUnit.SECONDS.toMillis(interval));
+        try {
+            AggregateResponse<VmLogHistogramBucketResponse> response = _vmLogExecutor.fetchHistogram(_restHighLevelClient, searchRequest);
+            return new VmLogHistogramResponse(interval, response.getCount(), response.getItems());
+        } catch (Exception e) {
+            s_logger.error("Unable to retrieve VM log histogram", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM log histogram");
+        }
+    }
+
+    @Override
+    public ListResponse<VmLogFileResponse> listVmLogFiles(Long id, LocalDateTime start, LocalDateTime end, Long startIndex, Long pageSize, String after) {
         if (pageSize == null || pageSize < 1) {
             throw new InvalidParameterValueException("Invalid page size");
         }
@@ -206,26 +620,28 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         if (vmInstanceVO == null) {
             throw new InvalidParameterValueException("Unable to find a virtual machine with specified id");
         }
-        SearchRequest searchRequest = _vmLogRequestBuilder.getLogFileSearchRequest(vmInstanceVO.getUuid(), pageSize.intValue(), null, start, end);
-        try {
-            AggregateResponse<VmLogFileResponse> response = _vmLogExecutor.fetchLogFiles(_restHighLevelClient, searchRequest);
-            if (startIndex < response.getCount()) {
-                long lastIndex = pageSize - 1;
-                while (startIndex > lastIndex && response.getSearchAfter() != null) {
-                    searchRequest = _vmLogRequestBuilder.getLogFileSearchRequest(vmInstanceVO.getUuid(), pageSize.intValue(), response.getSearchAfter(), start, end);
-                    response = _vmLogExecutor.fetchLogFiles(_restHighLevelClient, searchRequest);
-                    lastIndex += pageSize;
-                }
-                if (startIndex <= lastIndex) {
-                    ListResponse<VmLogFileResponse> listResponse = new ListResponse<>();
-                    listResponse.setResponses(response.getItems(), response.getCount());
-                    return listResponse;
-                }
-            }
-            // more than available results are requested
+        if (start == null && end == null && _vmLogFileCatalog.isReady() && (after != null || startIndex + pageSize <= MAX_RESULT_WINDOW)) {
+            return listCatalogLogFiles(vmInstanceVO.getUuid(), after != null ? 0 : startIndex, pageSize, after);
+        }
+        List<LocalDate> dates = _vmLogIndexCatalog.getDates(vmInstanceVO.getUuid(), start, end);
+        if (dates != null && dates.isEmpty()) {
             ListResponse<VmLogFileResponse> listResponse = new ListResponse<>();
-            listResponse.setResponses(Collections.emptyList(), response.getCount());
+            listResponse.setResponses(Collections.emptyList(), 0);
             return listResponse;
+        }
+        LogFileQuery query = new LogFileQuery(vmInstanceVO.getUuid(), dates, start, end, pageSize, isCacheable(end), getLogFileCount());
+        try {
+            if (after != null) {
+                Integer count = getLogFileCount(query);
+                AggregateResponse<VmLogFileResponse> response = fetchLogFiles(query, Collections.singletonMap(VmLogRequestBuilder.LOG_FILE_FIELD, after),
+                        count == null ? query.getCount() : LogFileCount.NONE).get();
+                count = getLogFileCount(query, count, response);
+                List<VmLogFileResponse> items = response.getItems() != null ? response.getItems() : Collections.emptyList();
+                ListResponse<VmLogFileResponse> listResponse = new ListResponse<>();
+                listResponse.setResponses(items, count != null ? count : items.size());
+                return listResponse;
+            }
+            return findLogFiles(query, startIndex).get();
         } catch (Exception e) {
             s_logger.error("Unable to retrieve VM log files", e);
             throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM log files");
@@ -241,7 +657,7 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         Token token = new Token(_tokenGenerator.generate(), vmInstanceVO.getUuid(), DateUtils.getCurrentDateTime());
         try {
             IndexRequest request = _vmLogRequestBuilder.getCreateTokenRequest(token);
-            _vmLogExecutor.index(_restHighLevelClient, request);
+            _bulkIndexer.execute(Collections.singletonList(request));
             return token.getToken();
         } catch (IOException e) {
             s_logger.error("Unable to create VM log token", e);
@@ -249,6 +665,67 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         }
     }
 
+    @Override
+    public ListResponse<TokenResponse> createTokens(List<Long> ids, String accountName, Long domainId, Long projectId) {
+        boolean hasIds = ids != null && !ids.isEmpty();
+        if (hasIds == (accountName != null || projectId != null)) {
+            throw new InvalidParameterValueException("Either virtual machine ids or an account or a project should be specified");
+        }
+        // null for virtual machines removed after the command has been accepted, tokens for other ones are still created
+        List<VMInstanceVO> vmInstanceVOs;
+        if (hasIds) {
+            vmInstanceVOs = ids.stream().map(_vmInstanceDao::findById).collect(Collectors.toList());
+        } else {
+            Long accountId = _accountManager.finalyzeAccountId(accountName, domainId, projectId, true);
+            if (accountId == null) {
+                throw new InvalidParameterValueException("Unable to find the account");
+            }
+            vmInstanceVOs = _vmInstanceDao.listByAccountId(accountId).stream().filter(e -> e.getType() == VirtualMachine.Type.User).collect(Collectors.toList());
+        }
+        LocalDateTime validFrom = DateUtils.getCurrentDateTime();
+        List<Token> tokens = vmInstanceVOs.parallelStream().map(e -> e != null ? new Token(_tokenGenerator.generate(), e.getUuid(), validFrom) : null)
+                .collect(Collectors.toList());
+        // tokens are written in shared bulk requests, a failed token does not affect others
+        List<CompletableFuture<BulkItemResponse>> futures = new ArrayList<>(tokens.size());
+        try {
+            for (Token token : tokens) {
+                futures.add(token != null ? _bulkIndexer.add(_vmLogRequestBuilder.getCreateTokenRequest(token)) : null);
+            }
+        } catch (JsonProcessingException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            s_logger.error("Unable to create VM log tokens", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to create VM log tokens");
+        }
+        List<TokenResponse> responses = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            TokenResponse response = new TokenResponse();
+            if (token == null) {
+                VMInstanceVO removedInstanceVO = _vmInstanceDao.findByIdIncludingRemoved(ids.get(i));
+                if (removedInstanceVO != null) {
+                    response.setVirtualMachineId(removedInstanceVO.getUuid());
+                }
+                response.setSuccess(false);
+                response.setErrorText("Unable to find a virtual machine with specified id");
+                responses.add(response);
+                continue;
+            }
+            response.setVirtualMachineId(token.getVmUuid());
+            response.setSuccess(isCreated(token, futures.get(i)));
+            if (response.getSuccess()) {
+                response.setToken(token.getToken());
+            } else {
+                response.setErrorText("Failed to create VM log token");
+            }
+            responses.add(response);
+        }
+        ListResponse<TokenResponse> listResponse = new ListResponse<>();
+        listResponse.setResponses(responses, responses.size());
+        return listResponse;
+    }
+
     @Override
     public boolean invalidateToken(String token) {
         if (token == null || token.isEmpty()) {
@@ -272,7 +749,10 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
             }
             _accountManager.checkAccess(CallContext.current().getCallingAccount(), SecurityChecker.AccessType.OperateEntry, false, vmInstanceVO);
             UpdateRequest invalidateRequest = _vmLogRequestBuilder.getInvalidateTokenRequest(token, DateUtils.getCurrentDateTime());
-            _vmLogExecutor.update(_restHighLevelClient, invalidateRequest);
+            _bulkIndexer.execute(Collections.singletonList(invalidateRequest));
+            if (_ingestTokenCache != null) {
+                _ingestTokenCache.invalidate(token);
+            }
             return true;
         } catch (IOException e) {
             s_logger.error("Unable to invalidate VM log token", e);
@@ -288,33 +768,16 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
             if (response.getStatusLine().getStatusCode() != RestStatus.OK.getStatus()) {
                 throw new CloudRuntimeException("Unexpected status for VM log index stats " + response.getStatusLine().getStatusCode());
             }
-            JsonNode result = _objectMapper.readTree(EntityUtils.toString(response.getEntity()));
-            if (result != null) {
-                JsonNode data = result.path("indices");
-                if (data.isMissingNode()) {
-                    throw getInvalidStatsException();
-                }
-                Map<String, Double> stats = new HashMap<>();
-                Iterator<Map.Entry<String, JsonNode>> indices = data.fields();
-                while (indices.hasNext()) {
-                    Map.Entry<String, JsonNode> index = indices.next();
-                    Matcher vmUuidMatcher = s_indexPattern.matcher(index.getKey());
-                    if (vmUuidMatcher.matches() && !index.getValue().isNull()) {
-                        String vmUuid = vmUuidMatcher.group(1);
-                        JsonNode indexSize = index.getValue().path("total").path("store").path("size_in_bytes");
-                        if (!indexSize.isMissingNode()) {
-                            stats.merge(vmUuid, indexSize.doubleValue(), (total, current) -> total + current);
-                        } else {
-                            throw getInvalidStatsException();
-                        }
-                    }
-                }
-                // size in MB
-                stats.replaceAll((k, v) -> v / (1024 * 1024));
-                return stats;
-            } else {
+            if (response.getEntity() == null) {
                 throw getInvalidStatsException();
             }
+            Map<String, Double> stats;
+            try (InputStream content = response.getEntity().getContent(); JsonParser parser = _objectMapper.getFactory().createParser(content)) {
+                stats = parseVmLogStats(parser);
+            }
+            // size in MB
+            stats.replaceAll((k, v) -> v / (1024 * 1024));
+            return stats;
         } catch (CloudRuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -322,6 +785,28 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         }
     }
 
+    @Override
+    public List<JobStats> getJobStats() {
+        return _vmLogScheduler.getJobStats();
+    }
+
+    @Override
+    public List<BulkStats> getBulkStats() {
+        List<BulkStats> stats = new ArrayList<>();
+        stats.add(_bulkIndexer.getStats());
+        if (_ingestBulkIndexer != null) {
+            stats.add(_ingestBulkIndexer.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        CacheStats stats = _vmLogCache.getStats();
+        return new CacheStats(stats.getHits(), stats.getMisses(), stats.getEvictions(), stats.getEntries(), stats.getSize(), _searchFlight.getExecuted(),
+                _searchFlight.getDeduplicated());
+    }
+
     @Override
     public boolean configure(String name, Map<String, Object> params) {
         try {
@@ -333,6 +818,10 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
                 restClientBuilder = restClientBuilder.setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider));
             }
             _restHighLevelClient = new RestHighLevelClient(restClientBuilder);
+            _vmLogCache = new VmLogCacheImpl(VmLogCacheSize.value() * MB, VmLogCacheVmSize.value() * MB, VmLogCacheTtl.value() * 1000L);
+            _bulkIndexer = new BulkIndexer(BULK_INDEXER_NAME, _restHighLevelClient::bulk, VmLogBulkSize.value(), 0, VmLogBulkQueueSize.value(),
+                    BulkIndexer.OverflowPolicy.BLOCK, VmLogBulkConcurrency.value(), getBulkRetryPolicy());
+            _vmLogFileCatalog = new VmLogFileCatalogImpl(_restHighLevelClient, _vmLogExecutor, _vmLogRequestBuilder, _bulkIndexer);
         } catch (IllegalArgumentException e) {
             s_logger.error("Failed to create ElasticSearch client", e);
             return false;
@@ -340,6 +829,39 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
         return true;
     }
 
+    @Override
+    public boolean start() {
+        _bulkIndexer.start();
+        _vmLogScheduler.schedule(INDEX_CATALOG_JOB_NAME, VmLogIndexCatalogInterval::value, () -> 0, true, false, this::refreshIndexCatalog);
+        if (VmLogFileCatalogInterval.value() > 0) {
+            _vmLogScheduler.schedule(FILE_CATALOG_JOB_NAME, VmLogFileCatalogInterval::value, () -> 0, true, false, this::refreshLogFileCatalog);
+        }
+        if (!Strings.isNullOrEmpty(VmLogTokenDictionaryPath.value())) {
+            _vmLogScheduler.schedule(TOKEN_DICTIONARY_JOB_NAME, VmLogTokenDictionaryInterval::value, () -> 0, true, true,
+                    () -> refreshTokenDictionary(Paths.get(VmLogTokenDictionaryPath.value())));
+        }
+        if (VmLogPurgeInterval.value() > 0) {
+            // every management server purges VMs expunged by itself
+            VirtualMachine.State.getStateMachine().registerListener(_vmExpungeListener);
+            _vmLogScheduler.schedule(PURGE_JOB_NAME, VmLogPurgeInterval::value, () -> 0, false, false, () -> purgeVmLogs(VmLogPurgeBatchSize.value()));
+        }
+        if (VmLogIngestPort.value() > 0 && !startIngest()) {
+            return false;
+        }
+        return super.start();
+    }
+
+    @Override
+    public boolean stop() {
+        if (_beatsServer != null) {
+            _beatsServer.stop();
+            _ingestBulkIndexer.stop();
+        }
+        VirtualMachine.State.getStateMachine().unregisterListener(_vmExpungeListener);
+        _bulkIndexer.stop();
+        return super.stop();
+    }
+
     @Override
     public String getConfigComponentName() {
         return VmLogManager.class.getSimpleName();
@@ -347,7 +869,632 @@ public class VmLogManagerImpl extends ComponentLifecycleBase implements VmLogMan
 
     @Override
     public ConfigKey<?>[] getConfigKeys() {
-        return new ConfigKey<?>[] {VmLogElasticsearchList, VmLogElasticsearchUsername, VmLogElasticsearchPassword, VmLogDefaultPageSize, VmLogUsageTimeout};
+        return new ConfigKey<?>[] {VmLogElasticsearchList, VmLogElasticsearchUsername, VmLogElasticsearchPassword, VmLogDefaultPageSize, VmLogCursorSecret,
+                VmLogCacheSize, VmLogCacheVmSize, VmLogCacheTtl, VmLogCacheIngestLag, VmLogIndexCatalogInterval,
+                VmLogElasticsearchTimeout, VmLogElasticsearchMaxRequests, VmLogExportPath, VmLogExportUrl, VmLogExportBatchSize, VmLogTailTimeout,
+                VmLogTailInterval, VmLogFileCount, VmLogFileCountTtl, VmLogFileCatalogInterval, VmLogTokenDictionaryPath, VmLogTokenDictionaryInterval, VmLogBulkSize,
+                VmLogBulkConcurrency, VmLogBulkQueueSize, VmLogBulkRetries, VmLogBulkRetryBackoff, VmLogIngestPort,
+                VmLogIngestMaxConnections, VmLogIngestTimeout, VmLogIngestWindowSize, VmLogIngestWindowLength, VmLogIngestBulkSize,
+                VmLogIngestBulkInterval, VmLogIngestBulkConcurrency, VmLogIngestQueueSize,
+                VmLogIngestQueuePolicy, VmLogIngestTokenCacheTtl, VmLogIngestTokenCacheNegativeTtl,
+                VmLogIngestTokenCacheSize, VmLogUsageTimeout,
+                VmLogUsageDeadline, VmLogUsageSnapshotInterval, VmLogUsageDeltaThreshold, VmLogUsageBatchSize, VmLogUsageBatchLength,
+                VmLogPurgeInterval, VmLogPurgeBatchSize};
+    }
+
+    private boolean startIngest() {
+        _ingestTokenCache = new TokenCache(token -> _vmLogExecutor.get(_restHighLevelClient, _vmLogRequestBuilder.getGetTokenRequest(token), Token.class),
+                VmLogIngestTokenCacheTtl.value() * 1000L, VmLogIngestTokenCacheNegativeTtl.value() * 1000L, VmLogIngestTokenCacheSize.value());
+        _ingestBulkIndexer = new BulkIndexer(INGEST_BULK_INDEXER_NAME, _restHighLevelClient::bulk, VmLogIngestBulkSize.value(), VmLogIngestBulkInterval.value(),
+                VmLogIngestQueueSize.value(), getIngestQueuePolicy(), VmLogIngestBulkConcurrency.value(), getBulkRetryPolicy());
+        _beatsServer = new BeatsServer(VmLogIngestPort.value(), VmLogIngestMaxConnections.value(), VmLogIngestTimeout.value() * 1000,
+                VmLogIngestWindowSize.value(), VmLogIngestWindowLength.value(), new VmLogIngestHandler(_ingestTokenCache, _ingestBulkIndexer));
+        _ingestBulkIndexer.start();
+        try {
+            _beatsServer.start();
+        } catch (IOException e) {
+            s_logger.error("Failed to start VM log ingest endpoint", e);
+            _ingestBulkIndexer.stop();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isCreated(Token token, CompletableFuture<BulkItemResponse> future) {
+        try {
+            BulkItemResponse response = future.get();
+            if (response.isFailed()) {
+                s_logger.error("Unable to create VM log token for the virtual machine " + token.getVmUuid() + ": " + response.getFailureMessage());
+                return false;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to create VM log tokens");
+        } catch (ExecutionException e) {
+            s_logger.error("Unable to create VM log token for the virtual machine " + token.getVmUuid(), e.getCause());
+            return false;
+        }
+    }
+
+    private BulkIndexer.OverflowPolicy getIngestQueuePolicy() {
+        String policy = VmLogIngestQueuePolicy.value();
+        try {
+            return policy != null ? BulkIndexer.OverflowPolicy.valueOf(policy.toUpperCase(Locale.ROOT)) : BulkIndexer.OverflowPolicy.BLOCK;
+        } catch (IllegalArgumentException e) {
+            s_logger.warn("Invalid " + VmLogIngestQueuePolicy.key() + " value " + policy + ", Beats clients are blocked while the queue is full");
+            return BulkIndexer.OverflowPolicy.BLOCK;
+        }
+    }
+
+    private static BackoffPolicy getBulkRetryPolicy() {
+        return BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(VmLogBulkRetryBackoff.value()), VmLogBulkRetries.value());
+    }
+
+    private ScrollableListResponse<VmLogResponse> stream(Cursor cursor, List<SortField> sorting) {
+        List<LocalDate> dates = _vmLogIndexCatalog.getDates(cursor.getVmUuid(), cursor.getStart(), cursor.getEnd());
+        if (dates != null && dates.isEmpty()) {
+            return new ScrollableListResponse<>(0, Collections.emptyList(), null);
+        }
+        SearchRequest searchRequest = _vmLogRequestBuilder
+                .getLogSearchRequest(cursor.getVmUuid(), dates, 1, cursor.getPageSize(), null, cursor.getStart(), cursor.getEnd(), cursor.getKeywords(), cursor.getLogFile(),
+                        sorting, cursor.getSearchAfter());
+        CacheKey cacheKey = null;
+        if (isCacheable(cursor.getEnd())) {
+            cacheKey = new CacheKey(cursor.getVmUuid(), LOGS_CACHE_TYPE, cursor.getStart(), cursor.getEnd(), normalize(cursor.getKeywords()), cursor.getLogFile(), sorting, null,
+                    cursor.getPageSize(), cursor.getSearchAfter());
+        }
+        try {
+            ScrollableListResponse<VmLogResponse> response = fetchLogs(searchRequest, cacheKey);
+            String nextCursor = null;
+            // a partial page is the last one
+            if (response.getItems() != null && response.getItems().size() == cursor.getPageSize() && response.getSearchAfter() != null) {
+                nextCursor = _cursorSigner.sign(_objectMapper.writeValueAsString(cursor.next(response.getSearchAfter())));
+            }
+            return new ScrollableListResponse<>(response.getCount(), response.getItems(), null, null, nextCursor);
+        } catch (Exception e) {
+            s_logger.error("Unable to retrieve VM logs", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM logs");
+        }
+    }
+
+    void refreshIndexCatalog() throws IOException {
+        // indices created during the request are treated as absent ones so the time before the request is used
+        LocalDateTime updateTime = DateUtils.getCurrentDateTime();
+        List<String> indices = getLogIndices();
+        _vmLogIndexCatalog.update(indices, updateTime);
+        s_logger.debug("VM log index catalog updated: " + indices.size() + " indices");
+    }
+
+    /**
+     * Updates the token dictionary with tokens created or invalidated since the previous update and writes it if it has changed.
+     */
+    void refreshTokenDictionary(Path file) throws IOException {
+        LocalDateTime now = DateUtils.getCurrentDateTime();
+        String after = null;
+        List<Token> tokens;
+        do {
+            SearchRequest searchRequest = _vmLogRequestBuilder.getTokenSearchRequest(_tokenDictionaryCheckpoint, TOKEN_DICTIONARY_PAGE_SIZE, after);
+            tokens = _vmLogExecutor.fetchTokens(_restHighLevelClient, searchRequest);
+            if (_tokenDictionary.update(tokens)) {
+                _tokenDictionaryChanged = true;
+            }
+            if (!tokens.isEmpty()) {
+                after = tokens.get(tokens.size() - 1).getToken();
+            }
+        } while (tokens.size() == TOKEN_DICTIONARY_PAGE_SIZE);
+        // logs are not expected to be ingested after the lag so tokens invalidated before are not needed
+        if (_tokenDictionary.prune(now.minusSeconds(VmLogCacheIngestLag.value()))) {
+            _tokenDictionaryChanged = true;
+        }
+        if (_tokenDictionaryChanged) {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            _tokenDictionary.write(file);
+            _tokenDictionaryChanged = false;
+            s_logger.debug("VM log token dictionary written: " + _tokenDictionary.size() + " tokens");
+        }
+        _tokenDictionaryCheckpoint = now.minusSeconds(TOKEN_DICTIONARY_DELAY);
+    }
+
+    void addExpungedVm(String vmUuid) {
+        _expungingVms.add(vmUuid);
+    }
+
+    /**
+     * Invalidates tokens and deletes log indices of expunged virtual machines in batches. Tokens are invalidated even if logs cannot be deleted,
+     * batches which fail are kept in their queues for the next run.
+     */
+    void purgeVmLogs(int batchSize) throws Exception {
+        for (int i = _expungingVms.size(); i > 0; i--) {
+            String vmUuid = _expungingVms.poll();
+            VMInstanceVO vmInstanceVO = _vmInstanceDao.findByUuidIncludingRemoved(vmUuid);
+            if (vmInstanceVO != null && vmInstanceVO.getRemoved() == null) {
+                // the expunge has not completed yet or has failed and is retried later
+                _expungingVms.add(vmUuid);
+            } else {
+                _tokenPurgeQueue.add(vmUuid);
+                _logPurgeQueue.add(vmUuid);
+            }
+        }
+        CloudRuntimeException failure = null;
+        try {
+            int count = purge(_tokenPurgeQueue, batchSize, this::invalidateVmTokens);
+            if (count > 0) {
+                s_logger.debug("VM log tokens invalidated: " + count + " expunged VMs");
+            }
+        } catch (Exception e) {
+            failure = new CloudRuntimeException("Unable to invalidate VM log tokens of expunged VMs", e);
+        }
+        if (!_logPurgeQueue.isEmpty()) {
+            try {
+                List<String> indices = getLogIndices();
+                int count = purge(_logPurgeQueue, batchSize, vmUuids -> deleteVmLogIndices(vmUuids, indices));
+                if (count > 0) {
+                    s_logger.debug("VM logs deleted: " + count + " expunged VMs");
+                }
+            } catch (Exception e) {
+                CloudRuntimeException logFailure = new CloudRuntimeException("Unable to delete VM logs of expunged VMs", e);
+                if (failure == null) {
+                    failure = logFailure;
+                } else {
+                    failure.addSuppressed(logFailure);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of purged virtual machines
+     */
+    private int purge(Queue<String> queue, int batchSize, CheckedConsumer<List<String>, Exception> action) throws Exception {
+        int count = 0;
+        List<String> vmUuids;
+        do {
+            vmUuids = new ArrayList<>();
+            String vmUuid;
+            while (vmUuids.size() < batchSize && (vmUuid = queue.poll()) != null) {
+                vmUuids.add(vmUuid);
+            }
+            if (vmUuids.isEmpty()) {
+                break;
+            }
+            try {
+                action.accept(vmUuids);
+            } catch (Exception e) {
+                queue.addAll(vmUuids);
+                throw e;
+            }
+            count += vmUuids.size();
+        } while (vmUuids.size() == batchSize);
+        return count;
+    }
+
+    private void invalidateVmTokens(List<String> vmUuids) throws IOException {
+        Response response = _vmLogExecutor.execute(_restHighLevelClient, _vmLogRequestBuilder.getVmTokensInvalidateRequest(vmUuids, DateUtils.getCurrentDateTime()));
+        if (response.getStatusLine().getStatusCode() != RestStatus.OK.getStatus()) {
+            throw new CloudRuntimeException("Unexpected status for VM log token invalidation " + response.getStatusLine().getStatusCode());
+        }
+        if (_ingestTokenCache != null) {
+            _ingestTokenCache.invalidateVms(vmUuids);
+        }
+    }
+
+    /**
+     * Deletes indices by their names since wildcard deletes are rejected if action.destructive_requires_name is set.
+     *
+     * @param indices names of existing VM log indices
+     */
+    private void deleteVmLogIndices(List<String> vmUuids, List<String> indices) throws IOException {
+        Set<String> vmUuidSet = new HashSet<>(vmUuids);
+        List<String> vmIndices = indices.stream().filter(e -> vmUuidSet.contains(IndexName.getVmUuid(e))).collect(Collectors.toList());
+        for (Request request : _vmLogRequestBuilder.getLogIndicesDeleteRequests(vmIndices)) {
+            Response response = _vmLogExecutor.execute(_restHighLevelClient, request);
+            if (response.getStatusLine().getStatusCode() != RestStatus.OK.getStatus()) {
+                throw new CloudRuntimeException("Unexpected status for VM log index deletion " + response.getStatusLine().getStatusCode());
+            }
+        }
+    }
+
+    void refreshLogFileCatalog() throws IOException {
+        _vmLogFileCatalog.refresh(new HashSet<>(getLogIndices()), _vmLogScheduler.isLeader());
+    }
+
+    private List<String> getLogIndices() throws IOException {
+        Response response = _vmLogExecutor.execute(_restHighLevelClient, _vmLogRequestBuilder.getLogIndicesRequest());
+        if (response.getStatusLine().getStatusCode() != RestStatus.OK.getStatus()) {
+            throw new CloudRuntimeException("Unexpected status for VM log indices " + response.getStatusLine().getStatusCode());
+        }
+        return Arrays.stream(EntityUtils.toString(response.getEntity()).split("\n")).map(String::trim).filter(e -> !e.isEmpty()).collect(Collectors.toList());
+    }
+
+    private ScrollableListResponse<VmLogResponse> fetchLogs(SearchRequest searchRequest, CacheKey cacheKey) throws Exception {
+        if (cacheKey != null) {
+            ScrollableListResponse<VmLogResponse> response = _vmLogCache.get(cacheKey);
+            if (response != null) {
+                return response;
+            }
+        }
+        if (searchRequest.scroll() != null) {
+            // each scroll search needs its own scroll context
+            return _vmLogExecutor.fetch(_restHighLevelClient, searchRequest, VmLogResponse.class);
+        }
+        return _searchFlight.execute(searchRequest, () -> {
+            ScrollableListResponse<VmLogResponse> response = _vmLogExecutor.fetch(_restHighLevelClient, searchRequest, VmLogResponse.class);
+            if (cacheKey != null) {
+                _vmLogCache.put(cacheKey, response,
+                        getSize(response.getItems(), e -> getSize(e.getId()) + getSize(e.getVmId()) + getSize(e.getTimestamp()) + getSize(e.getFile()) + getSize(e.getLog())));
+            }
+            return response;
+        });
+    }
+
+    private ListResponse<VmLogFileResponse> listCatalogLogFiles(String vmUuid, long startIndex, long pageSize, String after) {
+        SearchRequest searchRequest = _vmLogRequestBuilder.getLogFileCatalogSearchRequest(vmUuid, (int)startIndex, (int)pageSize, after);
+        try {
+            AggregateResponse<VmLogFileResponse> response = _vmLogExecutor.fetchLogFileCatalog(_restHighLevelClient, searchRequest);
+            ListResponse<VmLogFileResponse> listResponse = new ListResponse<>();
+            listResponse.setResponses(response.getItems(), response.getCount());
+            return listResponse;
+        } catch (Exception e) {
+            s_logger.error("Unable to retrieve VM log files", e);
+            throw new ServerApiException(ApiErrorCode.INTERNAL_ERROR, "Failed to retrieve VM log files");
+        }
+    }
+
+    /**
+     * Starts the search for the page with the start index at the closest known page boundary so that pages following the requested ones
+     * are at most one aggregation away.
+     */
+    private CompletableFuture<ListResponse<VmLogFileResponse>> findLogFiles(LogFileQuery query, long startIndex) {
+        long page = startIndex / query.getPageSize();
+        Integer count = getLogFileCount(query);
+        NavigableMap<Long, Map<String, Object>> cursors = getLogFileCursors(query);
+        Map.Entry<Long, Map<String, Object>> cursor = cursors != null ? cursors.floorEntry(page) : null;
+        if (cursor == null) {
+            return findLogFiles(query, page, 0, null, count);
+        }
+        return findLogFiles(query, page, cursor.getKey(), cursor.getValue(), count);
+    }
+
+    /**
+     * @param count the number of log files if it is known; the count aggregation is requested only if it is not
+     */
+    private CompletableFuture<ListResponse<VmLogFileResponse>> findLogFiles(LogFileQuery query, long page, long currentPage, Map<String, Object> aggregateAfter,
+            Integer count) {
+        return fetchLogFiles(query, aggregateAfter, count == null ? query.getCount() : LogFileCount.NONE).thenCompose(response -> {
+            Integer total = getLogFileCount(query, count, response);
+            long startIndex = page * query.getPageSize();
+            boolean available = total == null || startIndex < total;
+            if (response.getSearchAfter() != null) {
+                putLogFileCursor(query, currentPage + 1, response.getSearchAfter());
+                if (available && currentPage < page) {
+                    return findLogFiles(query, page, currentPage + 1, response.getSearchAfter(), total);
+                }
+            }
+            List<VmLogFileResponse> items = response.getItems() != null ? response.getItems() : Collections.emptyList();
+            if (total == null) {
+                // log files are not counted so the number of log files up to the current page is returned
+                total = (int)(currentPage * query.getPageSize() + items.size());
+            }
+            ListResponse<VmLogFileResponse> listResponse = new ListResponse<>();
+            if (available && currentPage == page) {
+                listResponse.setResponses(items, total);
+            } else {
+                // more than available results are requested
+                listResponse.setResponses(Collections.emptyList(), total);
+            }
+            return CompletableFuture.completedFuture(listResponse);
+        });
+    }
+
+    /**
+     * @return the number of log files computed recently for the same virtual machine and date range or null
+     */
+    private Integer getLogFileCount(LogFileQuery query) {
+        if (query.getCount() == LogFileCount.NONE) {
+            return null;
+        }
+        LogFileCountEntry entry = _vmLogCache.get(getLogFileCountCacheKey(query));
+        if (entry == null || System.nanoTime() - entry.getCreatedAt() >= TimeUnit.SECONDS.toNanos(VmLogFileCountTtl.value())) {
+            return null;
+        }
+        return entry.getCount();
+    }
+
+    /**
+     * Remembers the number of log files if it is computed with the response.
+     */
+    private Integer getLogFileCount(LogFileQuery query, Integer count, AggregateResponse<VmLogFileResponse> response) {
+        if (count != null || response.getCount() == AggregateResponse.UNKNOWN_COUNT) {
+            return count;
+        }
+        _vmLogCache.put(getLogFileCountCacheKey(query), new LogFileCountEntry(response.getCount(), System.nanoTime()), OBJECT_SIZE);
+        return response.getCount();
+    }
+
+    private CacheKey getLogFileCountCacheKey(LogFileQuery query) {
+        return new CacheKey(query.getVmUuid(), LOG_FILE_COUNT_CACHE_TYPE, query.getStart(), query.getEnd(), query.getCount());
+    }
+
+    private LogFileCount getLogFileCount() {
+        String count = VmLogFileCount.value();
+        try {
+            return count != null ? LogFileCount.valueOf(count.toUpperCase(Locale.ROOT)) : LogFileCount.PRECISE;
+        } catch (IllegalArgumentException e) {
+            s_logger.warn("Invalid " + VmLogFileCount.key() + " value " + count + ", log files are counted precisely");
+            return LogFileCount.PRECISE;
+        }
+    }
+
+    private NavigableMap<Long, Map<String, Object>> getLogFileCursors(LogFileQuery query) {
+        return _vmLogCache.get(getLogFileCursorsCacheKey(query));
+    }
+
+    /**
+     * Page boundaries are cached as a copy-on-write map since each cached value is accounted for by its size when it is put.
+     */
+    private void putLogFileCursor(LogFileQuery query, long page, Map<String, Object> aggregateAfter) {
+        NavigableMap<Long, Map<String, Object>> cursors = getLogFileCursors(query);
+        if (cursors != null && cursors.containsKey(page)) {
+            return;
+        }
+        NavigableMap<Long, Map<String, Object>> updatedCursors = cursors != null ? new TreeMap<>(cursors) : new TreeMap<>();
+        updatedCursors.put(page, aggregateAfter);
+        _vmLogCache.put(getLogFileCursorsCacheKey(query), Collections.unmodifiableNavigableMap(updatedCursors),
+                getSize(updatedCursors.values(), e -> e.values().stream().mapToLong(v -> OBJECT_SIZE + getSize(String.valueOf(v))).sum()));
+    }
+
+    private CacheKey getLogFileCursorsCacheKey(LogFileQuery query) {
+        return new CacheKey(query.getVmUuid(), LOG_FILE_CURSORS_CACHE_TYPE, query.getStart(), query.getEnd(), query.getPageSize());
+    }
+
+    private CompletableFuture<AggregateResponse<VmLogFileResponse>> fetchLogFiles(LogFileQuery query, Map<String, Object> aggregateAfter, LogFileCount count) {
+        CacheKey cacheKey = null;
+        if (query.isCacheable()) {
+            cacheKey = new CacheKey(query.getVmUuid(), LOG_FILES_CACHE_TYPE, query.getStart(), query.getEnd(), query.getPageSize(), aggregateAfter, count);
+            AggregateResponse<VmLogFileResponse> response = _vmLogCache.get(cacheKey);
+            if (response != null) {
+                return CompletableFuture.completedFuture(response);
+            }
+        }
+        SearchRequest searchRequest = _vmLogRequestBuilder
+                .getLogFileSearchRequest(query.getVmUuid(), query.getDates(), (int)query.getPageSize(), aggregateAfter, query.getStart(), query.getEnd(), count);
+        CacheKey responseCacheKey = cacheKey;
+        return _vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, searchRequest).thenApply(response -> {
+            if (responseCacheKey != null) {
+                _vmLogCache.put(responseCacheKey, response, getSize(response.getItems(), e -> getSize(e.getFile())));
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Chooses the smallest bucket size that splits the date range into at most {@link #MAX_HISTOGRAM_BUCKETS} buckets.
+     * Open ranges end now and start with the earliest known index of the virtual machine.
+     */
+    private long getHistogramInterval(LocalDateTime start, LocalDateTime end, List<LocalDate> dates) {
+        LocalDateTime to = end != null ? end : DateUtils.getCurrentDateTime();
+        LocalDateTime from = start;
+        if (from == null) {
+            from = dates != null && !dates.isEmpty() ? dates.get(0).atStartOfDay() : to.minusDays(DEFAULT_HISTOGRAM_DAYS);
+        }
+        long range = Math.max(Duration.between(from, to).getSeconds(), 1);
+        for (long interval : HISTOGRAM_INTERVALS) {
+            if ((range + interval - 1) / interval <= MAX_HISTOGRAM_BUCKETS) {
+                return interval;
+            }
+        }
+        return HISTOGRAM_INTERVALS[HISTOGRAM_INTERVALS.length - 1];
+    }
+
+    private void writeLog(JsonGenerator generator, VmLogResponse log) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField(EntityConstants.ID, log.getId());
+        generator.writeStringField(EntityConstants.TIMESTAMP, log.getTimestamp());
+        generator.writeStringField(EntityConstants.FILE, log.getFile());
+        generator.writeStringField(EntityConstants.LOG, log.getLog());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void reportExportProgress(long count, long total, boolean hasMore) {
+        AsyncJobExecutionContext context = AsyncJobExecutionContext.getCurrentExecutionContext();
+        if (context != null) {
+            // logs ingested during export may make the count exceed the initial total
+            int progress = hasMore && total > 0 ? (int)Math.min(99, count * 100 / total) : 100;
+            context.updateProgress(progress, null);
+        }
+        if (s_logger.isDebugEnabled()) {
+            s_logger.debug("Exported " + count + " of " + total + " VM logs");
+        }
+    }
+
+    private String getExportUrl(String fileName) {
+        String exportUrl = VmLogExportUrl.value();
+        if (Strings.isNullOrEmpty(exportUrl)) {
+            return null;
+        }
+        return exportUrl.endsWith("/") ? exportUrl + fileName : exportUrl + "/" + fileName;
+    }
+
+    /**
+     * Logs are cached for closed date ranges only that end before the latest logs which can be still ingested.
+     */
+    private boolean isCacheable(LocalDateTime end) {
+        return end != null && end.isBefore(DateUtils.getCurrentDateTime().minusSeconds(VmLogCacheIngestLag.value()));
+    }
+
+    private List<String> normalize(List<String> keywords) {
+        // keywords are combined with AND so their order does not matter
+        return keywords == null || keywords.isEmpty() ? null : keywords.stream().distinct().sorted().collect(Collectors.toList());
+    }
+
+    private <T> long getSize(Collection<T> items, ToLongFunction<T> itemSize) {
+        long size = OBJECT_SIZE;
+        if (items != null) {
+            for (T item : items) {
+                size += OBJECT_SIZE + itemSize.applyAsLong(item);
+            }
+        }
+        return size;
+    }
+
+    private long getSize(String value) {
+        return value != null ? OBJECT_SIZE + value.length() * 2 : 0;
+    }
+
+    private int getPageSize(Integer pageSize) {
+        if (pageSize == null) {
+            pageSize = VmLogDefaultPageSize.value();
+        }
+        if (pageSize == null || pageSize < 1) {
+            throw new InvalidParameterValueException("Invalid page size");
+        }
+        return pageSize;
+    }
+
+    private int getPage(Integer page) {
+        if (page == null) {
+            return 1;
+        }
+        if (page < 1) {
+            throw new InvalidParameterValueException("Invalid page");
+        }
+        return page;
+    }
+
+    private void checkScroll(Integer scroll) {
+        if (scroll != null && scroll < 0) {
+            throw new InvalidParameterValueException("Invalid scroll");
+        }
+    }
+
+    private void checkDates(LocalDateTime start, LocalDateTime end) {
+        if (start != null && end != null && end.isBefore(start)) {
+            throw new InvalidParameterValueException("Invalid start/end dates");
+        }
+    }
+
+    private List<SortField> getSortFields(List<String> sortFields) {
+        if (sortFields == null || sortFields.isEmpty()) {
+            return null;
+        }
+        List<SortField> sorting = sortFields.stream().map(s -> {
+            SortField.SortOrder order = SortField.SortOrder.ASC;
+            if (s != null && s.startsWith(SortField.SortOrder.DESC.getPrefix())) {
+                s = s.substring(SortField.SortOrder.DESC.getPrefix().length());
+                order = SortField.SortOrder.DESC;
+            }
+            String field = s_logFields.get(s);
+            if (field == null) {
+                throw new InvalidParameterValueException("Invalid sort field");
+            }
+            return new SortField(field, order);
+        }).distinct().collect(Collectors.toList());
+        Map<String, List<SortField>> sortByFields = sorting.stream().collect(Collectors.groupingBy(SortField::getField));
+        if (!sortByFields.entrySet().stream().allMatch(kv -> kv.getValue().size() == 1)) {
+            throw new InvalidParameterValueException("Invalid sort");
+        }
+        return sorting;
+    }
+
+    private void checkSearchAfter(List<Object> searchAfter, List<SortField> sorting) {
+        // sort values of the last hit: either the requested sort fields or the score, log_id and _id tiebreakers
+        int sortSize = (sorting != null ? sorting.size() : 1) + 2;
+        if (searchAfter.size() != sortSize) {
+            throw new InvalidParameterValueException("Invalid search after");
+        }
+        for (int i = 0; i < sortSize; i++) {
+            Object value = searchAfter.get(i);
+            boolean valid;
+            if (i == sortSize - 1) {
+                valid = value instanceof String;
+            } else if (i == sortSize - 2) {
+                // logs indexed without log_id have null values
+                valid = value == null || value instanceof String;
+            } else if (sorting == null) {
+                valid = value instanceof Number;
+            } else if (VmLogRequestBuilder.DATE_FIELD.equals(sorting.get(i).getField())) {
+                valid = value instanceof Integer || value instanceof Long;
+            } else {
+                valid = value == null || value instanceof String;
+            }
+            if (!valid) {
+                throw new InvalidParameterValueException("Invalid search after");
+            }
+        }
+    }
+
+    private ScrollableListResponse<VmLogResponse> getPageResponse(ScrollableListResponse<VmLogResponse> response, int page, Integer scroll, List<Object> searchAfter) {
+        if (scroll == null && searchAfter == null && page > 1 && response.getSearchAfter() != null) {
+            // deeper pages are sorted without the tiebreaker so their sort values cannot be used to request following pages
+            return new ScrollableListResponse<>(response.getCount(), response.getItems(), response.getScrollId());
+        }
+        return response;
+    }
+
+    /**
+     * Sums index sizes per virtual machine while reading the response so that memory usage does not depend on the number of indices.
+     */
+    private Map<String, Double> parseVmLogStats(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw getInvalidStatsException();
+        }
+        Map<String, Double> stats = new HashMap<>();
+        // the filtered response of a cluster without VM log indices is empty
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT || !STATS_INDICES_FIELD.equals(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String vmUuid = IndexName.getVmUuid(parser.getCurrentName());
+                if (parser.nextToken() == JsonToken.VALUE_NULL || vmUuid == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Long size = parseStoreSize(parser, 0);
+                if (size == null) {
+                    throw getInvalidStatsException();
+                }
+                stats.merge(vmUuid, size.doubleValue(), (total, current) -> total + current);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @return the value at {@link #STATS_STORE_SIZE_PATH} starting from the given depth of the current value or null if it is absent
+     */
+    private Long parseStoreSize(JsonParser parser, int depth) throws IOException {
+        if (depth == STATS_STORE_SIZE_PATH.length) {
+            if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getLongValue();
+            }
+            parser.skipChildren();
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Long size = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (STATS_STORE_SIZE_PATH[depth].equals(field)) {
+                size = parseStoreSize(parser, depth + 1);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return size;
     }
 
     private CloudRuntimeException getInvalidStatsException() {
@@ -17,6 +17,8 @@
 
 package com.bwsw.cloudstack.vm.logs.service;
 
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.entity.LogFileCount;
 import com.bwsw.cloudstack.vm.logs.entity.SortField;
 import com.bwsw.cloudstack.vm.logs.entity.Token;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -27,29 +29,104 @@ import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Request;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
 public interface VmLogRequestBuilder {
 
+    // a keyword with doc values written at ingest, sorting by _id would load its field data
+    String LOG_ID_FIELD = "log_id";
+    // the last tiebreaker for logs indexed before log_id was introduced
+    String ID_FIELD = "_id";
     String DATE_FIELD = "@timestamp";
     String LOG_FILE_FIELD = "source";
     String LOG_FILE_SORT_FIELD = "source.keyword";
     String DATA_FIELD = "message";
     String DATA_SORT_FIELD = "message.keyword";
     String DATA_SEARCH_FIELD = "message.search";
+    String DATA_NGRAM_FIELD = "message.ngram";
+    int NGRAM_SIZE = 3;
     String LOG_FILE_AGGREGATION = "logfiles";
     String LOG_FILE_COUNT_AGGREGATION = "count_logfiles";
+    int APPROXIMATE_LOG_FILE_COUNT_PRECISION = 100;
+    String HISTOGRAM_AGGREGATION = "histogram";
     String REGISTRY_INDEX = "vmlog-registry";
     String REGISTRY_TYPE = "_doc";
+    String LOG_FILE_CATALOG_INDEX = "vmlog-files";
+    String LOG_FILE_CATALOG_TYPE = "_doc";
+    String FIRST_SEEN_AGGREGATION = "first_seen";
+    String LAST_SEEN_AGGREGATION = "last_seen";
 
-    SearchRequest getLogSearchRequest(String vmUuid, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile,
-            List<SortField> sortFields);
+    /**
+     * @param dates dates of daily indices to search in; all indices of the virtual machine are searched in if null or empty
+     */
+    SearchRequest getLogSearchRequest(String vmUuid, List<LocalDate> dates, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile,
+            List<SortField> sortFields, List<Object> searchAfter);
+
+    /**
+     * Builds the request which searches logs of several virtual machines at once. Hits contain {@link com.bwsw.cloudstack.vm.logs.entity.EntityConstants#VM_UUID}
+     * field.
+     *
+     * @param vmDates dates of daily indices to search in per virtual machine; all indices of the virtual machine are searched in if dates are null or empty
+     */
+    SearchRequest getLogSearchRequest(Map<String, List<LocalDate>> vmDates, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end,
+            List<String> keywords, String logFile, List<SortField> sortFields, List<Object> searchAfter);
+
+    /**
+     * Builds the request which finds out if there are logs newer than the specified date/time without retrieving them.
+     */
+    SearchRequest getLogProbeRequest(String vmUuid, List<LocalDate> dates, LocalDateTime after, List<String> keywords, String logFile);
+
+    /**
+     * Builds the request which counts logs per time bucket without retrieving them.
+     *
+     * @param interval the bucket size in milliseconds
+     */
+    SearchRequest getLogHistogramRequest(String vmUuid, List<LocalDate> dates, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, long interval);
 
     SearchScrollRequest getScrollRequest(String scrollId, int scrollTimeout);
 
-    SearchRequest getLogFileSearchRequest(String vmUuid, int pageSize, Map<String, Object> aggregateAfter, LocalDateTime start, LocalDateTime end);
+    /**
+     * @param count the method to count log files; the count aggregation is omitted for {@link LogFileCount#NONE}
+     */
+    SearchRequest getLogFileSearchRequest(String vmUuid, List<LocalDate> dates, int pageSize, Map<String, Object> aggregateAfter, LocalDateTime start, LocalDateTime end,
+            LogFileCount count);
+
+    /**
+     * Builds the request which collects statistics of log files for logs of the daily index within the range (after, before].
+     *
+     * @param after the beginning of the range; all logs before the end of the range are used if null
+     */
+    SearchRequest getLogFileStatsRequest(String index, LocalDateTime after, LocalDateTime before, int pageSize, Map<String, Object> aggregateAfter);
+
+    /**
+     * Builds the request which merges statistics of the log file collected within the range (after, checkpoint] into the catalog entry of the log file
+     * for the daily index. The entry is not changed if statistics of the range have been merged already.
+     */
+    UpdateRequest getLogFileCatalogUpdateRequest(String vmUuid, String index, LogFile logFile, LocalDateTime after, LocalDateTime checkpoint);
+
+    UpdateRequest getLogFileCheckpointUpdateRequest(String index, LocalDateTime checkpoint);
+
+    /**
+     * @param after the daily index to list checkpoints after
+     */
+    SearchRequest getLogFileCheckpointSearchRequest(int pageSize, String after);
+
+    /**
+     * Builds the request which deletes catalog entries and checkpoints of daily indices.
+     */
+    Request getLogFileCatalogDeleteRequest(Collection<String> indices);
+
+    /**
+     * Builds the request which lists distinct log files of the virtual machine from the catalog.
+     *
+     * @param after the log file to list log files after
+     */
+    SearchRequest getLogFileCatalogSearchRequest(String vmUuid, int from, int pageSize, String after);
 
     IndexRequest getCreateTokenRequest(Token token) throws JsonProcessingException;
 
@@ -57,5 +134,27 @@ public interface VmLogRequestBuilder {
 
     UpdateRequest getInvalidateTokenRequest(String token, LocalDateTime validTo);
 
+    /**
+     * Builds the request which lists tokens sorted by the token.
+     *
+     * @param changedAfter the time to list tokens created or invalidated at or after, all tokens are listed if it is null
+     * @param after        the token to list tokens after
+     */
+    SearchRequest getTokenSearchRequest(LocalDateTime changedAfter, int pageSize, String after);
+
+    /**
+     * Builds the request which invalidates valid tokens of the virtual machines.
+     */
+    Request getVmTokensInvalidateRequest(Collection<String> vmUuids, LocalDateTime validTo) throws IOException;
+
+    /**
+     * Builds requests which delete the indices, names are split between requests to keep request lines short.
+     *
+     * @param indices concrete index names
+     */
+    List<Request> getLogIndicesDeleteRequests(List<String> indices);
+
     Request getLogIndicesStatsRequest();
+
+    Request getLogIndicesRequest();
 }
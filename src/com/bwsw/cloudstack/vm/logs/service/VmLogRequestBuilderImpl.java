@@ -18,84 +18,141 @@
 package com.bwsw.cloudstack.vm.logs.service;
 
 import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.entity.LogFileCount;
 import com.bwsw.cloudstack.vm.logs.entity.SortField;
 import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.bwsw.cloudstack.vm.logs.util.IndexName;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.ExtendedBounds;
 import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregationBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.collapse.CollapseBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 public class VmLogRequestBuilderImpl implements VmLogRequestBuilder {
 
-    private static final String INDEX_PREFIX = "vmlog-";
     private static final String INDEX_SUFFIX = "-*";
     private static final String INDEX_PATTERN = "vmlog-*-*";
     private static final String[] FIELDS = new String[] {LOG_FILE_FIELD, DATA_FIELD, DATE_FIELD};
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    private static final String[] MULTI_VM_FIELDS = new String[] {LOG_FILE_FIELD, DATA_FIELD, DATE_FIELD, EntityConstants.VM_UUID};
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final int MAX_DAILY_INDICES_PER_MONTH = 10;
+    // Elasticsearch limits the length of the HTTP request line to 4 KB by default
+    private static final int MAX_INDICES_LENGTH = 3000;
     private static final String LOG_FILE_KEYWORD_FIELD = LOG_FILE_FIELD + ".keyword";
     private static final String[] WILDCARD_CHARS = new String[] {"*", "?", "\\"};
     private static final String[] WILDCARD_ESCAPED_CHARS = new String[] {"\\*", "\\?", "\\\\"};
+    private static final String STATS_FILTER_PATH = "indices.*.total.store.size_in_bytes";
+    private static final String KEYWORD_TYPE = "keyword";
+    private static final String CHECKPOINT_ID_PREFIX = "checkpoint-";
+    private static final String AFTER_PARAM = "after";
+    // Painless has no overloads by parameter types so Math.min/max would convert timestamps to doubles
+    private static final String LOG_FILE_CATALOG_UPDATE_SCRIPT = "if (ctx._source.checkpoint > params.after) { ctx.op = 'none' } else { "
+            + "if (params.first_seen < ctx._source.first_seen) { ctx._source.first_seen = params.first_seen } "
+            + "if (params.last_seen > ctx._source.last_seen) { ctx._source.last_seen = params.last_seen } "
+            + "ctx._source.doc_count += params.doc_count; ctx._source.checkpoint = params.checkpoint }";
+    private static final String LOG_FILE_CHECKPOINT_UPDATE_SCRIPT = "if (ctx._source.checkpoint < params.checkpoint) { ctx._source.checkpoint = params.checkpoint } "
+            + "else { ctx.op = 'none' }";
+    private static final String TOKEN_INVALIDATE_SCRIPT = "ctx._source.valid_to = params.valid_to";
+    // the maximum precision threshold makes counts exact for any reasonable number of log files
+    private static final int MAX_COUNT_PRECISION = 40000;
 
     private final ObjectMapper _objectMapper = new ObjectMapper();
 
     @Override
-    public SearchRequest getLogSearchRequest(String vmUuid, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile,
-            List<SortField> sortFields) {
-        SearchRequest request = new SearchRequest(getIndex(vmUuid));
+    public SearchRequest getLogSearchRequest(String vmUuid, List<LocalDate> dates, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end,
+            List<String> keywords, String logFile, List<SortField> sortFields, List<Object> searchAfter) {
+        return getLogSearchRequest(getSearchRequest(vmUuid, dates), FIELDS, page, pageSize, timeout, start, end, keywords, logFile, sortFields, searchAfter);
+    }
+
+    @Override
+    public SearchRequest getLogSearchRequest(Map<String, List<LocalDate>> vmDates, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end,
+            List<String> keywords, String logFile, List<SortField> sortFields, List<Object> searchAfter) {
+        List<String> indices = new ArrayList<>();
+        vmDates.forEach((vmUuid, dates) -> {
+            if (dates == null || dates.isEmpty()) {
+                indices.add(IndexName.PREFIX + vmUuid + INDEX_SUFFIX);
+            } else {
+                indices.addAll(Arrays.asList(getIndices(vmUuid, dates)));
+            }
+        });
+        if (String.join(",", indices).length() > MAX_INDICES_LENGTH) {
+            // indices of all virtual machines are limited as well as indices of each one
+            indices.clear();
+            vmDates.keySet().forEach(vmUuid -> indices.add(IndexName.PREFIX + vmUuid + INDEX_SUFFIX));
+        }
+        SearchRequest request = new SearchRequest(indices.toArray(new String[0]));
+        // indices for recent days may not exist yet
+        request.indicesOptions(IndicesOptions.lenientExpandOpen());
+        return getLogSearchRequest(request, MULTI_VM_FIELDS, page, pageSize, timeout, start, end, keywords, logFile, sortFields, searchAfter);
+    }
 
+    private SearchRequest getLogSearchRequest(SearchRequest request, String[] fields, int page, int pageSize, Integer timeout, LocalDateTime start, LocalDateTime end,
+            List<String> keywords, String logFile, List<SortField> sortFields, List<Object> searchAfter) {
         SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-        sourceBuilder.fetchSource(FIELDS, null);
+        sourceBuilder.fetchSource(fields, null);
         sourceBuilder.size(pageSize);
 
+        // only first pages and search after requests return sort values with the tiebreaker to request following pages
+        boolean tiebreaker = timeout == null && (page == 1 || searchAfter != null && !searchAfter.isEmpty());
         if (timeout != null) {
             request.scroll(TimeValue.timeValueMillis(timeout));
+        } else if (searchAfter != null && !searchAfter.isEmpty()) {
+            sourceBuilder.searchAfter(searchAfter.toArray());
         } else {
             sourceBuilder.from((page - 1) * pageSize);
         }
 
-        BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
-        if (start != null || end != null) {
-            RangeQueryBuilder dateFilter = QueryBuilders.rangeQuery(DATE_FIELD);
-            if (start != null) {
-                dateFilter.gte(format(start));
-            }
-            if (end != null) {
-                dateFilter.lt(format(end));
-            }
-            queryBuilder.filter(dateFilter);
-        }
-        if (!Strings.isNullOrEmpty(logFile)) {
-            queryBuilder.filter(QueryBuilders.termQuery(LOG_FILE_KEYWORD_FIELD, logFile));
-        }
-        if (keywords != null && !keywords.isEmpty()) {
-            keywords.forEach(e -> queryBuilder
-                    .must(QueryBuilders.wildcardQuery(DATA_SEARCH_FIELD, StringUtils.wrap(StringUtils.replaceEach(e, WILDCARD_CHARS, WILDCARD_ESCAPED_CHARS), '*'))));
-        }
+        BoolQueryBuilder queryBuilder = getLogQuery(start, end, keywords, logFile);
         if (queryBuilder.hasClauses()) {
             sourceBuilder.query(queryBuilder);
         }
@@ -103,7 +160,57 @@ public class VmLogRequestBuilderImpl implements VmLogRequestBuilder {
             for (SortField sortField : sortFields) {
                 sourceBuilder.sort(sortField.getField(), convert(sortField.getOrder()));
             }
+        } else if (tiebreaker) {
+            sourceBuilder.sort(SortBuilders.scoreSort());
+        }
+        if (tiebreaker) {
+            // logs indexed before the field was introduced have no values and are sorted last
+            sourceBuilder.sort(SortBuilders.fieldSort(LOG_ID_FIELD).order(SortOrder.ASC).unmappedType(KEYWORD_TYPE));
+            // search after cannot resume from null values so logs without log_id are told apart by _id which every log has
+            sourceBuilder.sort(SortBuilders.fieldSort(ID_FIELD).order(SortOrder.ASC));
+        }
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public SearchRequest getLogProbeRequest(String vmUuid, List<LocalDate> dates, LocalDateTime after, List<String> keywords, String logFile) {
+        SearchRequest request = getSearchRequest(vmUuid, dates);
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.size(0);
+        // any matching log is enough
+        sourceBuilder.terminateAfter(1);
+
+        BoolQueryBuilder queryBuilder = getLogQuery(null, null, keywords, logFile);
+        queryBuilder.filter(QueryBuilders.rangeQuery(DATE_FIELD).gt(format(after)));
+        sourceBuilder.query(queryBuilder);
+
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public SearchRequest getLogHistogramRequest(String vmUuid, List<LocalDate> dates, LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile,
+            long interval) {
+        SearchRequest request = getSearchRequest(vmUuid, dates);
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.size(0);
+
+        BoolQueryBuilder queryBuilder = getLogQuery(start, end, keywords, logFile);
+        if (queryBuilder.hasClauses()) {
+            sourceBuilder.query(queryBuilder);
         }
+
+        DateHistogramAggregationBuilder histogramBuilder = AggregationBuilders.dateHistogram(HISTOGRAM_AGGREGATION).field(DATE_FIELD).interval(interval)
+                .format(DATE_TIME_PATTERN).minDocCount(0);
+        if (start != null && end != null) {
+            // empty buckets at the edges of the requested range are returned as well, the end is exclusive
+            histogramBuilder.extendedBounds(new ExtendedBounds(format(start), format(end.minusNanos(1000000))));
+        }
+        sourceBuilder.aggregation(histogramBuilder);
+
         request.source(sourceBuilder);
         return request;
     }
@@ -116,8 +223,9 @@ public class VmLogRequestBuilderImpl implements VmLogRequestBuilder {
     }
 
     @Override
-    public SearchRequest getLogFileSearchRequest(String vmUuid, int pageSize, Map<String, Object> aggregateAfter, LocalDateTime start, LocalDateTime end) {
-        SearchRequest request = new SearchRequest(getIndex(vmUuid));
+    public SearchRequest getLogFileSearchRequest(String vmUuid, List<LocalDate> dates, int pageSize, Map<String, Object> aggregateAfter, LocalDateTime start,
+            LocalDateTime end, LogFileCount count) {
+        SearchRequest request = getSearchRequest(vmUuid, dates);
 
         SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
         sourceBuilder.size(0);
@@ -140,8 +248,131 @@ public class VmLogRequestBuilderImpl implements VmLogRequestBuilder {
         }
         sourceBuilder.aggregation(termBuilder);
 
-        CardinalityAggregationBuilder countBuilder = AggregationBuilders.cardinality(LOG_FILE_COUNT_AGGREGATION).field(LOG_FILE_KEYWORD_FIELD);
-        sourceBuilder.aggregation(countBuilder);
+        if (count != LogFileCount.NONE) {
+            CardinalityAggregationBuilder countBuilder = AggregationBuilders.cardinality(LOG_FILE_COUNT_AGGREGATION).field(LOG_FILE_KEYWORD_FIELD);
+            if (count == LogFileCount.APPROXIMATE) {
+                countBuilder.precisionThreshold(APPROXIMATE_LOG_FILE_COUNT_PRECISION);
+            }
+            sourceBuilder.aggregation(countBuilder);
+        }
+
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public SearchRequest getLogFileStatsRequest(String index, LocalDateTime after, LocalDateTime before, int pageSize, Map<String, Object> aggregateAfter) {
+        SearchRequest request = new SearchRequest(index);
+        // the index may be deleted by the time the request is sent
+        request.indicesOptions(IndicesOptions.lenientExpandOpen());
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.size(0);
+        sourceBuilder.trackTotalHits(false);
+
+        RangeQueryBuilder dateFilter = QueryBuilders.rangeQuery(DATE_FIELD).lte(format(before));
+        if (after != null) {
+            dateFilter.gt(format(after));
+        }
+        sourceBuilder.query(dateFilter);
+
+        CompositeAggregationBuilder termBuilder = new CompositeAggregationBuilder(LOG_FILE_AGGREGATION,
+                Collections.singletonList(new TermsValuesSourceBuilder(LOG_FILE_FIELD).field(LOG_FILE_KEYWORD_FIELD).order(SortOrder.ASC))).size(pageSize);
+        if (aggregateAfter != null) {
+            termBuilder.aggregateAfter(aggregateAfter);
+        }
+        termBuilder.subAggregation(AggregationBuilders.min(FIRST_SEEN_AGGREGATION).field(DATE_FIELD));
+        termBuilder.subAggregation(AggregationBuilders.max(LAST_SEEN_AGGREGATION).field(DATE_FIELD));
+        sourceBuilder.aggregation(termBuilder);
+
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public UpdateRequest getLogFileCatalogUpdateRequest(String vmUuid, String index, LogFile logFile, LocalDateTime after, LocalDateTime checkpoint) {
+        Map<String, Object> params = new HashMap<>();
+        params.put(EntityConstants.FIRST_SEEN, logFile.getFirstSeen());
+        params.put(EntityConstants.LAST_SEEN, logFile.getLastSeen());
+        params.put(EntityConstants.DOC_COUNT, logFile.getDocCount());
+        params.put(EntityConstants.CHECKPOINT, toMillis(checkpoint));
+        params.put(AFTER_PARAM, after != null ? toMillis(after) : 0L);
+
+        Map<String, Object> document = new HashMap<>();
+        document.put(EntityConstants.VM_UUID, vmUuid);
+        document.put(EntityConstants.INDEX, index);
+        document.put(EntityConstants.FILE, logFile.getFile());
+        document.put(EntityConstants.FIRST_SEEN, logFile.getFirstSeen());
+        document.put(EntityConstants.LAST_SEEN, logFile.getLastSeen());
+        document.put(EntityConstants.DOC_COUNT, logFile.getDocCount());
+        document.put(EntityConstants.CHECKPOINT, toMillis(checkpoint));
+
+        // log file paths may exceed the maximum length of document ids
+        UpdateRequest request = new UpdateRequest(LOG_FILE_CATALOG_INDEX, LOG_FILE_CATALOG_TYPE, DigestUtils.sha1Hex(index + "/" + logFile.getFile()));
+        request.script(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, LOG_FILE_CATALOG_UPDATE_SCRIPT, params));
+        request.upsert(document);
+        return request;
+    }
+
+    @Override
+    public UpdateRequest getLogFileCheckpointUpdateRequest(String index, LocalDateTime checkpoint) {
+        Map<String, Object> params = Collections.singletonMap(EntityConstants.CHECKPOINT, toMillis(checkpoint));
+
+        Map<String, Object> document = new HashMap<>();
+        document.put(EntityConstants.INDEX, index);
+        document.put(EntityConstants.CHECKPOINT, toMillis(checkpoint));
+
+        UpdateRequest request = new UpdateRequest(LOG_FILE_CATALOG_INDEX, LOG_FILE_CATALOG_TYPE, CHECKPOINT_ID_PREFIX + index);
+        request.script(new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, LOG_FILE_CHECKPOINT_UPDATE_SCRIPT, params));
+        request.upsert(document);
+        return request;
+    }
+
+    @Override
+    public SearchRequest getLogFileCheckpointSearchRequest(int pageSize, String after) {
+        SearchRequest request = new SearchRequest(LOG_FILE_CATALOG_INDEX);
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.fetchSource(new String[] {EntityConstants.INDEX, EntityConstants.CHECKPOINT}, null);
+        sourceBuilder.size(pageSize);
+        // checkpoints are the only catalog documents without a virtual machine
+        sourceBuilder.query(QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(EntityConstants.VM_UUID)));
+        sourceBuilder.sort(EntityConstants.INDEX, SortOrder.ASC);
+        if (after != null) {
+            sourceBuilder.searchAfter(new Object[] {after});
+        }
+
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public Request getLogFileCatalogDeleteRequest(Collection<String> indices) {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.query(QueryBuilders.termsQuery(EntityConstants.INDEX, indices));
+        // entries being updated concurrently are deleted by the next request
+        return new Request("POST", LOG_FILE_CATALOG_INDEX + "/_delete_by_query", Collections.singletonMap("conflicts", "proceed"),
+                new StringEntity(sourceBuilder.toString(), ContentType.APPLICATION_JSON));
+    }
+
+    @Override
+    public SearchRequest getLogFileCatalogSearchRequest(String vmUuid, int from, int pageSize, String after) {
+        SearchRequest request = new SearchRequest(LOG_FILE_CATALOG_INDEX);
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.fetchSource(EntityConstants.FILE, null);
+        sourceBuilder.from(from);
+        sourceBuilder.size(pageSize);
+
+        BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery().filter(QueryBuilders.termQuery(EntityConstants.VM_UUID, vmUuid));
+        if (after != null) {
+            queryBuilder.filter(QueryBuilders.rangeQuery(EntityConstants.FILE).gt(after));
+        }
+        sourceBuilder.query(queryBuilder);
+        // the catalog has an entry per log file and daily index
+        sourceBuilder.collapse(new CollapseBuilder(EntityConstants.FILE));
+        sourceBuilder.sort(EntityConstants.FILE, SortOrder.ASC);
+        sourceBuilder.aggregation(AggregationBuilders.cardinality(LOG_FILE_COUNT_AGGREGATION).field(EntityConstants.FILE).precisionThreshold(MAX_COUNT_PRECISION));
 
         request.source(sourceBuilder);
         return request;
@@ -170,19 +401,157 @@ public class VmLogRequestBuilderImpl implements VmLogRequestBuilder {
         return request;
     }
 
+    @Override
+    public SearchRequest getTokenSearchRequest(LocalDateTime changedAfter, int pageSize, String after) {
+        SearchRequest request = new SearchRequest(REGISTRY_INDEX);
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.size(pageSize);
+        if (changedAfter != null) {
+            String changedAfterValue = format(changedAfter);
+            sourceBuilder.query(QueryBuilders.boolQuery()
+                    .should(QueryBuilders.rangeQuery(EntityConstants.VALID_FROM).gte(changedAfterValue))
+                    .should(QueryBuilders.rangeQuery(EntityConstants.VALID_TO).gte(changedAfterValue))
+                    .minimumShouldMatch(1));
+        }
+        sourceBuilder.sort(EntityConstants.TOKEN, SortOrder.ASC);
+        if (after != null) {
+            sourceBuilder.searchAfter(new Object[] {after});
+        }
+
+        request.source(sourceBuilder);
+        return request;
+    }
+
+    @Override
+    public Request getVmTokensInvalidateRequest(Collection<String> vmUuids, LocalDateTime validTo) throws IOException {
+        BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
+        queryBuilder.filter(QueryBuilders.termsQuery(EntityConstants.VM_UUID, vmUuids));
+        queryBuilder.mustNot(QueryBuilders.existsQuery(EntityConstants.VALID_TO));
+        Map<String, Object> params = Collections.singletonMap(EntityConstants.VALID_TO, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(validTo));
+
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        builder.field("query", queryBuilder);
+        builder.field("script", new Script(ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, TOKEN_INVALIDATE_SCRIPT, params));
+        builder.endObject();
+        // tokens invalidated concurrently keep their dates
+        return new Request("POST", REGISTRY_INDEX + "/_update_by_query", Collections.singletonMap("conflicts", "proceed"),
+                new StringEntity(builder.string(), ContentType.APPLICATION_JSON));
+    }
+
+    @Override
+    public List<Request> getLogIndicesDeleteRequests(List<String> indices) {
+        List<Request> requests = new ArrayList<>();
+        StringBuilder names = new StringBuilder();
+        for (String index : indices) {
+            if (names.length() > 0 && names.length() + index.length() + 1 > MAX_INDICES_LENGTH) {
+                requests.add(getIndicesDeleteRequest(names.toString()));
+                names.setLength(0);
+            }
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(index);
+        }
+        if (names.length() > 0) {
+            requests.add(getIndicesDeleteRequest(names.toString()));
+        }
+        return requests;
+    }
+
     @Override
     public Request getLogIndicesStatsRequest() {
-        return new Request("GET", INDEX_PATTERN + "/_stats/store", Collections.emptyMap(), null);
+        // sizes of thousands of indices are returned without other stats
+        return new Request("GET", INDEX_PATTERN + "/_stats/store", Collections.singletonMap("filter_path", STATS_FILTER_PATH), null);
     }
 
-    private String getIndex(String vmUuid) {
-        return INDEX_PREFIX + vmUuid + INDEX_SUFFIX;
+    private BoolQueryBuilder getLogQuery(LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile) {
+        BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
+        if (start != null || end != null) {
+            RangeQueryBuilder dateFilter = QueryBuilders.rangeQuery(DATE_FIELD);
+            if (start != null) {
+                dateFilter.gte(format(start));
+            }
+            if (end != null) {
+                dateFilter.lt(format(end));
+            }
+            queryBuilder.filter(dateFilter);
+        }
+        if (!Strings.isNullOrEmpty(logFile)) {
+            queryBuilder.filter(QueryBuilders.termQuery(LOG_FILE_KEYWORD_FIELD, logFile));
+        }
+        if (keywords != null && !keywords.isEmpty()) {
+            keywords.forEach(e -> queryBuilder.must(getKeywordQuery(e)));
+        }
+        return queryBuilder;
+    }
+
+    /**
+     * Each index has either n-gram or wildcard subfield of the message depending on the template it was created with.
+     * A query for an unmapped field matches no documents at negligible cost so the clause for the missing subfield does not slow the search down.
+     */
+    private QueryBuilder getKeywordQuery(String keyword) {
+        QueryBuilder ngramQuery;
+        if (keyword.codePointCount(0, keyword.length()) >= NGRAM_SIZE) {
+            ngramQuery = QueryBuilders.matchPhraseQuery(DATA_NGRAM_FIELD, keyword);
+        } else {
+            // keywords shorter than n-grams are looked up in n-gram term dictionary that is much smaller than the one of whole messages
+            ngramQuery = QueryBuilders.wildcardQuery(DATA_NGRAM_FIELD, getWildcard(keyword.toLowerCase(Locale.ROOT)));
+        }
+        return QueryBuilders.boolQuery().should(ngramQuery).should(QueryBuilders.wildcardQuery(DATA_SEARCH_FIELD, getWildcard(keyword))).minimumShouldMatch(1);
+    }
+
+    private String getWildcard(String keyword) {
+        return StringUtils.wrap(StringUtils.replaceEach(keyword, WILDCARD_CHARS, WILDCARD_ESCAPED_CHARS), '*');
+    }
+
+    @Override
+    public Request getLogIndicesRequest() {
+        return new Request("GET", "_cat/indices/" + INDEX_PATTERN, Collections.singletonMap("h", "index"), null);
+    }
+
+    private Request getIndicesDeleteRequest(String indices) {
+        // indices deleted concurrently, e.g. by Curator, are skipped
+        return new Request("DELETE", indices, Collections.singletonMap("ignore_unavailable", "true"), null);
+    }
+
+    private SearchRequest getSearchRequest(String vmUuid, List<LocalDate> dates) {
+        if (dates == null || dates.isEmpty()) {
+            return new SearchRequest(IndexName.PREFIX + vmUuid + INDEX_SUFFIX);
+        }
+        SearchRequest request = new SearchRequest(getIndices(vmUuid, dates));
+        // indices for recent days may not exist yet
+        request.indicesOptions(IndicesOptions.lenientExpandOpen());
+        return request;
+    }
+
+    private String[] getIndices(String vmUuid, List<LocalDate> dates) {
+        // daily indices of months with many requested days are replaced with a monthly pattern to keep the request line short
+        Map<YearMonth, List<LocalDate>> months = dates.stream().collect(Collectors.groupingBy(YearMonth::from, TreeMap::new, Collectors.toList()));
+        List<String> indices = new ArrayList<>();
+        for (Map.Entry<YearMonth, List<LocalDate>> month : months.entrySet()) {
+            if (month.getValue().size() > MAX_DAILY_INDICES_PER_MONTH) {
+                indices.add(IndexName.PREFIX + vmUuid + "-" + MONTH_FORMATTER.format(month.getKey()) + INDEX_SUFFIX);
+            } else {
+                month.getValue().forEach(e -> indices.add(IndexName.format(vmUuid, e)));
+            }
+        }
+        if (String.join(",", indices).length() > MAX_INDICES_LENGTH) {
+            // date filters skip shards of other days cheaply so the whole VM index pattern is searched in instead
+            return new String[] {IndexName.PREFIX + vmUuid + INDEX_SUFFIX};
+        }
+        return indices.toArray(new String[0]);
     }
 
     private String format(LocalDateTime dateTime) {
         return DATE_TIME_FORMATTER.format(dateTime);
     }
 
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
     private SortOrder convert(SortField.SortOrder sortOrder) {
         switch (sortOrder) {
         case ASC:
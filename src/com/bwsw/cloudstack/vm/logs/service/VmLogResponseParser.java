@@ -0,0 +1,307 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.entity.ResponseEntity;
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
+import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramBucketResponse;
+import com.bwsw.cloudstack.vm.logs.util.SearchRequestUtils;
+import com.cloud.utils.exception.CloudRuntimeException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpStatus;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.cardinality.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.cardinality.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Converts Elasticsearch responses for both synchronous and asynchronous executors.
+ */
+public class VmLogResponseParser {
+
+    private static final String SCROLL_ID_FIELD = "_scroll_id";
+    private static final String HITS_FIELD = "hits";
+    private static final String TOTAL_FIELD = "total";
+    private static final String ID_FIELD = "_id";
+    private static final String SOURCE_FIELD = "_source";
+    private static final String SORT_FIELD = "sort";
+    private static final TypeReference<List<Object>> SORT_VALUES_TYPE = new TypeReference<List<Object>>() {
+    };
+
+    private final ObjectMapper _objectMapper = new ObjectMapper();
+
+    /**
+     * Streams a raw search response filtered with {@link SearchRequestUtils#FILTER_PATH} into response entities without building
+     * intermediate search hits or source strings.
+     */
+    public <T extends ResponseEntity> ScrollableListResponse<T> parseSearch(Response response, Class<T> elementClass) throws IOException {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK || response.getEntity() == null) {
+            throw new CloudRuntimeException("Failed to retrieve VM logs");
+        }
+        try (InputStream content = response.getEntity().getContent(); JsonParser parser = _objectMapper.getFactory().createParser(content)) {
+            return parseSearch(parser, elementClass);
+        }
+    }
+
+    public AggregateResponse<VmLogFileResponse> parseLogFiles(SearchResponse response) throws IOException {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log files");
+        }
+        if (response.getAggregations() == null) {
+            return new AggregateResponse<>(Collections.emptyList(), 0, null);
+        }
+        Aggregation valueAggregation = response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_AGGREGATION);
+        if (valueAggregation == null || !CompositeAggregationBuilder.NAME.equals(valueAggregation.getType())) {
+            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_AGGREGATION);
+        }
+
+        // the count aggregation is requested for the first page only
+        Aggregation countAggregation = response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION);
+        if (countAggregation != null && !CardinalityAggregationBuilder.NAME.equals(countAggregation.getType())) {
+            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION);
+        }
+
+        CompositeAggregation compositeAggregation = (CompositeAggregation)valueAggregation;
+        List<VmLogFileResponse> responses = new ArrayList<>();
+        List<? extends CompositeAggregation.Bucket> buckets = compositeAggregation.getBuckets();
+        if (buckets != null && !buckets.isEmpty()) {
+            for (CompositeAggregation.Bucket bucket : buckets) {
+                if (bucket.getKey() != null) {
+                    String file = (String)bucket.getKey().get(VmLogRequestBuilder.LOG_FILE_FIELD);
+                    if (file == null) {
+                        throw new IOException("No data for log file");
+                    }
+                    responses.add(new VmLogFileResponse(file));
+                }
+            }
+        }
+
+        int count = countAggregation != null ? (int)((Cardinality)countAggregation).getValue() : AggregateResponse.UNKNOWN_COUNT;
+        return new AggregateResponse<>(responses, count, compositeAggregation.afterKey());
+    }
+
+    public AggregateResponse<VmLogHistogramBucketResponse> parseHistogram(SearchResponse response) {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log histogram");
+        }
+        int total = (int)response.getHits().getTotalHits();
+        if (response.getAggregations() == null) {
+            return new AggregateResponse<>(Collections.emptyList(), total, null);
+        }
+        Aggregation aggregation = response.getAggregations().get(VmLogRequestBuilder.HISTOGRAM_AGGREGATION);
+        if (aggregation == null || !DateHistogramAggregationBuilder.NAME.equals(aggregation.getType())) {
+            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.HISTOGRAM_AGGREGATION);
+        }
+        List<VmLogHistogramBucketResponse> responses = new ArrayList<>();
+        for (Histogram.Bucket bucket : ((Histogram)aggregation).getBuckets()) {
+            responses.add(new VmLogHistogramBucketResponse(bucket.getKeyAsString(), bucket.getDocCount()));
+        }
+        return new AggregateResponse<>(responses, total, null);
+    }
+
+    public AggregateResponse<LogFile> parseLogFileStats(SearchResponse response) {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log file statistics");
+        }
+        if (response.getAggregations() == null) {
+            return new AggregateResponse<>(Collections.emptyList(), AggregateResponse.UNKNOWN_COUNT, null);
+        }
+        Aggregation aggregation = response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_AGGREGATION);
+        if (aggregation == null || !CompositeAggregationBuilder.NAME.equals(aggregation.getType())) {
+            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_AGGREGATION);
+        }
+        CompositeAggregation compositeAggregation = (CompositeAggregation)aggregation;
+        List<LogFile> logFiles = new ArrayList<>();
+        for (CompositeAggregation.Bucket bucket : compositeAggregation.getBuckets()) {
+            Object file = bucket.getKey() != null ? bucket.getKey().get(VmLogRequestBuilder.LOG_FILE_FIELD) : null;
+            Min firstSeen = bucket.getAggregations().get(VmLogRequestBuilder.FIRST_SEEN_AGGREGATION);
+            Max lastSeen = bucket.getAggregations().get(VmLogRequestBuilder.LAST_SEEN_AGGREGATION);
+            if (file == null || firstSeen == null || lastSeen == null) {
+                throw new CloudRuntimeException("Invalid VM log file statistics");
+            }
+            logFiles.add(new LogFile((String)file, (long)firstSeen.getValue(), (long)lastSeen.getValue(), bucket.getDocCount()));
+        }
+        return new AggregateResponse<>(logFiles, AggregateResponse.UNKNOWN_COUNT, compositeAggregation.afterKey());
+    }
+
+    public AggregateResponse<VmLogFileResponse> parseLogFileCatalog(SearchResponse response) {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log files");
+        }
+        List<VmLogFileResponse> responses = new ArrayList<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            Object file = hit.getSourceAsMap() != null ? hit.getSourceAsMap().get(EntityConstants.FILE) : null;
+            if (file == null) {
+                throw new CloudRuntimeException("No data for log file");
+            }
+            responses.add(new VmLogFileResponse((String)file));
+        }
+        Aggregation countAggregation = response.getAggregations() != null ? response.getAggregations().get(VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION) : null;
+        if (countAggregation == null || !CardinalityAggregationBuilder.NAME.equals(countAggregation.getType())) {
+            throw new CloudRuntimeException("Invalid aggregation " + VmLogRequestBuilder.LOG_FILE_COUNT_AGGREGATION);
+        }
+        return new AggregateResponse<>(responses, (int)((Cardinality)countAggregation).getValue(), null);
+    }
+
+    public NavigableMap<String, LocalDateTime> parseLogFileCheckpoints(SearchResponse response) {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log file checkpoints");
+        }
+        NavigableMap<String, LocalDateTime> checkpoints = new TreeMap<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            Map<String, Object> source = hit.getSourceAsMap();
+            Object index = source != null ? source.get(EntityConstants.INDEX) : null;
+            Object checkpoint = source != null ? source.get(EntityConstants.CHECKPOINT) : null;
+            if (!(index instanceof String) || !(checkpoint instanceof Number)) {
+                throw new CloudRuntimeException("Invalid VM log file checkpoint " + hit.getId());
+            }
+            checkpoints.put((String)index, LocalDateTime.ofInstant(Instant.ofEpochMilli(((Number)checkpoint).longValue()), ZoneOffset.UTC));
+        }
+        return checkpoints;
+    }
+
+    public List<Token> parseTokens(SearchResponse response) throws IOException {
+        if (response.status() != RestStatus.OK) {
+            throw new CloudRuntimeException("Failed to retrieve VM log tokens");
+        }
+        List<Token> tokens = new ArrayList<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            tokens.add(_objectMapper.readValue(hit.getSourceAsString(), Token.class));
+        }
+        return tokens;
+    }
+
+    public void checkIndex(IndexResponse response) {
+        if (response.status() != RestStatus.CREATED) {
+            throw new CloudRuntimeException("Failed to execute create operation");
+        }
+    }
+
+    public <T> T parseGet(GetResponse response, Class<T> entityClass) throws IOException {
+        if (response.isExists() && !response.isSourceEmpty()) {
+            return _objectMapper.readValue(response.getSourceAsString(), entityClass);
+        }
+        return null;
+    }
+
+    public void checkUpdate(UpdateResponse response) {
+        // upserts create missing documents
+        if (response.status() != RestStatus.OK && response.status() != RestStatus.CREATED) {
+            throw new CloudRuntimeException("Failed to execute update operation");
+        }
+    }
+
+    private <T extends ResponseEntity> ScrollableListResponse<T> parseSearch(JsonParser parser, Class<T> elementClass) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Invalid search response");
+        }
+        Integer total = null;
+        String scrollId = null;
+        List<T> results = new ArrayList<>();
+        List<Object> searchAfter = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (SCROLL_ID_FIELD.equals(field)) {
+                scrollId = parser.getText();
+            } else if (HITS_FIELD.equals(field)) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hitsField = parser.getCurrentName();
+                    parser.nextToken();
+                    if (TOTAL_FIELD.equals(hitsField)) {
+                        total = parser.getIntValue();
+                    } else if (HITS_FIELD.equals(hitsField)) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            searchAfter = parseHit(parser, elementClass, results);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (total == null) {
+            throw new CloudRuntimeException("Failed to retrieve VM logs");
+        }
+        return new ScrollableListResponse<>(total, results, scrollId, searchAfter);
+    }
+
+    /**
+     * Adds the entity of the current hit to the results.
+     *
+     * @return sort values of the hit or null if the hit is not sorted
+     */
+    private <T extends ResponseEntity> List<Object> parseHit(JsonParser parser, Class<T> elementClass, List<T> results) throws IOException {
+        String id = null;
+        T element = null;
+        List<Object> sortValues = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if (ID_FIELD.equals(field)) {
+                id = parser.getText();
+            } else if (SOURCE_FIELD.equals(field)) {
+                element = _objectMapper.readValue(parser, elementClass);
+            } else if (SORT_FIELD.equals(field)) {
+                sortValues = _objectMapper.readValue(parser, SORT_VALUES_TYPE);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (element == null) {
+            throw new IOException("No source for hit " + id);
+        }
+        element.setId(id);
+        results.add(element);
+        return sortValues == null || sortValues.isEmpty() ? null : sortValues;
+    }
+}
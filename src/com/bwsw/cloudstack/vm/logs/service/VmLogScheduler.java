@@ -0,0 +1,53 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import org.elasticsearch.common.CheckedRunnable;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs background jobs of the plugin periodically. Runs of a job never overlap: the next run is scheduled after the previous one has finished,
+ * the interval is read then so it can be changed at runtime. Runs are delayed by a random jitter up to 10% of the interval. Runs exceeding
+ * the deadline are interrupted.
+ * <p>
+ * One of management servers is elected the leader with a database lock which is held until the management server stops. Leader-only jobs are
+ * skipped on other management servers; the leadership passes to another management server once the lock of a stopped or failed one is released.
+ */
+public interface VmLogScheduler {
+
+    /**
+     * @param name       the job name
+     * @param interval   the interval in seconds between runs; the job is paused while it is not positive
+     * @param deadline   the maximum duration in seconds of a run; 0 means no deadline
+     * @param immediate  whether the first run should be started with the jitter only
+     * @param leaderOnly whether the job should run on the leader only
+     * @param job        the job
+     */
+    void schedule(String name, Supplier<Integer> interval, Supplier<Integer> deadline, boolean immediate, boolean leaderOnly, CheckedRunnable<Exception> job);
+
+    boolean isLeader();
+
+    /**
+     * @return the number of times the management server has been elected the leader, it changes whenever the leadership is regained
+     */
+    long getLeaderTerm();
+
+    List<JobStats> getJobStats();
+}
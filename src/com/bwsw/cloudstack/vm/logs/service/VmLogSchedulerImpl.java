@@ -0,0 +1,255 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.cloud.utils.component.ComponentLifecycleBase;
+import com.cloud.utils.concurrency.NamedThreadFactory;
+import org.apache.log4j.Logger;
+import org.elasticsearch.common.CheckedRunnable;
+
+import javax.naming.ConfigurationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+public class VmLogSchedulerImpl extends ComponentLifecycleBase implements VmLogScheduler {
+
+    private static final Logger s_logger = Logger.getLogger(VmLogSchedulerImpl.class);
+
+    private static final String SCHEDULER_THREAD_NAME = "VM_LOG_SCHEDULER";
+    private static final String JOB_THREAD_NAME = "VM_LOG_JOB";
+    private static final int JITTER_RATIO = 10;
+    private static final long PAUSE_INTERVAL = 60;
+    private static final String LEADER_LOCK_NAME = "vm.log.leader";
+    private static final long LEADER_CHECK_INTERVAL = 30;
+    private static final long STOP_TIMEOUT = 10;
+
+    private class Job implements Runnable {
+
+        private final String _name;
+        private final Supplier<Integer> _interval;
+        private final Supplier<Integer> _deadline;
+        private final boolean _leaderOnly;
+        private final CheckedRunnable<Exception> _job;
+
+        // statistics and the thread of the current run are guarded by the job
+        private Thread _thread;
+        private boolean _timedOut;
+        private long _runs;
+        private long _skipped;
+        private long _failures;
+        private long _timeouts;
+        private Long _lastStart;
+        private long _lastDuration;
+        private long _maxDuration;
+        private long _totalDuration;
+
+        Job(String name, Supplier<Integer> interval, Supplier<Integer> deadline, boolean leaderOnly, CheckedRunnable<Exception> job) {
+            _name = name;
+            _interval = interval;
+            _deadline = deadline;
+            _leaderOnly = leaderOnly;
+            _job = job;
+        }
+
+        void schedule(boolean immediate) {
+            int interval = _interval.get();
+            try {
+                if (interval <= 0) {
+                    _scheduler.schedule(() -> schedule(immediate), PAUSE_INTERVAL, TimeUnit.SECONDS);
+                    return;
+                }
+                long intervalMs = interval * 1000L;
+                long delay = ThreadLocalRandom.current().nextLong(intervalMs / JITTER_RATIO + 1) + (immediate ? 0 : intervalMs);
+                _scheduler.schedule(this::execute, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // runs finishing after the scheduler has been stopped are not rescheduled
+                s_logger.debug("VM log job " + _name + " is dropped since the scheduler is stopped");
+            }
+        }
+
+        private void execute() {
+            try {
+                _executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                s_logger.debug("VM log job " + _name + " is dropped since the scheduler is stopped");
+            }
+        }
+
+        @Override
+        public void run() {
+            if (_leaderOnly && !_leader) {
+                synchronized (this) {
+                    _skipped++;
+                }
+                s_logger.debug("VM log job " + _name + " is skipped since the management server is not the leader");
+                schedule(false);
+                return;
+            }
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                _thread = Thread.currentThread();
+                _timedOut = false;
+                _lastStart = start;
+            }
+            int deadline = _deadline.get();
+            ScheduledFuture<?> deadlineTask = deadline > 0 ? _scheduler.schedule(this::interrupt, deadline, TimeUnit.SECONDS) : null;
+            boolean failed = false;
+            try {
+                _job.run();
+            } catch (Exception e) {
+                failed = true;
+                s_logger.error("VM log job " + _name + " failed", e);
+            } finally {
+                if (deadlineTask != null) {
+                    deadlineTask.cancel(false);
+                }
+                long duration = System.currentTimeMillis() - start;
+                synchronized (this) {
+                    _thread = null;
+                    _runs++;
+                    if (failed) {
+                        _failures++;
+                    }
+                    if (_timedOut) {
+                        _timeouts++;
+                    }
+                    _lastDuration = duration;
+                    _maxDuration = Math.max(_maxDuration, duration);
+                    _totalDuration += duration;
+                }
+                // the deadline may have been exceeded after the job had completed
+                Thread.interrupted();
+                s_logger.debug("VM log job " + _name + " finished in " + duration + " ms");
+                schedule(false);
+            }
+        }
+
+        synchronized JobStats getStats() {
+            return new JobStats(_name, _thread != null, _runs, _skipped, _failures, _timeouts, _lastStart, _lastDuration, _maxDuration, _totalDuration);
+        }
+
+        private synchronized void interrupt() {
+            if (_thread != null) {
+                s_logger.warn("VM log job " + _name + " has exceeded the deadline");
+                _timedOut = true;
+                _thread.interrupt();
+            }
+        }
+    }
+
+    private final Map<String, Job> _jobs = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService _scheduler;
+    private ExecutorService _executor;
+    // the lock is acquired and released by the scheduler thread since it is owned by the thread
+    private VmLogLeaderLock _leaderLock;
+    private volatile boolean _leader;
+    private volatile long _leaderTerm;
+
+    @Override
+    public void schedule(String name, Supplier<Integer> interval, Supplier<Integer> deadline, boolean immediate, boolean leaderOnly, CheckedRunnable<Exception> job) {
+        Job scheduledJob = new Job(name, interval, deadline, leaderOnly, job);
+        if (_jobs.putIfAbsent(name, scheduledJob) != null) {
+            throw new IllegalArgumentException("VM log job " + name + " is already scheduled");
+        }
+        scheduledJob.schedule(immediate);
+    }
+
+    @Override
+    public boolean isLeader() {
+        return _leader;
+    }
+
+    @Override
+    public long getLeaderTerm() {
+        return _leaderTerm;
+    }
+
+    @Override
+    public List<JobStats> getJobStats() {
+        return _jobs.values().stream().map(Job::getStats).collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean configure(String name, Map<String, Object> params) throws ConfigurationException {
+        _scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(SCHEDULER_THREAD_NAME));
+        _executor = Executors.newCachedThreadPool(new NamedThreadFactory(JOB_THREAD_NAME));
+        _leaderLock = getLeaderLock();
+        return super.configure(name, params);
+    }
+
+    @Override
+    public boolean start() {
+        _scheduler.scheduleWithFixedDelay(this::elect, 0, LEADER_CHECK_INTERVAL, TimeUnit.SECONDS);
+        return super.start();
+    }
+
+    @Override
+    public boolean stop() {
+        if (_scheduler.isShutdown()) {
+            return super.stop();
+        }
+        try {
+            _scheduler.submit(() -> {
+                _leader = false;
+                _leaderLock.unlock();
+            }).get(STOP_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            s_logger.error("Unable to release VM log leader lock", e);
+        }
+        _scheduler.shutdownNow();
+        _executor.shutdownNow();
+        return super.stop();
+    }
+
+    VmLogLeaderLock getLeaderLock() {
+        return new VmLogLeaderLock(LEADER_LOCK_NAME);
+    }
+
+    void elect() {
+        if (_leader) {
+            // the lock is released by the database if the connection holding it is lost so another management server may have taken it
+            if (_leaderLock.isHeld()) {
+                return;
+            }
+            _leader = false;
+            _leaderLock.unlock();
+            s_logger.warn("The management server has lost the VM log leader lock");
+        }
+        try {
+            if (_leaderLock.lock()) {
+                _leaderTerm++;
+                _leader = true;
+                s_logger.info("The management server has been elected the VM log leader");
+            }
+        } catch (Exception e) {
+            s_logger.error("Unable to acquire VM log leader lock", e);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Formats and parses names of daily VM log indices vmlog-&lt;uuid&gt;-yyyy-MM-dd.
+ */
+public class IndexName {
+
+    public static final String PREFIX = "vmlog-";
+
+    // -yyyy-MM-dd
+    private static final int DATE_LENGTH = 11;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static String format(String vmUuid, LocalDate date) {
+        return PREFIX + vmUuid + "-" + DATE_FORMATTER.format(date);
+    }
+
+    /**
+     * @return the UUID of the virtual machine for a daily VM log index or null for other indices
+     */
+    public static String getVmUuid(String index) {
+        if (!index.startsWith(PREFIX) || index.length() <= PREFIX.length() + DATE_LENGTH) {
+            return null;
+        }
+        int dateStart = index.length() - DATE_LENGTH;
+        for (int i = 0; i < DATE_LENGTH; i++) {
+            char c = index.charAt(dateStart + i);
+            boolean separator = i == 0 || i == 5 || i == 8;
+            if (separator ? c != '-' : c < '0' || c > '9') {
+                return null;
+            }
+        }
+        return index.substring(PREFIX.length(), dateStart);
+    }
+
+    /**
+     * @return the day of a daily VM log index or null for other indices
+     */
+    public static LocalDate getDate(String index) {
+        if (getVmUuid(index) == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(index.substring(index.length() - DATE_LENGTH + 1), DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            // digits that are not a date, e.g. 2018-13-01
+            return null;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.cloudstack.api.ApiErrorCode;
+import org.apache.cloudstack.api.ServerApiException;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchAfterUtils {
+
+    private static final ObjectMapper s_objectMapper = new ObjectMapper();
+
+    public static String encode(List<Object> searchAfter) {
+        if (searchAfter == null || searchAfter.isEmpty()) {
+            return null;
+        }
+        try {
+            return Base64.encodeBase64URLSafeString(s_objectMapper.writeValueAsBytes(searchAfter));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to encode search after values", e);
+        }
+    }
+
+    public static List<Object> decode(String searchAfter, String paramName) {
+        if (searchAfter == null) {
+            return null;
+        }
+        try {
+            Object[] values = s_objectMapper.readValue(Base64.decodeBase64(searchAfter), Object[].class);
+            if (values == null || values.length == 0) {
+                throw new IllegalArgumentException("No search after values");
+            }
+            return Arrays.asList(values);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ServerApiException(ApiErrorCode.PARAM_ERROR, "\"" + paramName + "\" parameter is invalid");
+        }
+    }
+}
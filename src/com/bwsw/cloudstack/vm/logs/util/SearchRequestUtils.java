@@ -0,0 +1,82 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts search requests to low level requests which responses contain only data required to build VM log responses.
+ */
+public class SearchRequestUtils {
+
+    public static final String FILTER_PATH = "_scroll_id,hits.total,hits.hits._id,hits.hits._source,hits.hits.sort";
+
+    private static final String SEARCH_ENDPOINT = "_search";
+    private static final String SCROLL_ENDPOINT = "/_search/scroll";
+
+    public static Request getRawSearchRequest(SearchRequest request) throws IOException {
+        String endpoint = "/" + String.join(",", request.indices()) + "/" + SEARCH_ENDPOINT;
+        Map<String, String> params = getParams();
+        if (request.scroll() != null) {
+            params.put("scroll", request.scroll().keepAlive().getStringRep());
+        }
+        IndicesOptions indicesOptions = request.indicesOptions();
+        params.put("ignore_unavailable", Boolean.toString(indicesOptions.ignoreUnavailable()));
+        params.put("allow_no_indices", Boolean.toString(indicesOptions.allowNoIndices()));
+        params.put("expand_wildcards", getExpandWildcards(indicesOptions));
+        return new Request("POST", endpoint, params, getEntity(request.source()));
+    }
+
+    public static Request getRawScrollRequest(SearchScrollRequest request) throws IOException {
+        return new Request("POST", SCROLL_ENDPOINT, getParams(), getEntity(request));
+    }
+
+    private static Map<String, String> getParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("filter_path", FILTER_PATH);
+        return params;
+    }
+
+    private static String getExpandWildcards(IndicesOptions indicesOptions) {
+        if (indicesOptions.expandWildcardsOpen() && indicesOptions.expandWildcardsClosed()) {
+            return "all";
+        } else if (indicesOptions.expandWildcardsOpen()) {
+            return "open";
+        } else if (indicesOptions.expandWildcardsClosed()) {
+            return "closed";
+        }
+        return "none";
+    }
+
+    private static ByteArrayEntity getEntity(ToXContent content) throws IOException {
+        return new ByteArrayEntity(BytesReference.toBytes(XContentHelper.toXContent(content, XContentType.JSON, false)), ContentType.APPLICATION_JSON);
+    }
+}
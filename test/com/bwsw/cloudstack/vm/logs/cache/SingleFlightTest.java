@@ -0,0 +1,136 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private static final String KEY = "key";
+    private static final long TIMEOUT = 10;
+
+    private final SingleFlight<String, String> _singleFlight = new SingleFlight<>();
+    private final ExecutorService _executorService = Executors.newFixedThreadPool(2);
+    private final CountDownLatch _started = new CountDownLatch(1);
+    private final CountDownLatch _release = new CountDownLatch(1);
+    private final AtomicInteger _calls = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        _executorService.shutdownNow();
+    }
+
+    @Test
+    public void testExecuteConcurrent() throws Exception {
+        Future<String> leader = _executorService.submit(() -> _singleFlight.execute(KEY, () -> {
+            _calls.incrementAndGet();
+            _started.countDown();
+            assertTrue(_release.await(TIMEOUT, TimeUnit.SECONDS));
+            return "value";
+        }));
+        assertTrue(_started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        Future<String> follower = _executorService.submit(() -> _singleFlight.execute(KEY, () -> {
+            _calls.incrementAndGet();
+            return "other value";
+        }));
+        waitForDeduplication();
+        _release.countDown();
+
+        assertEquals("value", leader.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals("value", follower.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(1, _calls.get());
+        assertEquals(1, _singleFlight.getExecuted());
+        assertEquals(1, _singleFlight.getDeduplicated());
+    }
+
+    @Test
+    public void testExecuteConcurrentFailure() throws Exception {
+        IOException exception = new IOException();
+        Future<String> leader = _executorService.submit(() -> _singleFlight.execute(KEY, () -> {
+            _started.countDown();
+            assertTrue(_release.await(TIMEOUT, TimeUnit.SECONDS));
+            throw exception;
+        }));
+        assertTrue(_started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        Future<String> follower = _executorService.submit(() -> _singleFlight.execute(KEY, () -> "value"));
+        waitForDeduplication();
+        _release.countDown();
+
+        checkFailure(leader, exception);
+        checkFailure(follower, exception);
+    }
+
+    @Test
+    public void testExecuteSequential() throws Exception {
+        assertEquals("value", _singleFlight.execute(KEY, () -> "value"));
+        assertEquals("other value", _singleFlight.execute(KEY, () -> "other value"));
+
+        assertEquals(2, _singleFlight.getExecuted());
+        assertEquals(0, _singleFlight.getDeduplicated());
+    }
+
+    @Test
+    public void testExecuteDifferentKeys() throws Exception {
+        Future<String> first = _executorService.submit(() -> _singleFlight.execute(KEY, () -> {
+            _started.countDown();
+            assertTrue(_release.await(TIMEOUT, TimeUnit.SECONDS));
+            return "value";
+        }));
+        assertTrue(_started.await(TIMEOUT, TimeUnit.SECONDS));
+
+        assertEquals("other value", _singleFlight.execute("other key", () -> "other value"));
+        _release.countDown();
+
+        assertEquals("value", first.get(TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(2, _singleFlight.getExecuted());
+        assertEquals(0, _singleFlight.getDeduplicated());
+    }
+
+    private void waitForDeduplication() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while (_singleFlight.getDeduplicated() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void checkFailure(Future<String> future, Exception exception) throws Exception {
+        try {
+            future.get(TIMEOUT, TimeUnit.SECONDS);
+            fail("The call should fail");
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,125 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VmLogCacheImplTest {
+
+    private static final String VM_UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final String OTHER_VM_UUID = "c2c6ae9c-6e5c-4c5c-a3b4-3fda5d83a5e5";
+    private static final long TTL = 60000;
+
+    @Test
+    public void testGetMissing() {
+        VmLogCache cache = new VmLogCacheImpl(100, 100, TTL);
+
+        assertNull(cache.get(getKey(VM_UUID, 1)));
+        checkStats(cache.getStats(), 0, 1, 0, 0, 0);
+    }
+
+    @Test
+    public void testPutGet() {
+        VmLogCache cache = new VmLogCacheImpl(100, 100, TTL);
+        cache.put(getKey(VM_UUID, 1), "value", 10);
+
+        assertEquals("value", cache.get(getKey(VM_UUID, 1)));
+        checkStats(cache.getStats(), 1, 0, 0, 1, 10);
+    }
+
+    @Test
+    public void testPutReplace() {
+        VmLogCache cache = new VmLogCacheImpl(100, 100, TTL);
+        cache.put(getKey(VM_UUID, 1), "value", 10);
+        cache.put(getKey(VM_UUID, 1), "new value", 20);
+
+        assertEquals("new value", cache.get(getKey(VM_UUID, 1)));
+        checkStats(cache.getStats(), 1, 0, 0, 1, 20);
+    }
+
+    @Test
+    public void testPutTooLarge() {
+        VmLogCache cache = new VmLogCacheImpl(100, 50, TTL);
+        cache.put(getKey(VM_UUID, 1), "value", 60);
+
+        assertNull(cache.get(getKey(VM_UUID, 1)));
+        checkStats(cache.getStats(), 0, 1, 0, 0, 0);
+    }
+
+    @Test
+    public void testDisabled() {
+        VmLogCache cache = new VmLogCacheImpl(0, 0, TTL);
+        cache.put(getKey(VM_UUID, 1), "value", 1);
+
+        assertNull(cache.get(getKey(VM_UUID, 1)));
+    }
+
+    @Test
+    public void testVmSizeEviction() {
+        VmLogCache cache = new VmLogCacheImpl(100, 30, TTL);
+        cache.put(getKey(VM_UUID, 1), "first", 10);
+        cache.put(getKey(OTHER_VM_UUID, 1), "other", 30);
+        cache.put(getKey(VM_UUID, 2), "second", 10);
+        // the first entry becomes the most recently used one
+        cache.get(getKey(VM_UUID, 1));
+        cache.put(getKey(VM_UUID, 3), "third", 20);
+
+        assertEquals("first", cache.get(getKey(VM_UUID, 1)));
+        assertNull(cache.get(getKey(VM_UUID, 2)));
+        assertEquals("third", cache.get(getKey(VM_UUID, 3)));
+        assertEquals("other", cache.get(getKey(OTHER_VM_UUID, 1)));
+        checkStats(cache.getStats(), 4, 1, 1, 3, 60);
+    }
+
+    @Test
+    public void testSizeEviction() {
+        VmLogCache cache = new VmLogCacheImpl(50, 30, TTL);
+        cache.put(getKey(VM_UUID, 1), "first", 30);
+        cache.put(getKey(OTHER_VM_UUID, 1), "other", 20);
+        cache.put(getKey(OTHER_VM_UUID, 2), "other second", 10);
+
+        assertNull(cache.get(getKey(VM_UUID, 1)));
+        assertEquals("other", cache.get(getKey(OTHER_VM_UUID, 1)));
+        assertEquals("other second", cache.get(getKey(OTHER_VM_UUID, 2)));
+        checkStats(cache.getStats(), 2, 1, 1, 2, 30);
+    }
+
+    @Test
+    public void testExpiration() {
+        VmLogCache cache = new VmLogCacheImpl(100, 100, 0);
+        cache.put(getKey(VM_UUID, 1), "value", 10);
+
+        assertNull(cache.get(getKey(VM_UUID, 1)));
+        checkStats(cache.getStats(), 0, 1, 1, 0, 0);
+    }
+
+    private CacheKey getKey(String vmUuid, int page) {
+        return new CacheKey(vmUuid, "logs", null, null, page);
+    }
+
+    private void checkStats(CacheStats stats, long hits, long misses, long evictions, int entries, long size) {
+        assertEquals(hits, stats.getHits());
+        assertEquals(misses, stats.getMisses());
+        assertEquals(evictions, stats.getEvictions());
+        assertEquals(entries, stats.getEntries());
+        assertEquals(size, stats.getSize());
+    }
+}
@@ -18,6 +18,7 @@
 package com.bwsw.cloudstack.vm.logs.event;
 
 import com.bwsw.cloudstack.vm.logs.service.VmLogManager;
+import com.bwsw.cloudstack.vm.logs.service.VmLogScheduler;
 import com.cloud.event.EventCategory;
 import com.cloud.vm.VirtualMachine;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -26,11 +27,13 @@ import com.google.common.collect.ImmutableSet;
 import org.apache.cloudstack.framework.events.Event;
 import org.apache.cloudstack.framework.events.EventBus;
 import org.apache.cloudstack.framework.events.EventBusException;
+import org.elasticsearch.common.CheckedRunnable;
 import org.hamcrest.CustomMatcher;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -38,22 +41,40 @@ import org.mockito.runners.MockitoJUnitRunner;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class VmLogEventManagerImplTest {
 
-    private static final Map<String, Double> STATS = ImmutableMap.of("61d12f36-0201-4035-b6fc-c7f768f583f1", 15.5);
-    private static final Set<String> EVENT_DESCRIPTION_FIELDS = ImmutableSet.of(VmLogEventManager.STATS, VmLogEventManager.EVENT_DATE_TIME);
+    private static final String VM_UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final String OTHER_VM_UUID = "1f8ab7c3-c3a6-4a5c-b9a8-2d3b9d5b2e4f";
+    private static final String NEW_VM_UUID = "c5b0c1d8-0f4c-4d8e-9b59-7a3e4b0b8f61";
+    private static final Map<String, Double> STATS = ImmutableMap.of(VM_UUID, 15.5);
+    private static final Set<String> EVENT_DESCRIPTION_FIELDS = ImmutableSet.of(VmLogEventManager.STATS, VmLogEventManager.EVENT_DATE_TIME, VmLogEventManager.BATCH_ID,
+            VmLogEventManager.BATCH_SEQUENCE, VmLogEventManager.BATCH_COUNT);
+    private static final Map<String, Double> BATCH_STATS = ImmutableMap.of(VM_UUID, 15.5, OTHER_VM_UUID, 2.0, NEW_VM_UUID, 0.1);
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -64,15 +85,201 @@ public class VmLogEventManagerImplTest {
     @Mock
     private EventBus _eventBus;
 
+    @Mock
+    private VmLogScheduler _vmLogScheduler;
+
     @InjectMocks
     private VmLogEventManagerImpl _vmLogEventManager = new VmLogEventManagerImpl();
 
     private ObjectMapper _objectMapper = new ObjectMapper();
 
-    @SuppressWarnings("unchecked")
     @Test
     public void testPublishVmLogStats() throws EventBusException {
-        CustomMatcher<Event> eventMatcher = new CustomMatcher<Event>("eventMatcher") {
+        CustomMatcher<Event> eventMatcher = getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, STATS);
+        doNothing().when(_eventBus).publish(argThat(eventMatcher));
+
+        _vmLogEventManager.publishVmLogStats(STATS);
+
+        verify(_eventBus, times(1)).publish(argThat(eventMatcher));
+    }
+
+    @Test
+    public void testPublishVmLogStatsDelta() throws EventBusException {
+        CustomMatcher<Event> eventMatcher = getEventMatcher(EventTypes.EVENT_VM_LOG_STATS_DELTA, STATS);
+        doNothing().when(_eventBus).publish(argThat(eventMatcher));
+
+        _vmLogEventManager.publishVmLogStatsDelta(STATS);
+
+        verify(_eventBus, times(1)).publish(argThat(eventMatcher));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testStart() throws Exception {
+        ArgumentCaptor<CheckedRunnable<Exception>> captor = ArgumentCaptor.forClass((Class)CheckedRunnable.class);
+        when(_vmLogManager.getVmLogStats()).thenReturn(STATS);
+
+        _vmLogEventManager.start();
+
+        verify(_vmLogScheduler, times(1)).schedule(anyString(), any(Supplier.class), any(Supplier.class), eq(false), eq(true), captor.capture());
+        captor.getValue().run();
+        verify(_eventBus, times(1)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, STATS)));
+    }
+
+    @Test
+    public void testPublishVmLogStatsEventBusException() throws EventBusException {
+        EventBusException exception = new EventBusException("event bus");
+        expectedException.expect(exception.getClass());
+        expectedException.expectMessage(exception.getMessage());
+
+        doThrow(exception).when(_eventBus).publish(isA(Event.class));
+
+        _vmLogEventManager.publishVmLogStats(STATS);
+    }
+
+    @Test
+    public void testUpdateVmLogStatsDelta() throws EventBusException {
+        long time = System.currentTimeMillis();
+        Map<String, Double> stats = ImmutableMap.of(VM_UUID, 15.5, OTHER_VM_UUID, 2.0);
+        _vmLogEventManager.updateVmLogStats(stats, time);
+
+        Map<String, Double> changedStats = ImmutableMap.of(VM_UUID, 15.9, OTHER_VM_UUID, 3.5, NEW_VM_UUID, 0.1);
+        _vmLogEventManager.updateVmLogStats(changedStats, time + 1000);
+
+        verify(_eventBus, times(1)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, stats)));
+        verify(_eventBus, times(1)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS_DELTA, ImmutableMap.of(OTHER_VM_UUID, 3.5, NEW_VM_UUID, 0.1))));
+        verify(_eventBus, times(2)).publish(isA(Event.class));
+    }
+
+    @Test
+    public void testUpdateVmLogStatsDeltaDeletedVm() throws EventBusException {
+        long time = System.currentTimeMillis();
+        _vmLogEventManager.updateVmLogStats(ImmutableMap.of(VM_UUID, 15.5, OTHER_VM_UUID, 2.0), time);
+        _vmLogEventManager.updateVmLogStats(ImmutableMap.of(VM_UUID, 15.5), time + 1000);
+        _vmLogEventManager.updateVmLogStats(ImmutableMap.of(VM_UUID, 15.5), time + 2000);
+
+        verify(_eventBus, times(1)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS_DELTA, ImmutableMap.of(OTHER_VM_UUID, 0.0))));
+        verify(_eventBus, times(2)).publish(isA(Event.class));
+    }
+
+    @Test
+    public void testUpdateVmLogStatsSnapshot() throws EventBusException {
+        long time = System.currentTimeMillis();
+        _vmLogEventManager.updateVmLogStats(STATS, time);
+        _vmLogEventManager.updateVmLogStats(STATS, time + VmLogManager.VmLogUsageSnapshotInterval.value() * 1000L);
+
+        verify(_eventBus, times(2)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, STATS)));
+        verify(_eventBus, times(2)).publish(isA(Event.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testStartLeaderTermChanged() throws Exception {
+        ArgumentCaptor<CheckedRunnable<Exception>> captor = ArgumentCaptor.forClass((Class)CheckedRunnable.class);
+        when(_vmLogManager.getVmLogStats()).thenReturn(STATS);
+        when(_vmLogScheduler.getLeaderTerm()).thenReturn(1L, 1L, 2L);
+
+        _vmLogEventManager.start();
+
+        verify(_vmLogScheduler, times(1)).schedule(anyString(), any(Supplier.class), any(Supplier.class), eq(false), eq(true), captor.capture());
+        captor.getValue().run();
+        captor.getValue().run();
+        // the leadership has been lost and regained
+        captor.getValue().run();
+        verify(_eventBus, times(2)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, STATS)));
+        verify(_eventBus, times(2)).publish(isA(Event.class));
+    }
+
+    @Test
+    public void testUpdateVmLogStatsEventBusException() throws EventBusException {
+        long time = System.currentTimeMillis();
+        _vmLogEventManager.updateVmLogStats(STATS, time);
+
+        Map<String, Double> changedStats = ImmutableMap.of(VM_UUID, 20.0);
+        doThrow(new EventBusException("event bus")).doNothing().when(_eventBus).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS_DELTA, changedStats)));
+        try {
+            _vmLogEventManager.updateVmLogStats(changedStats, time + 1000);
+            fail("Missing exception");
+        } catch (EventBusException e) {
+            // the statistics are published again
+        }
+        _vmLogEventManager.updateVmLogStats(changedStats, time + 2000);
+
+        verify(_eventBus, times(2)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS_DELTA, changedStats)));
+    }
+
+    @Test
+    public void testPublishBatchSize() throws EventBusException, IOException {
+        List<Map<String, Object>> descriptions = publishBatches(2, 0);
+
+        assertEquals(2, descriptions.size());
+        checkBatches(descriptions);
+        assertEquals(2, ((Map<?, ?>)descriptions.get(0).get(VmLogEventManager.STATS)).size());
+        assertEquals(1, ((Map<?, ?>)descriptions.get(1).get(VmLogEventManager.STATS)).size());
+    }
+
+    @Test
+    public void testPublishBatchLength() throws EventBusException, IOException {
+        // every VM takes 42 or 43 characters, two VMs fit in a batch
+        List<Map<String, Object>> descriptions = publishBatches(0, 100);
+
+        assertEquals(2, descriptions.size());
+        checkBatches(descriptions);
+    }
+
+    @Test
+    public void testPublishBatchLengthExceeded() throws EventBusException, IOException {
+        List<Map<String, Object>> descriptions = publishBatches(10, 10);
+
+        assertEquals(3, descriptions.size());
+        checkBatches(descriptions);
+    }
+
+    @Test
+    public void testPublishEmptyStats() throws EventBusException {
+        _vmLogEventManager.publishVmLogStats(ImmutableMap.of());
+
+        verify(_eventBus, times(1)).publish(argThat(getEventMatcher(EventTypes.EVENT_VM_LOG_STATS, ImmutableMap.of())));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> publishBatches(int batchSize, int batchLength) throws EventBusException, IOException {
+        _vmLogEventManager.publish(EventTypes.EVENT_VM_LOG_STATS, BATCH_STATS, batchSize, batchLength);
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(_eventBus, atLeastOnce()).publish(captor.capture());
+        List<Map<String, Object>> descriptions = new ArrayList<>();
+        for (Event event : captor.getAllValues()) {
+            assertEquals(EventTypes.EVENT_VM_LOG_STATS, event.getEventType());
+            descriptions.add((Map<String, Object>)_objectMapper.readValue(event.getDescription(), Map.class));
+        }
+        return descriptions;
+    }
+
+    private void checkBatches(List<Map<String, Object>> descriptions) {
+        Map<Object, Object> stats = new HashMap<>();
+        for (int i = 0; i < descriptions.size(); i++) {
+            Map<String, Object> description = descriptions.get(i);
+            assertEquals(descriptions.get(0).get(VmLogEventManager.BATCH_ID), description.get(VmLogEventManager.BATCH_ID));
+            assertEquals(descriptions.get(0).get(VmLogEventManager.EVENT_DATE_TIME), description.get(VmLogEventManager.EVENT_DATE_TIME));
+            assertEquals(i + 1, description.get(VmLogEventManager.BATCH_SEQUENCE));
+            // the number of events is known once the last one is written
+            if (i == descriptions.size() - 1) {
+                assertEquals(EVENT_DESCRIPTION_FIELDS, description.keySet());
+                assertEquals(descriptions.size(), description.get(VmLogEventManager.BATCH_COUNT));
+            } else {
+                assertFalse(description.containsKey(VmLogEventManager.BATCH_COUNT));
+                assertTrue(EVENT_DESCRIPTION_FIELDS.containsAll(description.keySet()));
+                assertEquals(EVENT_DESCRIPTION_FIELDS.size() - 1, description.size());
+            }
+            stats.putAll((Map<?, ?>)description.get(VmLogEventManager.STATS));
+        }
+        assertEquals(BATCH_STATS, stats);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CustomMatcher<Event> getEventMatcher(String eventType, Map<String, Double> stats) {
+        return new CustomMatcher<Event>("eventMatcher") {
 
             @Override
             public boolean matches(Object o) {
@@ -89,7 +296,11 @@ public class VmLogEventManagerImplTest {
                     if (!EVENT_DESCRIPTION_FIELDS.equals(description.keySet())) {
                         return false;
                     }
-                    if (!STATS.equals(description.get(VmLogEventManager.STATS))) {
+                    if (!stats.equals(description.get(VmLogEventManager.STATS))) {
+                        return false;
+                    }
+                    if (!Integer.valueOf(1).equals(description.get(VmLogEventManager.BATCH_SEQUENCE)) || !Integer.valueOf(1)
+                            .equals(description.get(VmLogEventManager.BATCH_COUNT)) || !(description.get(VmLogEventManager.BATCH_ID) instanceof String)) {
                         return false;
                     }
                     Object eventDate = description.get(VmLogEventManager.EVENT_DATE_TIME);
@@ -106,25 +317,9 @@ public class VmLogEventManagerImplTest {
                 }
                 // check other event fields
                 return VmLogEventManager.EVENT_SOURCE.equals(event.getEventSource()) && EventCategory.USAGE_EVENT.getName().equals(event.getEventCategory())
-                        && EventTypes.EVENT_VM_LOG_STATS.equals(event.getEventType()) && VirtualMachine.class.getSimpleName().equals(event.getResourceType())
+                        && eventType.equals(event.getEventType()) && VirtualMachine.class.getSimpleName().equals(event.getResourceType())
                         && event.getResourceUUID() == null;
             }
         };
-        doNothing().when(_eventBus).publish(argThat(eventMatcher));
-
-        _vmLogEventManager.publishVmLogStats(STATS);
-
-        verify(_eventBus, times(1)).publish(argThat(eventMatcher));
-    }
-
-    @Test
-    public void testPublishVmLogStatsEventBusException() throws EventBusException {
-        EventBusException exception = new EventBusException("event bus");
-        expectedException.expect(exception.getClass());
-        expectedException.expectMessage(exception.getMessage());
-
-        doThrow(exception).when(_eventBus).publish(isA(Event.class));
-
-        _vmLogEventManager.publishVmLogStats(STATS);
     }
 }
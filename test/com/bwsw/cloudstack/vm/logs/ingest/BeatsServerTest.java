@@ -0,0 +1,289 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.bwsw.cloudstack.vm.logs.service.BulkIndexer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.log4j.Logger;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Sends events with a Lumberjack client to the ingest endpoint backed by a stand-in of the Elasticsearch bulk API.
+ */
+public class BeatsServerTest {
+
+    private static final Logger s_logger = Logger.getLogger(BeatsServerTest.class);
+
+    private static final String VM_UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final String TOKEN = "token";
+    private static final String TIMESTAMP = "2018-06-01T23:59:59.999Z";
+    private static final int BENCHMARK_EVENTS = 500000;
+    private static final int BENCHMARK_WINDOW_SIZE = 2048;
+    private static final int MAX_WINDOW_SIZE = 2048;
+
+    private final ObjectMapper _objectMapper = new ObjectMapper();
+    private final List<String> _actions = Collections.synchronizedList(new ArrayList<>());
+    private final List<JsonNode> _documents = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger _indexed = new AtomicInteger();
+    private volatile int _itemStatus = 201;
+    private volatile boolean _keepDocuments = true;
+
+    private HttpServer _elasticsearch;
+    private RestHighLevelClient _client;
+    private BulkIndexer _bulkIndexer;
+    private BeatsServer _beatsServer;
+
+    @Before
+    public void setUp() throws IOException {
+        _elasticsearch = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        _elasticsearch.createContext("/_bulk", this::bulk);
+        _elasticsearch.setExecutor(Executors.newCachedThreadPool());
+        _elasticsearch.start();
+        _client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", _elasticsearch.getAddress().getPort())));
+        TokenCache tokenCache = new TokenCache(token -> TOKEN.equals(token) ? new Token(TOKEN, VM_UUID, LocalDateTime.of(2018, 6, 1, 0, 0)) : null, 60000, 60000, 10);
+        _bulkIndexer = new BulkIndexer("VM_LOG_INGEST_BULK", _client::bulk, 1000, 10, 10000, BulkIndexer.OverflowPolicy.BLOCK, 4, BackoffPolicy.noBackoff());
+        _bulkIndexer.start();
+        _beatsServer = new BeatsServer(0, 4, 5000, MAX_WINDOW_SIZE, 1024 * 1024, new VmLogIngestHandler(tokenCache, _bulkIndexer));
+        _beatsServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        _beatsServer.stop();
+        _bulkIndexer.stop();
+        _client.close();
+        _elasticsearch.stop(0);
+    }
+
+    @Test
+    public void testIngest() throws IOException {
+        List<String> events = ImmutableList.of(getEvent(TOKEN), getEvent("unknown"), "{\"@timestamp\":\"" + TIMESTAMP + "\",\"vm_uuid\":\"uuid\"}", "{\"message\":\"test\"}",
+                "invalid");
+        try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+            assertEquals(5, send(socket, events, 1, true));
+        }
+
+        assertEquals(ImmutableList.of("{\"index\":{\"_index\":\"vmlog-" + VM_UUID + "-2018-06-01\",\"_type\":\"doc\"}}"), _actions);
+        assertEquals(1, _documents.size());
+        JsonNode document = _documents.get(0);
+        assertEquals(VM_UUID, document.get("vm_uuid").asText());
+        assertEquals("test", document.get("message").asText());
+        assertTrue(document.get("log_id").isTextual());
+        assertFalse(document.has("token"));
+        assertFalse(document.has("@metadata"));
+    }
+
+    @Test
+    public void testIngestUncompressed() throws IOException {
+        try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+            assertEquals(2, send(socket, ImmutableList.of(getEvent(TOKEN), getEvent(TOKEN)), 1, false));
+            assertEquals(3, send(socket, ImmutableList.of(getEvent(TOKEN)), 3, false));
+        }
+
+        assertEquals(3, _documents.size());
+    }
+
+    @Test
+    public void testIngestLargeWindow() throws IOException {
+        try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+            assertEquals(MAX_WINDOW_SIZE, send(socket, Collections.nCopies(MAX_WINDOW_SIZE + 1, getEvent(TOKEN)), 1, true));
+            assertEquals(MAX_WINDOW_SIZE + 1, readAck(socket));
+        }
+
+        assertEquals(MAX_WINDOW_SIZE + 1, _documents.size());
+    }
+
+    @Test
+    public void testIngestRejected() throws IOException {
+        _itemStatus = 429;
+        try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+            assertEquals(-1, send(socket, ImmutableList.of(getEvent(TOKEN)), 1, true));
+        }
+    }
+
+    @Test
+    public void testIngestInvalidDocument() throws IOException {
+        _itemStatus = 400;
+        try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+            assertEquals(1, send(socket, ImmutableList.of(getEvent(TOKEN)), 1, true));
+        }
+    }
+
+    /**
+     * Measures ingestion of 500K events by 4 connections. The benchmark is run if vmlog.benchmark system property is true.
+     */
+    @Test
+    public void testIngestBenchmark() throws Exception {
+        assumeTrue(Boolean.getBoolean("vmlog.benchmark"));
+        _keepDocuments = false;
+        List<String> window = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_WINDOW_SIZE; i++) {
+            window.add(getEvent(TOKEN));
+        }
+        int connections = 4;
+        int windows = BENCHMARK_EVENTS / BENCHMARK_WINDOW_SIZE / connections;
+        List<Thread> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            Thread client = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", _beatsServer.getPort())) {
+                    for (int i = 0; i < windows; i++) {
+                        send(socket, window, i * BENCHMARK_WINDOW_SIZE + 1, true);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            client.start();
+            clients.add(client);
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        long time = System.nanoTime() - start;
+
+        int events = windows * BENCHMARK_WINDOW_SIZE * connections;
+        assertEquals(events, _indexed.get());
+        s_logger.info(String.format("Ingest: %d events in %d ms, %.0f events/s, %d bulk requests", events, time / 1000000, events * 1e9 / time,
+                _bulkIndexer.getStats().getBulks()));
+    }
+
+    /**
+     * Sends the window of events and waits for the acknowledgement.
+     *
+     * @return the acknowledged sequence number or -1 if the connection is closed
+     */
+    private int send(Socket socket, List<String> events, int sequence, boolean compressed) throws IOException {
+        DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+        output.writeByte('2');
+        output.writeByte('W');
+        output.writeInt(events.size());
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        DataOutputStream framesOutput = new DataOutputStream(frames);
+        for (String event : events) {
+            byte[] payload = event.getBytes(StandardCharsets.UTF_8);
+            framesOutput.writeByte('2');
+            framesOutput.writeByte('J');
+            framesOutput.writeInt(sequence++);
+            framesOutput.writeInt(payload.length);
+            framesOutput.write(payload);
+        }
+        if (compressed) {
+            ByteArrayOutputStream compressedFrames = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressedFrames)) {
+                frames.writeTo(deflaterOutput);
+            }
+            output.writeByte('2');
+            output.writeByte('C');
+            output.writeInt(compressedFrames.size());
+            compressedFrames.writeTo(output);
+        } else {
+            frames.writeTo(output);
+        }
+        output.flush();
+        return readAck(socket);
+    }
+
+    /**
+     * @return the acknowledged sequence number or -1 if the connection is closed
+     */
+    private int readAck(Socket socket) throws IOException {
+        DataInputStream input = new DataInputStream(socket.getInputStream());
+        int version = input.read();
+        if (version < 0) {
+            return -1;
+        }
+        assertEquals('2', version);
+        assertEquals('A', input.readByte());
+        return input.readInt();
+    }
+
+    private void bulk(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream input = exchange.getRequestBody()) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                content.write(buffer, 0, read);
+            }
+            body = new String(content.toByteArray(), StandardCharsets.UTF_8);
+        }
+        String[] lines = body.split("\n");
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i + 1 < lines.length; i += 2) {
+            if (_keepDocuments) {
+                _actions.add(lines[i]);
+                _documents.add(_objectMapper.readTree(lines[i + 1]));
+            }
+            if (items.length() > 0) {
+                items.append(',');
+            }
+            items.append("{\"index\":{\"_index\":\"index\",\"_type\":\"doc\",\"_id\":\"").append(i).append("\",\"status\":").append(_itemStatus);
+            if (_itemStatus < 300) {
+                items.append(",\"_version\":1,\"result\":\"created\",\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},\"_seq_no\":0,\"_primary_term\":1}}");
+                _indexed.incrementAndGet();
+            } else {
+                items.append(",\"error\":{\"type\":\"rejected_exception\",\"reason\":\"rejected\"}}}");
+            }
+        }
+        byte[] response = ("{\"took\":1,\"errors\":" + (_itemStatus >= 300) + ",\"items\":[" + items + "]}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+    }
+
+    private static String getEvent(String token) {
+        return "{\"@timestamp\":\"" + TIMESTAMP + "\",\"@metadata\":{\"beat\":\"filebeat\"},\"message\":\"test\",\"token\":\"" + token + "\"}";
+    }
+}
@@ -0,0 +1,133 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.ingest;
+
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TokenCacheTest {
+
+    private static final String VM_UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final LocalDateTime VALID_FROM = LocalDateTime.of(2018, 6, 1, 12, 0, 0);
+    private static final LocalDateTime VALID_TO = LocalDateTime.of(2018, 6, 2, 12, 0, 0);
+    private static final long TTL = 60000;
+
+    private final List<String> _loaded = new ArrayList<>();
+
+    @Test
+    public void testResolve() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, TTL, 10);
+
+        assertEquals(VM_UUID, tokenCache.resolve("valid", getTime(VALID_FROM)));
+        assertEquals(VM_UUID, tokenCache.resolve("valid", getTime(VALID_TO.plusYears(1))));
+        assertNull(tokenCache.resolve("valid", getTime(VALID_FROM) - 1));
+        assertEquals(1, _loaded.size());
+    }
+
+    @Test
+    public void testResolveInvalidated() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, TTL, 10);
+
+        assertEquals(VM_UUID, tokenCache.resolve("invalidated", getTime(VALID_TO)));
+        assertNull(tokenCache.resolve("invalidated", getTime(VALID_TO) + 1));
+    }
+
+    @Test
+    public void testResolveUnknown() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, TTL, 10);
+
+        assertNull(tokenCache.resolve("unknown", getTime(VALID_FROM)));
+        assertNull(tokenCache.resolve("unknown", getTime(VALID_FROM)));
+        assertEquals(1, _loaded.size());
+    }
+
+    @Test
+    public void testResolveExpired() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, 0, 0, 10);
+
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        assertEquals(2, _loaded.size());
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, TTL, 10);
+
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.invalidate("valid");
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        assertEquals(2, _loaded.size());
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, TTL, 2);
+
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.resolve("invalidated", getTime(VALID_FROM));
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        assertEquals(2, tokenCache.size());
+        tokenCache.resolve("unknown", getTime(VALID_FROM));
+        assertEquals(2, tokenCache.size());
+
+        // the least recently used entry is evicted
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.resolve("invalidated", getTime(VALID_FROM));
+        assertEquals(ImmutableList.of("valid", "invalidated", "unknown", "invalidated"), _loaded);
+    }
+
+    @Test
+    public void testResolveUnknownExpired() throws IOException {
+        TokenCache tokenCache = new TokenCache(this::load, TTL, 0, 10);
+
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.resolve("valid", getTime(VALID_FROM));
+        tokenCache.resolve("unknown", getTime(VALID_FROM));
+        tokenCache.resolve("unknown", getTime(VALID_FROM));
+        assertEquals(ImmutableList.of("valid", "unknown", "unknown"), _loaded);
+    }
+
+    private Token load(String token) {
+        _loaded.add(token);
+        switch (token) {
+        case "valid":
+            return new Token(token, VM_UUID, VALID_FROM);
+        case "invalidated":
+            Token result = new Token(token, VM_UUID, VALID_FROM);
+            result.setValidTo(VALID_TO);
+            return result;
+        default:
+            return null;
+        }
+    }
+
+    private static long getTime(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
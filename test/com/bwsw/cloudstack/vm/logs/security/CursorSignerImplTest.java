@@ -0,0 +1,62 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.security;
+
+import org.junit.Test;
+
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CursorSignerImplTest {
+
+    private static final String PAYLOAD = "{\"vm_uuid\":\"61d12f36-0201-4035-b6fc-c7f768f583f1\",\"page_size\":100,\"search_after\":[1525132800000,\"id\"]}";
+
+    @Test
+    public void testSignVerify() throws NoSuchAlgorithmException {
+        CursorSignerImpl cursorSigner = new CursorSignerImpl();
+
+        String cursor = cursorSigner.sign(PAYLOAD);
+
+        assertNotNull(cursor);
+        assertEquals(PAYLOAD, cursorSigner.verify(cursor));
+    }
+
+    @Test
+    public void testVerifyTamperedCursor() throws NoSuchAlgorithmException {
+        CursorSignerImpl cursorSigner = new CursorSignerImpl();
+        String cursor = cursorSigner.sign(PAYLOAD);
+        String tamperedCursor = cursorSigner.sign(PAYLOAD.replace("61d12f36", "11207fa9"));
+        tamperedCursor = tamperedCursor.substring(0, tamperedCursor.indexOf('.')) + cursor.substring(cursor.indexOf('.'));
+
+        assertNull(cursorSigner.verify(tamperedCursor));
+        assertNull(cursorSigner.verify(cursor.substring(0, cursor.indexOf('.'))));
+        assertNull(cursorSigner.verify(null));
+    }
+
+    @Test
+    public void testVerifyForeignCursor() throws NoSuchAlgorithmException {
+        String cursor = new CursorSignerImpl().sign(PAYLOAD);
+
+        assertNotEquals(cursor, new CursorSignerImpl().sign(PAYLOAD));
+        assertNull(new CursorSignerImpl().verify(cursor));
+    }
+}
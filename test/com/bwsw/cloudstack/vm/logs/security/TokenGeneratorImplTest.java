@@ -22,6 +22,8 @@ import org.junit.Test;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -42,4 +44,12 @@ public class TokenGeneratorImplTest {
         });
         assertEquals(secretKeys.size(), secretKeys.stream().distinct().count());
     }
+
+    @Test
+    public void testGenerateConcurrently() throws NoSuchAlgorithmException {
+        TokenGeneratorImpl tokenGenerator = new TokenGeneratorImpl();
+        List<String> secretKeys = IntStream.range(0, 1000).parallel().mapToObj(i -> tokenGenerator.generate()).collect(Collectors.toList());
+
+        assertEquals(secretKeys.size(), secretKeys.stream().distinct().count());
+    }
 }
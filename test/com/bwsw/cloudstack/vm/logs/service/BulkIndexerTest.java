@@ -0,0 +1,265 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.google.common.collect.ImmutableList;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkIndexerTest {
+
+    private static final String INDEX = "index";
+    private static final String TYPE = "doc";
+    private static final long TIMEOUT = 5000;
+
+    @Rule
+    public ExpectedException _expectedException = ExpectedException.none();
+
+    private final List<List<String>> _bulks = Collections.synchronizedList(new ArrayList<>());
+    private BulkIndexer _bulkIndexer;
+
+    @After
+    public void tearDown() {
+        if (_bulkIndexer != null) {
+            _bulkIndexer.stop();
+        }
+    }
+
+    @Test
+    public void testBulkSize() throws Exception {
+        start(2, 60000, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff(), id -> false);
+
+        List<CompletableFuture<BulkItemResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(_bulkIndexer.add(getRequest(String.valueOf(i))));
+        }
+
+        for (CompletableFuture<BulkItemResponse> future : futures) {
+            assertFalse(future.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+        }
+        assertEquals(ImmutableList.of(ImmutableList.of("0", "1"), ImmutableList.of("2", "3")), _bulks);
+        BulkStats stats = _bulkIndexer.getStats();
+        assertEquals(4, stats.getRequests());
+        assertEquals(2, stats.getBulks());
+        assertEquals(4, stats.getBulkItems());
+        assertEquals(0, stats.getFailures());
+    }
+
+    @Test
+    public void testFlushInterval() throws Exception {
+        start(100, 10, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff(), id -> false);
+
+        BulkItemResponse response = _bulkIndexer.add(getRequest("id")).get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        assertEquals("id", response.getId());
+        assertEquals(ImmutableList.of(ImmutableList.of("id")), _bulks);
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+        // the request is rejected once
+        start(2, 60000, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1), 1),
+                id -> "rejected".equals(id) && rejected.add(id) && rejected.size() == 1);
+
+        CompletableFuture<BulkItemResponse> rejectedFuture = _bulkIndexer.add(getRequest("rejected"));
+        CompletableFuture<BulkItemResponse> indexedFuture = _bulkIndexer.add(getRequest("indexed"));
+
+        assertFalse(rejectedFuture.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+        assertFalse(indexedFuture.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+        assertEquals(ImmutableList.of(ImmutableList.of("rejected", "indexed"), ImmutableList.of("rejected")), _bulks);
+        assertEquals(1, _bulkIndexer.getStats().getRetries());
+    }
+
+    @Test
+    public void testRetryExhausted() throws Exception {
+        start(1, 60000, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.constantBackoff(TimeValue.timeValueMillis(1), 2), id -> true);
+
+        BulkItemResponse response = _bulkIndexer.add(getRequest("id")).get(TIMEOUT, TimeUnit.MILLISECONDS);
+
+        assertTrue(response.isFailed());
+        assertEquals(RestStatus.TOO_MANY_REQUESTS, response.getFailure().getStatus());
+        assertEquals(3, _bulks.size());
+        BulkStats stats = _bulkIndexer.getStats();
+        assertEquals(2, stats.getRetries());
+        assertEquals(1, stats.getFailures());
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 0, 10, BulkIndexer.OverflowPolicy.BLOCK, 2, BackoffPolicy.noBackoff(), id -> {
+            started.countDown();
+            await(release);
+            return false;
+        });
+
+        CompletableFuture<BulkItemResponse> first = _bulkIndexer.add(getRequest("first"));
+        CompletableFuture<BulkItemResponse> second = _bulkIndexer.add(getRequest("second"));
+
+        assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertEquals(2, _bulkIndexer.getStats().getInFlight());
+        release.countDown();
+        assertFalse(first.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+        assertFalse(second.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+    }
+
+    @Test
+    public void testDropPolicy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        start(1, 0, 1, BulkIndexer.OverflowPolicy.DROP, 1, BackoffPolicy.noBackoff(), id -> {
+            await(release);
+            return false;
+        });
+
+        List<CompletableFuture<BulkItemResponse>> futures = new ArrayList<>();
+        CompletableFuture<BulkItemResponse> dropped = null;
+        for (int i = 0; i < 10 && dropped == null; i++) {
+            CompletableFuture<BulkItemResponse> future = _bulkIndexer.add(getRequest(String.valueOf(i)));
+            if (future.isCompletedExceptionally()) {
+                dropped = future;
+            } else {
+                futures.add(future);
+                // let the flusher take the request
+                Thread.sleep(50);
+            }
+        }
+
+        try {
+            dropped.get();
+            fail("The request is expected to be dropped");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, _bulkIndexer.getStats().getDropped());
+        release.countDown();
+        for (CompletableFuture<BulkItemResponse> future : futures) {
+            assertFalse(future.get(TIMEOUT, TimeUnit.MILLISECONDS).isFailed());
+        }
+    }
+
+    @Test
+    public void testExecute() throws IOException {
+        start(10, 0, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff(), id -> false);
+
+        _bulkIndexer.execute(ImmutableList.of(getRequest("first"), getRequest("second")));
+
+        assertEquals(ImmutableList.of("first", "second"), _bulks.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testExecuteFailure() throws IOException {
+        _expectedException.expect(IOException.class);
+        _expectedException.expectMessage("1 of 2");
+        start(10, 0, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff(), "rejected"::equals);
+
+        _bulkIndexer.execute(ImmutableList.of(getRequest("rejected"), getRequest("indexed")));
+    }
+
+    @Test
+    public void testExecuteException() throws IOException {
+        _expectedException.expect(IOException.class);
+        _bulkIndexer = new BulkIndexer("TEST", request -> {
+            throw new IOException("Connection refused");
+        }, 10, 0, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff());
+        _bulkIndexer.start();
+
+        _bulkIndexer.execute(ImmutableList.of(getRequest("id")));
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        _bulkIndexer = new BulkIndexer("TEST", request -> {
+            throw new IOException("Unexpected request");
+        }, 10, 0, 10, BulkIndexer.OverflowPolicy.BLOCK, 1, BackoffPolicy.noBackoff());
+        _bulkIndexer.stop();
+
+        CompletableFuture<BulkItemResponse> future = _bulkIndexer.add(getRequest("id"));
+
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    /**
+     * @param rejected the predicate for ids of requests to reject with 429 status
+     */
+    private void start(int bulkSize, long flushInterval, int queueSize, BulkIndexer.OverflowPolicy overflowPolicy, int concurrency, BackoffPolicy retryPolicy,
+            Predicate<String> rejected) {
+        _bulkIndexer = new BulkIndexer("TEST", request -> bulk(request, rejected), bulkSize, flushInterval, queueSize, overflowPolicy, concurrency, retryPolicy);
+        _bulkIndexer.start();
+    }
+
+    private BulkResponse bulk(BulkRequest request, Predicate<String> rejected) {
+        List<String> ids = new ArrayList<>();
+        List<BulkItemResponse> items = new ArrayList<>();
+        for (DocWriteRequest<?> itemRequest : request.requests()) {
+            String id = itemRequest.id();
+            ids.add(id);
+            if (rejected.test(id)) {
+                items.add(new BulkItemResponse(items.size(), DocWriteRequest.OpType.INDEX,
+                        new BulkItemResponse.Failure(INDEX, TYPE, id, new EsRejectedExecutionException("rejected"))));
+            } else {
+                items.add(new BulkItemResponse(items.size(), DocWriteRequest.OpType.INDEX, new IndexResponse(new ShardId(INDEX, "_na_", 0), TYPE, id, 1, 1, 1, true)));
+            }
+        }
+        _bulks.add(ids);
+        return new BulkResponse(items.toArray(new BulkItemResponse[items.size()]), 1);
+    }
+
+    private static IndexRequest getRequest(String id) {
+        return new IndexRequest(INDEX, TYPE, id).source(Collections.singletonMap("field", id));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
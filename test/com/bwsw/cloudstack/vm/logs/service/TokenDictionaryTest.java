@@ -0,0 +1,143 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.Token;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.log4j.Logger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class TokenDictionaryTest {
+
+    private static final Logger s_logger = Logger.getLogger(TokenDictionaryTest.class);
+
+    private static final String VM_UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final LocalDateTime VALID_FROM = LocalDateTime.of(2018, 6, 1, 12, 0, 0);
+    private static final LocalDateTime VALID_TO = LocalDateTime.of(2018, 6, 2, 12, 0, 0);
+    private static final int BENCHMARK_TOKENS = 1000000;
+
+    @Rule
+    public TemporaryFolder _temporaryFolder = new TemporaryFolder();
+
+    private final TokenDictionary _tokenDictionary = new TokenDictionary();
+
+    @Test
+    public void testUpdate() throws IOException {
+        Token invalidatedToken = new Token("invalidated", VM_UUID, VALID_FROM);
+        invalidatedToken.setValidTo(VALID_TO);
+
+        assertTrue(_tokenDictionary.update(ImmutableList.of(new Token("valid", VM_UUID, VALID_FROM), invalidatedToken)));
+        assertFalse(_tokenDictionary.update(ImmutableList.of(invalidatedToken)));
+
+        assertEquals(ImmutableMap.of("valid", VM_UUID + ",1527854400000,", "invalidated", VM_UUID + ",1527854400000,1527940800000"), write());
+    }
+
+    @Test
+    public void testUpdateInvalidate() throws IOException {
+        Token token = new Token("token", VM_UUID, VALID_FROM);
+        _tokenDictionary.update(ImmutableList.of(token));
+        token.setValidTo(VALID_TO);
+
+        assertTrue(_tokenDictionary.update(ImmutableList.of(token)));
+        assertEquals(ImmutableMap.of("token", VM_UUID + ",1527854400000,1527940800000"), write());
+    }
+
+    @Test
+    public void testUpdateIncompleteToken() {
+        assertFalse(_tokenDictionary.update(ImmutableList.of(new Token("token", null, VALID_FROM), new Token("token", VM_UUID, null))));
+        assertEquals(0, _tokenDictionary.size());
+    }
+
+    @Test
+    public void testPrune() throws IOException {
+        Token invalidatedToken = new Token("invalidated", VM_UUID, VALID_FROM);
+        invalidatedToken.setValidTo(VALID_TO);
+        _tokenDictionary.update(ImmutableList.of(new Token("valid", VM_UUID, VALID_FROM), invalidatedToken));
+
+        assertFalse(_tokenDictionary.prune(VALID_TO));
+        assertTrue(_tokenDictionary.prune(VALID_TO.plusSeconds(1)));
+        assertEquals(ImmutableMap.of("valid", VM_UUID + ",1527854400000,"), write());
+    }
+
+    @Test
+    public void testWriteReplace() throws IOException {
+        Path file = _temporaryFolder.getRoot().toPath().resolve("tokens.json");
+        _tokenDictionary.write(file);
+        _tokenDictionary.update(ImmutableList.of(new Token("token", VM_UUID, VALID_FROM)));
+
+        _tokenDictionary.write(file);
+
+        assertEquals(1, readDictionary(file).size());
+        assertEquals(1, Files.list(_temporaryFolder.getRoot().toPath()).count());
+    }
+
+    /**
+     * Measures update and write of the dictionary with 1M tokens. The benchmark is run if vmlog.benchmark system property is true.
+     */
+    @Test
+    public void testWriteBenchmark() throws IOException {
+        assumeTrue(Boolean.getBoolean("vmlog.benchmark"));
+        List<Token> tokens = new ArrayList<>(BENCHMARK_TOKENS);
+        for (int i = 0; i < BENCHMARK_TOKENS; i++) {
+            Token token = new Token(UUID.randomUUID().toString(), UUID.randomUUID().toString(), VALID_FROM.plusSeconds(i));
+            if (i % 2 == 0) {
+                token.setValidTo(VALID_TO.plusSeconds(i));
+            }
+            tokens.add(token);
+        }
+        Path file = _temporaryFolder.getRoot().toPath().resolve("tokens.json");
+
+        long start = System.nanoTime();
+        _tokenDictionary.update(tokens);
+        long updated = System.nanoTime();
+        _tokenDictionary.write(file);
+        long written = System.nanoTime();
+
+        s_logger.info(String.format("Token dictionary of %d tokens: update %d ms, write %d ms, %d bytes", BENCHMARK_TOKENS, (updated - start) / 1000000,
+                (written - updated) / 1000000, Files.size(file)));
+        assertEquals(BENCHMARK_TOKENS, _tokenDictionary.size());
+    }
+
+    private Map<?, ?> write() throws IOException {
+        Path file = _temporaryFolder.newFile().toPath();
+        _tokenDictionary.write(file);
+        return readDictionary(file);
+    }
+
+    private Map<?, ?> readDictionary(Path file) throws IOException {
+        return new ObjectMapper().readValue(file.toFile(), Map.class);
+    }
+}
@@ -0,0 +1,84 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.cloud.utils.fsm.StateMachine2;
+import com.cloud.vm.VirtualMachine;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VmExpungeListenerTest {
+
+    private static final String UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+
+    @Mock
+    private StateMachine2.Transition<VirtualMachine.State, VirtualMachine.Event> _transition;
+
+    @Mock
+    private VirtualMachine _vm;
+
+    private final List<String> _vmUuids = new ArrayList<>();
+    private final VmExpungeListener _listener = new VmExpungeListener(_vmUuids::add);
+
+    @Before
+    public void setUp() {
+        when(_vm.getUuid()).thenReturn(UUID);
+        when(_vm.getType()).thenReturn(VirtualMachine.Type.User);
+        when(_transition.getToState()).thenReturn(VirtualMachine.State.Expunging);
+    }
+
+    @Test
+    public void testPostStateTransitionEvent() {
+        assertTrue(_listener.postStateTransitionEvent(_transition, _vm, true, null));
+        assertEquals(Collections.singletonList(UUID), _vmUuids);
+    }
+
+    @Test
+    public void testPostStateTransitionEventFailedTransition() {
+        assertTrue(_listener.postStateTransitionEvent(_transition, _vm, false, null));
+        assertTrue(_vmUuids.isEmpty());
+    }
+
+    @Test
+    public void testPostStateTransitionEventOtherState() {
+        when(_transition.getToState()).thenReturn(VirtualMachine.State.Stopped);
+
+        assertTrue(_listener.postStateTransitionEvent(_transition, _vm, true, null));
+        assertTrue(_vmUuids.isEmpty());
+    }
+
+    @Test
+    public void testPostStateTransitionEventSystemVm() {
+        when(_vm.getType()).thenReturn(VirtualMachine.Type.DomainRouter);
+
+        assertTrue(_listener.postStateTransitionEvent(_transition, _vm, true, null));
+        assertTrue(_vmUuids.isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+import javax.naming.ConfigurationException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class VmLogAsyncExecutorImplTest {
+
+    private final SearchRequest _searchRequest = new SearchRequest();
+    private final List<ResponseListener> _listeners = new ArrayList<>();
+    private final RestClient _restClient = mock(RestClient.class, (Answer<Object>)invocation -> {
+        Arrays.stream(invocation.getArguments()).filter(ResponseListener.class::isInstance).forEach(listener -> _listeners.add((ResponseListener)listener));
+        return null;
+    });
+    private final RestHighLevelClient _restHighLevelClient = new RestHighLevelClient(_restClient, RestClient::close, Collections.emptyList()) {
+    };
+
+    private VmLogAsyncExecutorImpl _vmLogAsyncExecutor = new VmLogAsyncExecutorImpl();
+
+    @Before
+    public void setUp() throws ConfigurationException {
+        _vmLogAsyncExecutor.configure("vmLogAsyncExecutor", Collections.emptyMap());
+    }
+
+    @After
+    public void tearDown() {
+        _vmLogAsyncExecutor.stop();
+    }
+
+    @Test
+    public void testFetchLogFilesFailure() throws InterruptedException {
+        IOException exception = new IOException();
+        CompletableFuture<AggregateResponse<VmLogFileResponse>> result = _vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest);
+
+        assertEquals(1, _listeners.size());
+        assertFalse(result.isDone());
+
+        _listeners.get(0).onFailure(exception);
+
+        try {
+            result.get();
+            fail("The request should fail");
+        } catch (ExecutionException e) {
+            assertSame(exception, e.getCause());
+        }
+        assertEquals(0, _vmLogAsyncExecutor.getInFlight());
+    }
+
+    @Test
+    public void testMaxRequests() {
+        int maxRequests = VmLogManager.VmLogElasticsearchMaxRequests.value();
+        List<CompletableFuture<AggregateResponse<VmLogFileResponse>>> results = new ArrayList<>();
+        for (int i = 0; i <= maxRequests; i++) {
+            results.add(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest));
+        }
+
+        // the last request waits for a free slot
+        assertEquals(maxRequests, _listeners.size());
+        assertEquals(maxRequests, _vmLogAsyncExecutor.getInFlight());
+
+        _listeners.get(0).onFailure(new IOException());
+
+        assertTrue(results.get(0).isCompletedExceptionally());
+        assertEquals(maxRequests + 1, _listeners.size());
+        assertEquals(maxRequests, _vmLogAsyncExecutor.getInFlight());
+        assertFalse(results.get(maxRequests).isDone());
+    }
+}
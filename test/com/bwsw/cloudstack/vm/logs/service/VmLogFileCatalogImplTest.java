@@ -0,0 +1,209 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
+import com.bwsw.cloudstack.vm.logs.util.DateUtils;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicStatusLine;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VmLogFileCatalogImplTest {
+
+    private static final String UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final String OTHER_UUID = "0f6d4c5e-9f0b-4a4e-8d53-5b8c1ad3c8a2";
+    private static final String INDEX = "vmlog-" + UUID + "-2018-06-01";
+
+    @Mock
+    private RestHighLevelClient _restHighLevelClient;
+
+    @Mock
+    private VmLogRequestBuilder _vmLogRequestBuilder;
+
+    @Mock
+    private VmLogExecutor _vmLogExecutor;
+
+    @Mock
+    private BulkIndexer _bulkIndexer;
+
+    @Mock
+    private UpdateRequest _updateRequest;
+
+    @Mock
+    private Response _response;
+
+    private SearchRequest _searchRequest = new SearchRequest();
+
+    private SearchRequest _checkpointRequest = new SearchRequest();
+
+    private VmLogFileCatalogImpl _vmLogFileCatalog;
+
+    @Before
+    public void setUp() {
+        _vmLogFileCatalog = new VmLogFileCatalogImpl(_restHighLevelClient, _vmLogExecutor, _vmLogRequestBuilder, _bulkIndexer);
+        when(_vmLogRequestBuilder.getLogFileCheckpointSearchRequest(1000, null)).thenReturn(_checkpointRequest);
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        String completedIndex = "vmlog-" + UUID + "-2018-06-01";
+        String incompleteIndex = "vmlog-" + UUID + "-2018-06-02";
+        String currentIndex = "vmlog-" + UUID + "-" + DateUtils.getCurrentDateTime().toLocalDate();
+        String deletedIndex = "vmlog-" + OTHER_UUID + "-2018-05-01";
+        LocalDateTime incompleteCheckpoint = LocalDateTime.of(2018, 6, 2, 12, 0, 0);
+        NavigableMap<String, LocalDateTime> checkpoints = new TreeMap<>();
+        checkpoints.put(completedIndex, LocalDateTime.of(2018, 6, 3, 12, 0, 0));
+        checkpoints.put(incompleteIndex, incompleteCheckpoint);
+        checkpoints.put(deletedIndex, LocalDateTime.of(2018, 5, 3, 12, 0, 0));
+        Request deleteRequest = new Request("POST", "vmlog-files/_delete_by_query", Collections.emptyMap(), null);
+        SearchRequest incompleteIndexRequest = new SearchRequest(incompleteIndex);
+        SearchRequest currentIndexRequest = new SearchRequest(currentIndex);
+        LogFile logFile = new LogFile("/var/log/app.log", 1527940800000L, 1527944400000L, 10);
+        UpdateRequest logFileRequest = new UpdateRequest("vmlog-files", "_doc", "id");
+        UpdateRequest incompleteCheckpointRequest = new UpdateRequest("vmlog-files", "_doc", "checkpoint-" + incompleteIndex);
+        UpdateRequest currentCheckpointRequest = new UpdateRequest("vmlog-files", "_doc", "checkpoint-" + currentIndex);
+
+        when(_vmLogExecutor.fetchLogFileCheckpoints(_restHighLevelClient, _checkpointRequest)).thenReturn(checkpoints);
+        when(_vmLogRequestBuilder.getLogFileCatalogDeleteRequest(ImmutableList.of(deletedIndex))).thenReturn(deleteRequest);
+        when(_vmLogExecutor.execute(_restHighLevelClient, deleteRequest)).thenReturn(_response);
+        when(_response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, null));
+        when(_vmLogRequestBuilder.getLogFileStatsRequest(eq(incompleteIndex), eq(incompleteCheckpoint), any(), eq(1000), isNull(Map.class)))
+                .thenReturn(incompleteIndexRequest);
+        when(_vmLogRequestBuilder.getLogFileStatsRequest(eq(currentIndex), isNull(LocalDateTime.class), any(), eq(1000), isNull(Map.class)))
+                .thenReturn(currentIndexRequest);
+        when(_vmLogExecutor.fetchLogFileStats(_restHighLevelClient, incompleteIndexRequest))
+                .thenReturn(new AggregateResponse<>(ImmutableList.of(logFile), AggregateResponse.UNKNOWN_COUNT, ImmutableMap.of("source", logFile.getFile())));
+        when(_vmLogExecutor.fetchLogFileStats(_restHighLevelClient, currentIndexRequest))
+                .thenReturn(new AggregateResponse<>(Collections.emptyList(), AggregateResponse.UNKNOWN_COUNT, null));
+        when(_vmLogRequestBuilder.getLogFileCatalogUpdateRequest(eq(UUID), eq(incompleteIndex), eq(logFile), eq(incompleteCheckpoint), any())).thenReturn(logFileRequest);
+        when(_vmLogRequestBuilder.getLogFileCheckpointUpdateRequest(eq(incompleteIndex), any())).thenReturn(incompleteCheckpointRequest);
+        when(_vmLogRequestBuilder.getLogFileCheckpointUpdateRequest(eq(currentIndex), any())).thenReturn(currentCheckpointRequest);
+
+        _vmLogFileCatalog.refresh(ImmutableSet.of(completedIndex, incompleteIndex, currentIndex, "vmlog-registry"), true);
+
+        assertTrue(_vmLogFileCatalog.isReady());
+        verify(_vmLogExecutor).execute(_restHighLevelClient, deleteRequest);
+        verify(_bulkIndexer).execute(ImmutableList.of(logFileRequest));
+        verify(_bulkIndexer).execute(Collections.singletonList(incompleteCheckpointRequest));
+        verify(_bulkIndexer).execute(Collections.singletonList(currentCheckpointRequest));
+        verify(_vmLogRequestBuilder, never()).getLogFileStatsRequest(eq(completedIndex), any(), any(), eq(1000), any());
+    }
+
+    @Test
+    public void testRefreshCompletedIndices() throws IOException {
+        setIndexExpectations();
+
+        _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX), true);
+        _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX), true);
+
+        // checkpoints are fetched and the completed index is processed once
+        verify(_vmLogExecutor).fetchLogFileCheckpoints(_restHighLevelClient, _checkpointRequest);
+        verify(_vmLogExecutor).fetchLogFileStats(_restHighLevelClient, _searchRequest);
+        verify(_bulkIndexer).execute(Collections.singletonList(_updateRequest));
+    }
+
+    @Test
+    public void testRefreshRetry() throws IOException {
+        ArgumentCaptor<LocalDateTime> checkpoints = ArgumentCaptor.forClass(LocalDateTime.class);
+        setIndexExpectations();
+        doThrow(new IOException()).doNothing().when(_bulkIndexer).execute(Collections.singletonList(_updateRequest));
+
+        try {
+            _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX), true);
+            fail("Failed checkpoint update is expected");
+        } catch (IOException e) {
+            // the index is updated by the next run
+        }
+        assertFalse(_vmLogFileCatalog.isReady());
+        _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX), true);
+
+        verify(_vmLogRequestBuilder, times(2)).getLogFileStatsRequest(eq(INDEX), isNull(LocalDateTime.class), checkpoints.capture(), eq(1000), isNull(Map.class));
+        assertEquals(checkpoints.getAllValues().get(0), checkpoints.getAllValues().get(1));
+        verify(_vmLogRequestBuilder, times(2)).getLogFileCheckpointUpdateRequest(INDEX, checkpoints.getAllValues().get(0));
+    }
+
+    @Test
+    public void testRefreshNotLeader() throws IOException {
+        NavigableMap<String, LocalDateTime> checkpoints = new TreeMap<>();
+        checkpoints.put(INDEX, LocalDateTime.of(2018, 6, 2, 12, 0, 0));
+        when(_vmLogExecutor.fetchLogFileCheckpoints(_restHighLevelClient, _checkpointRequest)).thenReturn(checkpoints);
+
+        _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX, "vmlog-" + OTHER_UUID + "-2018-06-01", "vmlog-registry"), false);
+
+        // the catalog is not ready until the leader has processed all indices
+        assertFalse(_vmLogFileCatalog.isReady());
+        verify(_vmLogRequestBuilder, never()).getLogFileStatsRequest(any(), any(), any(), any(Integer.class), any());
+        verify(_bulkIndexer, never()).execute(any());
+    }
+
+    @Test
+    public void testRefreshNotLeaderReady() throws IOException {
+        NavigableMap<String, LocalDateTime> checkpoints = new TreeMap<>();
+        checkpoints.put(INDEX, LocalDateTime.of(2018, 6, 2, 12, 0, 0));
+        when(_vmLogExecutor.fetchLogFileCheckpoints(_restHighLevelClient, _checkpointRequest)).thenReturn(checkpoints);
+
+        _vmLogFileCatalog.refresh(ImmutableSet.of(INDEX, "vmlog-registry"), false);
+
+        assertTrue(_vmLogFileCatalog.isReady());
+        verify(_vmLogRequestBuilder, never()).getLogFileStatsRequest(any(), any(), any(), any(Integer.class), any());
+    }
+
+    private void setIndexExpectations() throws IOException {
+        when(_vmLogExecutor.fetchLogFileCheckpoints(_restHighLevelClient, _checkpointRequest)).thenReturn(new TreeMap<>());
+        when(_vmLogRequestBuilder.getLogFileStatsRequest(eq(INDEX), isNull(LocalDateTime.class), any(), eq(1000), isNull(Map.class))).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchLogFileStats(_restHighLevelClient, _searchRequest))
+                .thenReturn(new AggregateResponse<>(Collections.emptyList(), AggregateResponse.UNKNOWN_COUNT, null));
+        when(_vmLogRequestBuilder.getLogFileCheckpointUpdateRequest(eq(INDEX), any())).thenReturn(_updateRequest);
+    }
+}
@@ -0,0 +1,125 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.util.DateUtils;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VmLogIndexCatalogImplTest {
+
+    private static final String UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final String OTHER_UUID = "c2c6ae9c-6e5c-4c5c-a3b4-3fda5d83a5e5";
+    // the update is more than the ingest lag after the start of the day so indices for all previous days are complete
+    private static final LocalDateTime UPDATE_TIME = LocalDateTime.of(2018, 6, 10, 12, 0, 0);
+    private static final List<String> INDICES = ImmutableList
+            .of("vmlog-" + UUID + "-2018-05-30", "vmlog-" + UUID + "-2018-06-01", "vmlog-" + UUID + "-2018-06-03", "vmlog-" + OTHER_UUID + "-2018-06-02",
+                    "vmlog-registry", "vmlog-" + UUID + "-invalid");
+
+    private VmLogIndexCatalogImpl _vmLogIndexCatalog = new VmLogIndexCatalogImpl();
+
+    @Test
+    public void testGetDatesNotLoaded() {
+        assertNull(_vmLogIndexCatalog.getDates(UUID, null, null));
+    }
+
+    @Test
+    public void testGetDatesNoIndices() {
+        _vmLogIndexCatalog.update(INDICES, UPDATE_TIME);
+
+        assertTrue(_vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 6, 4, 0, 0), LocalDateTime.of(2018, 6, 8, 0, 0)).isEmpty());
+    }
+
+    @Test
+    public void testGetDatesInvalidRange() {
+        _vmLogIndexCatalog.update(INDICES, UPDATE_TIME);
+
+        assertTrue(_vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 6, 3, 0, 0), LocalDateTime.of(2018, 6, 1, 0, 0)).isEmpty());
+    }
+
+    @Test
+    public void testGetDatesRange() {
+        _vmLogIndexCatalog.update(INDICES, UPDATE_TIME);
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 5, 31, 10, 0), LocalDateTime.of(2018, 6, 3, 0, 0));
+
+        assertEquals(Collections.singletonList(LocalDate.of(2018, 6, 1)), result);
+    }
+
+    @Test
+    public void testGetDatesRecentDays() {
+        _vmLogIndexCatalog.update(INDICES, UPDATE_TIME);
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 6, 3, 10, 0), LocalDateTime.of(2018, 6, 11, 10, 0));
+
+        assertEquals(ImmutableList.of(LocalDate.of(2018, 6, 3), LocalDate.of(2018, 6, 10), LocalDate.of(2018, 6, 11)), result);
+    }
+
+    @Test
+    public void testGetDatesRecentDaysWithinIngestLag() {
+        _vmLogIndexCatalog.update(INDICES, LocalDateTime.of(2018, 6, 10, 0, 30, 0));
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 6, 4, 10, 0), LocalDateTime.of(2018, 6, 10, 10, 0));
+
+        assertEquals(ImmutableList.of(LocalDate.of(2018, 6, 9), LocalDate.of(2018, 6, 10)), result);
+    }
+
+    @Test
+    public void testGetDatesWithoutStart() {
+        _vmLogIndexCatalog.update(INDICES, UPDATE_TIME);
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, null, LocalDateTime.of(2018, 6, 2, 0, 0));
+
+        assertEquals(ImmutableList.of(LocalDate.of(2018, 5, 30), LocalDate.of(2018, 6, 1)), result);
+    }
+
+    @Test
+    public void testGetDatesWithoutEnd() {
+        LocalDateTime updateTime = DateUtils.getCurrentDateTime();
+        LocalDate today = updateTime.toLocalDate();
+        LocalDate completeBefore = updateTime.minusSeconds(VmLogManager.VmLogCacheIngestLag.value()).toLocalDate();
+        _vmLogIndexCatalog.update(ImmutableList.of("vmlog-" + UUID + "-" + today.minusDays(10)), updateTime);
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, updateTime.minusDays(20), null);
+
+        assertEquals(today.minusDays(10), result.get(0));
+        assertEquals(completeBefore, result.get(1));
+        assertEquals(today, result.get(result.size() - 1));
+    }
+
+    @Test
+    public void testGetDatesFarEnd() {
+        LocalDateTime updateTime = DateUtils.getCurrentDateTime();
+        LocalDate today = updateTime.toLocalDate();
+        _vmLogIndexCatalog.update(ImmutableList.of("vmlog-" + UUID + "-" + today.minusDays(10)), updateTime);
+
+        List<LocalDate> result = _vmLogIndexCatalog.getDates(UUID, updateTime.minusDays(20), LocalDateTime.of(9999, 12, 31, 0, 0));
+
+        assertEquals(today.minusDays(10), result.get(0));
+        assertEquals(today, result.get(result.size() - 1));
+    }
+}
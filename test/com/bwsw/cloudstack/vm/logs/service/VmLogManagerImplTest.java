@@ -17,13 +17,22 @@
 
 package com.bwsw.cloudstack.vm.logs.service;
 
+import com.bwsw.cloudstack.vm.logs.cache.CacheKey;
+import com.bwsw.cloudstack.vm.logs.cache.CacheStats;
+import com.bwsw.cloudstack.vm.logs.cache.VmLogCache;
 import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.entity.LogFileCount;
 import com.bwsw.cloudstack.vm.logs.entity.SortField;
 import com.bwsw.cloudstack.vm.logs.entity.Token;
 import com.bwsw.cloudstack.vm.logs.response.AggregateResponse;
 import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.TokenResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogExportResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogFileResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramBucketResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogHistogramResponse;
 import com.bwsw.cloudstack.vm.logs.response.VmLogResponse;
+import com.bwsw.cloudstack.vm.logs.security.CursorSigner;
 import com.bwsw.cloudstack.vm.logs.security.TokenGenerator;
 import com.bwsw.cloudstack.vm.logs.util.DateUtils;
 import com.cloud.exception.InvalidParameterValueException;
@@ -33,9 +42,12 @@ import com.cloud.user.AccountManager;
 import com.cloud.user.User;
 import com.cloud.utils.exception.CloudRuntimeException;
 import com.cloud.vm.VMInstanceVO;
+import com.cloud.vm.VirtualMachine;
 import com.cloud.vm.dao.VMInstanceDao;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.cloudstack.acl.SecurityChecker;
 import org.apache.cloudstack.api.ServerApiException;
 import org.apache.cloudstack.api.response.ListResponse;
@@ -45,44 +57,78 @@ import org.apache.http.HttpStatus;
 import org.apache.http.HttpVersion;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicStatusLine;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.hamcrest.CustomMatcher;
 import org.junit.AfterClass;
+import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -90,6 +136,8 @@ public class VmLogManagerImplTest {
 
     private static final long VM_ID = 1;
     private static final String UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final long OTHER_VM_ID = 2;
+    private static final String OTHER_UUID = "0f6d4c5e-9f0b-4a4e-8d53-5b8c1ad3c8a2";
     private static final int PAGE = 2;
     private static final int PAGE_SIZE = 10;
     private static final long START_INDEX = 0;
@@ -99,6 +147,14 @@ public class VmLogManagerImplTest {
     private static final LocalDateTime DATE_TIME = LocalDateTime.now();
     private static final String TOKEN = "5zVatA2s0kTi1Wxafwcf-lUKNVMw1-Fq8u2tzIcaTOWuZ5_mgH_e0EnZxLEEF5kp-WAUCEUsyqhy1osYQoVfOA";
     private static final Token TOKEN_ENTITY = new Token(TOKEN, UUID, LocalDateTime.now());
+    private static final String CURSOR = "cursor";
+    // the log has been indexed without log_id
+    private static final List<Object> SEARCH_AFTER = Collections.unmodifiableList(Arrays.asList(1525132800000L, null, "AWM4Rk2v3r8lFhKjmQ8b"));
+    private static final String CURSOR_PAYLOAD = "{\"vm_uuid\":\"" + UUID + "\",\"page_size\":" + PAGE_SIZE
+            + ",\"search_after\":[1525132800000,null,\"AWM4Rk2v3r8lFhKjmQ8b\"]}";
+
+    @Rule
+    public TemporaryFolder _temporaryFolder = new TemporaryFolder();
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -115,12 +171,33 @@ public class VmLogManagerImplTest {
     @Mock
     private VmLogExecutor _vmLogExecutor;
 
+    @Mock
+    private VmLogAsyncExecutor _vmLogAsyncExecutor;
+
     @Mock
     private TokenGenerator _tokenGenerator;
 
     @Mock
     private AccountManager _accountManager;
 
+    @Mock
+    private CursorSigner _cursorSigner;
+
+    @Mock
+    private VmLogCache _vmLogCache;
+
+    @Mock
+    private VmLogIndexCatalog _vmLogIndexCatalog;
+
+    @Mock
+    private VmLogScheduler _vmLogScheduler;
+
+    @Mock
+    private BulkIndexer _bulkIndexer;
+
+    @Mock
+    private VmLogFileCatalog _vmLogFileCatalog;
+
     @Mock
     private SearchScrollRequest _searchScrollRequest;
 
@@ -164,32 +241,38 @@ public class VmLogManagerImplTest {
         CallContext.unregisterAll();
     }
 
+    @Before
+    public void setUp() {
+        // the catalog is not loaded
+        when(_vmLogIndexCatalog.getDates(any(), any(), any())).thenReturn(null);
+    }
+
     @Test
     public void testListVmLogsInvalidPageSize() {
         setExceptionExpectation(InvalidParameterValueException.class, "page size");
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, -1, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, -1, null, null);
     }
 
     @Test
     public void testListVmLogsInvalidPage() {
         setExceptionExpectation(InvalidParameterValueException.class, "page");
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, -1, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, -1, PAGE_SIZE, null, null);
     }
 
     @Test
     public void testListVmLogsInvalidDates() {
         setExceptionExpectation(InvalidParameterValueException.class, "start/end dates");
 
-        _vmLogManager.listVmLogs(VM_ID, DATE_TIME, DATE_TIME.minusDays(1), null, null, null, PAGE, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, DATE_TIME, DATE_TIME.minusDays(1), null, null, null, PAGE, PAGE_SIZE, null, null);
     }
 
     @Test
     public void testListVmLogsInvalidScroll() {
         setExceptionExpectation(InvalidParameterValueException.class, "scroll");
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, -1);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, -1, null);
     }
 
     @Test
@@ -198,7 +281,7 @@ public class VmLogManagerImplTest {
 
         List<String> sortFields = ImmutableList.of("unknown");
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null, null);
     }
 
     @Test
@@ -207,7 +290,7 @@ public class VmLogManagerImplTest {
 
         List<String> sortFields = ImmutableList.of(EntityConstants.FILE, EntityConstants.LOG, "-" + EntityConstants.FILE);
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null, null);
     }
 
     @Test
@@ -215,26 +298,26 @@ public class VmLogManagerImplTest {
         setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
         when(_vmInstanceDao.findById(VM_ID)).thenReturn(null);
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null, null);
     }
 
     @Test
     public void testListVmLogsRequestException() throws IOException {
         setExceptionExpectation(ServerApiException.class, "VM logs");
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, null, null)).thenReturn(_searchRequest);
         when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenThrow(new IOException());
 
-        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null);
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null, null);
     }
 
     @Test
     public void testListVmLogsDefaultValues() throws IOException {
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, 1, VmLogManager.VmLogDefaultPageSize.value(), null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 1, VmLogManager.VmLogDefaultPageSize.value(), null, null, null, null, null, null, null)).thenReturn(_searchRequest);
         when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
 
-        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, null, null, null);
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, null, null, null, null);
 
         assertSame(_emptyVmLogResponse, result);
     }
@@ -250,12 +333,218 @@ public class VmLogManagerImplTest {
                         new SortField(VmLogRequestBuilder.LOG_FILE_SORT_FIELD, SortField.SortOrder.ASC));
 
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, TIMEOUT, DATE_TIME, end, keywords, logFile, sortFields)).thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, TIMEOUT, DATE_TIME, end, keywords, logFile, sortFields, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, DATE_TIME, end, keywords, logFile, sort, PAGE, PAGE_SIZE, TIMEOUT, null);
+
+        assertSame(_emptyVmLogResponse, result);
+    }
+
+    @Test
+    public void testListVmLogsNotCacheable() throws IOException {
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, DATE_TIME, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, DATE_TIME, null, null, null, PAGE, PAGE_SIZE, null, null);
+
+        assertSame(_emptyVmLogResponse, result);
+        verifyZeroInteractions(_vmLogCache);
+    }
+
+    @Test
+    public void testListVmLogsCacheMiss() throws IOException {
+        LocalDateTime end = DATE_TIME.minusDays(1);
+        CacheKey cacheKey = new CacheKey(UUID, "logs", null, end, ImmutableList.of("first", "second"), null, null, PAGE, PAGE_SIZE, null);
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, end, ImmutableList.of("second", "first"), null, null, null)).thenReturn(_searchRequest);
         when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
 
-        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, DATE_TIME, end, keywords, logFile, sort, PAGE, PAGE_SIZE, TIMEOUT);
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager
+                .listVmLogs(VM_ID, null, end, ImmutableList.of("second", "first"), null, null, PAGE, PAGE_SIZE, null, null);
+
+        assertSame(_emptyVmLogResponse, result);
+        verify(_vmLogCache).get(cacheKey);
+        verify(_vmLogCache).put(eq(cacheKey), eq(_emptyVmLogResponse), anyLong());
+    }
+
+    @Test
+    public void testListVmLogsCacheHit() throws IOException {
+        LocalDateTime end = DATE_TIME.minusDays(1);
+        CacheKey cacheKey = new CacheKey(UUID, "logs", null, end, null, null, null, PAGE, PAGE_SIZE, null);
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, end, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogCache.get(cacheKey)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, end, null, null, null, PAGE, PAGE_SIZE, null, null);
 
         assertSame(_emptyVmLogResponse, result);
+        verify(_vmLogExecutor, never()).fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class);
+        verify(_vmLogCache, never()).put(any(), any(), anyLong());
+    }
+
+    @Test
+    public void testGetCacheStats() throws IOException {
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+        when(_vmLogCache.getStats()).thenReturn(new CacheStats(1, 2, 3, 4, 5));
+
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+        CacheStats result = _vmLogManager.getCacheStats();
+
+        assertEquals(1, result.getHits());
+        assertEquals(2, result.getMisses());
+        assertEquals(3, result.getEvictions());
+        assertEquals(4, result.getEntries());
+        assertEquals(5, result.getSize());
+        assertEquals(1, result.getSearches());
+        assertEquals(0, result.getDeduplicatedSearches());
+    }
+
+    @Test
+    public void testListVmLogsNoIndices() {
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, DATE_TIME, null)).thenReturn(Collections.emptyList());
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, DATE_TIME, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getItems().isEmpty());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+    }
+
+    @Test
+    public void testListVmLogsDates() throws IOException {
+        List<LocalDate> dates = ImmutableList.of(DATE_TIME.toLocalDate());
+
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, DATE_TIME, null)).thenReturn(dates);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, dates, PAGE, PAGE_SIZE, null, DATE_TIME, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, DATE_TIME, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+
+        assertSame(_emptyVmLogResponse, result);
+    }
+
+    @Test
+    public void testListVmLogsInvalidSearchAfter() {
+        setExceptionExpectation(InvalidParameterValueException.class, "search after");
+
+        List<String> sortFields = ImmutableList.of(EntityConstants.TIMESTAMP, EntityConstants.FILE);
+
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null, ImmutableList.of(DATE_TIME.toString(), SCROLL_ID));
+    }
+
+    @Test
+    public void testListVmLogsInvalidSearchAfterType() {
+        setExceptionExpectation(InvalidParameterValueException.class, "search after");
+
+        List<String> sortFields = ImmutableList.of(EntityConstants.TIMESTAMP);
+
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sortFields, PAGE, PAGE_SIZE, null, ImmutableList.of(DATE_TIME.toString(), "JSJpfkGvS2yu5qnBTaRPHg", SCROLL_ID));
+    }
+
+    @Test
+    public void testListVmLogsInvalidSearchAfterTiebreaker() {
+        setExceptionExpectation(InvalidParameterValueException.class, "search after");
+
+        // _id is present for every log
+        _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, PAGE, PAGE_SIZE, null, Arrays.asList(1.5, null, null));
+    }
+
+    @Test
+    public void testListVmLogsDeepPage() throws IOException {
+        List<VmLogResponse> items = ImmutableList.of(new VmLogResponse());
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 3, PAGE_SIZE, null, null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(100, items, null, Arrays.asList(1.5, null, "AWM4Rk2v3r8lFhKjmQ8b")));
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, null, null, null, null, 3, PAGE_SIZE, null, null);
+
+        assertEquals(100, result.getCount());
+        assertSame(items, result.getItems());
+        assertNull(result.getSearchAfter());
+    }
+
+    @Test
+    public void testListVmLogsSearchAfter() throws IOException {
+        List<String> sort = ImmutableList.of("-" + EntityConstants.TIMESTAMP);
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.DESC));
+        List<Object> searchAfter = ImmutableList.of(1525132800000L, "JSJpfkGvS2yu5qnBTaRPHg", SCROLL_ID);
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, sortFields, searchAfter)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.listVmLogs(VM_ID, null, null, null, null, sort, PAGE, PAGE_SIZE, null, searchAfter);
+
+        assertSame(_emptyVmLogResponse, result);
+    }
+
+    @Test
+    public void testListMultiVmLogsNoIds() {
+        setExceptionExpectation(InvalidParameterValueException.class, "virtual machine ids");
+
+        _vmLogManager.listVmLogs(Collections.emptyList(), null, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+    }
+
+    @Test
+    public void testListMultiVmLogsTooManyIds() {
+        setExceptionExpectation(InvalidParameterValueException.class, "at most");
+
+        _vmLogManager.listVmLogs(LongStream.rangeClosed(1, VmLogManager.MAX_SEARCH_VMS + 1).boxed().collect(Collectors.toList()), null, null, null, null, null, PAGE,
+                PAGE_SIZE, null, null);
+    }
+
+    @Test
+    public void testListMultiVmLogsNonexistentVM() {
+        setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
+        setVmExpectations();
+        when(_vmInstanceDao.findById(OTHER_VM_ID)).thenReturn(null);
+
+        _vmLogManager.listVmLogs(ImmutableList.of(VM_ID, OTHER_VM_ID), null, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+    }
+
+    @Test
+    public void testListMultiVmLogs() throws IOException {
+        List<LocalDate> dates = ImmutableList.of(DATE_TIME.toLocalDate());
+        Map<String, List<LocalDate>> vmDates = new HashMap<>();
+        vmDates.put(UUID, null);
+        vmDates.put(OTHER_UUID, dates);
+        List<SortField> sorting = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+
+        setMultiVmExpectations();
+        when(_vmLogIndexCatalog.getDates(OTHER_UUID, DATE_TIME, null)).thenReturn(dates);
+        when(_vmLogRequestBuilder.getLogSearchRequest(vmDates, PAGE, PAGE_SIZE, null, DATE_TIME, null, null, null, sorting, SEARCH_AFTER)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager
+                .listVmLogs(ImmutableList.of(VM_ID, OTHER_VM_ID), DATE_TIME, null, null, null, null, PAGE, PAGE_SIZE, null, SEARCH_AFTER);
+
+        assertSame(_emptyVmLogResponse, result);
+    }
+
+    @Test
+    public void testListMultiVmLogsNoIndices() {
+        setMultiVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, DATE_TIME, null)).thenReturn(Collections.emptyList());
+        when(_vmLogIndexCatalog.getDates(OTHER_UUID, DATE_TIME, null)).thenReturn(Collections.emptyList());
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager
+                .listVmLogs(ImmutableList.of(VM_ID, OTHER_VM_ID), DATE_TIME, null, null, null, null, PAGE, PAGE_SIZE, null, null);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getItems().isEmpty());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
     }
 
     @Test
@@ -306,39 +595,404 @@ public class VmLogManagerImplTest {
         assertSame(_emptyVmLogResponse, result);
     }
 
+    @Test
+    public void testStreamVmLogsInvalidPageSize() {
+        setExceptionExpectation(InvalidParameterValueException.class, "page size");
+
+        _vmLogManager.streamVmLogs(VM_ID, null, null, null, null, null, -1);
+    }
+
+    @Test
+    public void testStreamVmLogsNonexistentVM() {
+        setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
+        when(_vmInstanceDao.findById(VM_ID)).thenReturn(null);
+
+        _vmLogManager.streamVmLogs(VM_ID, null, null, null, null, null, PAGE_SIZE);
+    }
+
+    @Test
+    public void testStreamVmLogsFullPage() throws IOException {
+        List<VmLogResponse> items = Collections.nCopies(PAGE_SIZE, new VmLogResponse());
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 1, PAGE_SIZE, null, null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(PAGE_SIZE * 2, items, null, SEARCH_AFTER));
+        when(_cursorSigner.sign(argThat(new CustomMatcher<String>("cursor payload") {
+            @Override
+            public boolean matches(Object o) {
+                return o instanceof String && ((String)o).contains(UUID) && ((String)o).contains("AWM4Rk2v3r8lFhKjmQ8b");
+            }
+        }))).thenReturn(CURSOR);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.streamVmLogs(VM_ID, null, null, null, null, null, PAGE_SIZE);
+
+        assertEquals(PAGE_SIZE * 2, result.getCount());
+        assertEquals(items, result.getItems());
+        assertEquals(CURSOR, result.getCursor());
+        assertNull(result.getScrollId());
+    }
+
+    @Test
+    public void testStreamVmLogsLastPage() throws IOException {
+        List<VmLogResponse> items = Collections.nCopies(PAGE_SIZE - 1, new VmLogResponse());
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 1, PAGE_SIZE, null, null, null, null, null, null, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(PAGE_SIZE - 1, items, null, SEARCH_AFTER));
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.streamVmLogs(VM_ID, null, null, null, null, null, PAGE_SIZE);
+
+        assertEquals(items, result.getItems());
+        assertNull(result.getCursor());
+    }
+
+    @Test
+    public void testStreamVmLogsInvalidSignature() {
+        setExceptionExpectation(InvalidParameterValueException.class, "cursor");
+        when(_cursorSigner.verify(CURSOR)).thenReturn(null);
+
+        _vmLogManager.streamVmLogs(CURSOR);
+    }
+
+    @Test
+    public void testStreamVmLogsInvalidPayload() {
+        setExceptionExpectation(InvalidParameterValueException.class, "cursor");
+        when(_cursorSigner.verify(CURSOR)).thenReturn("invalid");
+
+        _vmLogManager.streamVmLogs(CURSOR);
+    }
+
+    @Test
+    public void testStreamVmLogsCursorPermissionDenied() {
+        PermissionDeniedException exception = new PermissionDeniedException("VM");
+        setExceptionExpectation(exception.getClass(), exception.getMessage());
+
+        when(_cursorSigner.verify(CURSOR)).thenReturn(CURSOR_PAYLOAD);
+        when(_vmInstanceDao.findByUuid(UUID)).thenReturn(_vmInstanceVO);
+        doThrow(exception).when(_accountManager).checkAccess(_callerAccount, SecurityChecker.AccessType.OperateEntry, false, _vmInstanceVO);
+
+        CallContext.register(_callerUser, _callerAccount);
+
+        _vmLogManager.streamVmLogs(CURSOR);
+    }
+
+    @Test
+    public void testStreamVmLogsCursor() throws IOException {
+        when(_cursorSigner.verify(CURSOR)).thenReturn(CURSOR_PAYLOAD);
+        when(_vmInstanceDao.findByUuid(UUID)).thenReturn(_vmInstanceVO);
+        doNothing().when(_accountManager).checkAccess(_callerAccount, SecurityChecker.AccessType.OperateEntry, false, _vmInstanceVO);
+        when(_vmLogRequestBuilder.getLogSearchRequest(eq(UUID), eq(null), eq(1), eq(PAGE_SIZE), eq(null), eq(null), eq(null), eq(null), eq(null), eq(null), argThat(
+                new CustomMatcher<List<Object>>("search after") {
+                    @Override
+                    public boolean matches(Object o) {
+                        return o instanceof List && ((List<?>)o).size() == SEARCH_AFTER.size() && SEARCH_AFTER.get(2).equals(((List<?>)o).get(2));
+                    }
+                }))).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(_emptyVmLogResponse);
+
+        CallContext.register(_callerUser, _callerAccount);
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.streamVmLogs(CURSOR);
+
+        assertEquals(_emptyVmLogResponse.getCount(), result.getCount());
+        assertNull(result.getCursor());
+    }
+
+    @Test
+    public void testTailVmLogsInvalidTimeout() {
+        setExceptionExpectation(InvalidParameterValueException.class, "timeout");
+
+        _vmLogManager.tailVmLogs(VM_ID, null, null, null, null, VmLogManager.VmLogTailTimeout.value() + 1);
+    }
+
+    @Test
+    public void testTailVmLogsTimeoutAboveLimit() {
+        setExceptionExpectation(InvalidParameterValueException.class, "timeout");
+
+        _vmLogManager.tailVmLogs(VM_ID, null, null, null, null, VmLogManager.MAX_TAIL_TIMEOUT + 1);
+    }
+
+    @Test
+    public void testTailVmLogsInvalidCursor() {
+        setExceptionExpectation(InvalidParameterValueException.class, "cursor");
+
+        _vmLogManager.tailVmLogs(VM_ID, null, null, null, ImmutableList.of("AWM4Rk2v3r8lFhKjmQ8b"), 0);
+    }
+
+    @Test
+    public void testTailVmLogsNoNewLogs() throws IOException {
+        List<String> keywords = ImmutableList.of("error");
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogProbeRequest(eq(UUID), any(), eq(LocalDateTime.of(2018, 5, 1, 0, 0)), eq(keywords), eq("/var/log/app.log")))
+                .thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(new ScrollableListResponse<>(0, Collections.emptyList(), null));
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.tailVmLogs(VM_ID, keywords, "/var/log/app.log", PAGE_SIZE, SEARCH_AFTER, 0);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getItems().isEmpty());
+        assertEquals(SEARCH_AFTER, result.getSearchAfter());
+        verify(_vmLogRequestBuilder, never()).getLogSearchRequest(any(), any(), any(Integer.class), any(Integer.class), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testTailVmLogs() throws IOException {
+        List<Object> nextCursor = ImmutableList.of(1525132801000L, "JSJpfkGvS2yu5qnBTaRPHg", "AWM4Rk2v3r8lFhKjmQ8c");
+        List<VmLogResponse> logs = ImmutableList.of(getVmLog("AWM4Rk2v3r8lFhKjmQ8c"));
+        List<SortField> sorting = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+        SearchRequest probeRequest = new SearchRequest("probe");
+        List<LocalDate> dates = ImmutableList.of(LocalDate.of(2018, 5, 1), DateUtils.getCurrentDateTime().toLocalDate());
+
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 5, 1, 0, 0), null)).thenReturn(dates);
+        when(_vmLogRequestBuilder.getLogProbeRequest(UUID, dates, LocalDateTime.of(2018, 5, 1, 0, 0), null, null)).thenReturn(probeRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, dates, 1, PAGE_SIZE, null, null, null, null, null, sorting, SEARCH_AFTER)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, probeRequest, VmLogResponse.class)).thenReturn(new ScrollableListResponse<>(1, Collections.emptyList(), null));
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenReturn(new ScrollableListResponse<>(5, logs, null, nextCursor));
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.tailVmLogs(VM_ID, null, null, PAGE_SIZE, SEARCH_AFTER, 0);
+
+        assertNotNull(result);
+        assertEquals(1, result.getCount());
+        assertEquals(logs, result.getItems());
+        assertEquals(nextCursor, result.getSearchAfter());
+    }
+
+    @Test
+    public void testTailVmLogsNoIndices() {
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, LocalDateTime.of(2018, 5, 1, 0, 0), null)).thenReturn(Collections.emptyList());
+
+        ScrollableListResponse<VmLogResponse> result = _vmLogManager.tailVmLogs(VM_ID, null, null, PAGE_SIZE, SEARCH_AFTER, 0);
+
+        assertEquals(0, result.getCount());
+        assertEquals(SEARCH_AFTER, result.getSearchAfter());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+    }
+
+    @Test
+    public void testTailVmLogsRequestException() throws IOException {
+        setExceptionExpectation(ServerApiException.class, "VM logs");
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogProbeRequest(eq(UUID), any(), any(), any(), any())).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenThrow(new IOException());
+
+        _vmLogManager.tailVmLogs(VM_ID, null, null, null, null, 0);
+    }
+
+    @Test
+    public void testExportVmLogsDisabled() {
+        setExceptionExpectation(InvalidParameterValueException.class, "disabled");
+
+        _vmLogManager.exportVmLogs(VM_ID, null, null, null, null);
+    }
+
+    @Test
+    public void testExportVmLogsNonexistentVM() {
+        setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
+        when(_vmInstanceDao.findById(VM_ID)).thenReturn(null);
+
+        _vmLogManager.exportVmLogs(VM_ID, null, null, null, null, _temporaryFolder.getRoot().toPath());
+    }
+
+    @Test
+    public void testExportVmLogs() throws IOException {
+        int batchSize = VmLogManager.VmLogExportBatchSize.value();
+        List<VmLogResponse> firstPageResults = IntStream.range(0, batchSize).mapToObj(i -> getVmLog("id" + i)).collect(Collectors.toList());
+        List<VmLogResponse> secondPageResults = ImmutableList.of(getVmLog("last"));
+        List<SortField> sorting = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+        SearchRequest secondSearchRequest = new SearchRequest("second");
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 1, batchSize, null, DATE_TIME, null, null, null, sorting, null)).thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(UUID, null, 1, batchSize, null, DATE_TIME, null, null, null, sorting, SEARCH_AFTER)).thenReturn(secondSearchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(batchSize + 1, firstPageResults, null, SEARCH_AFTER));
+        when(_vmLogExecutor.fetch(_restHighLevelClient, secondSearchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(batchSize + 1, secondPageResults, null, Arrays.asList(1525132800000L, null, "last")));
+
+        VmLogExportResponse result = _vmLogManager.exportVmLogs(VM_ID, DATE_TIME, null, null, null, _temporaryFolder.getRoot().toPath());
+
+        assertNotNull(result);
+        assertEquals(batchSize + 1, result.getCount());
+        assertTrue(result.getFile().startsWith(UUID) && result.getFile().endsWith(".ndjson.gz"));
+        assertNull(result.getUrl());
+        File file = new File(_temporaryFolder.getRoot(), result.getFile());
+        assertEquals(file.getPath(), result.getPath());
+        assertEquals(file.length(), result.getSize());
+        assertEquals(1, _temporaryFolder.getRoot().list().length);
+        List<String> lines = IOUtils.readLines(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8);
+        assertEquals(batchSize + 1, lines.size());
+        assertEquals("{\"id\":\"id0\",\"timestamp\":\"2018-05-01T00:00:00.000Z\",\"file\":\"/var/log/app.log\",\"log\":\"message\"}", lines.get(0));
+        assertEquals("{\"id\":\"last\",\"timestamp\":\"2018-05-01T00:00:00.000Z\",\"file\":\"/var/log/app.log\",\"log\":\"message\"}", lines.get(batchSize));
+    }
+
+    @Test
+    public void testExportVmLogsNoLogIds() throws IOException {
+        int batchSize = VmLogManager.VmLogExportBatchSize.value();
+        // logs indexed without log_id with the same timestamp are split between pages and told apart by _id
+        List<VmLogResponse> firstPageResults = IntStream.range(0, batchSize).mapToObj(i -> getVmLog("id" + i)).collect(Collectors.toList());
+        List<VmLogResponse> secondPageResults = ImmutableList.of(getVmLog("tied"));
+        List<Object> firstSearchAfter = Arrays.asList(1525132800000L, null, "id" + (batchSize - 1));
+        SearchRequest secondSearchRequest = new SearchRequest("second");
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(eq(UUID), eq(null), eq(1), eq(batchSize), eq(null), eq(DATE_TIME), eq(null), eq(null), eq(null), any(), eq(null)))
+                .thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogSearchRequest(eq(UUID), eq(null), eq(1), eq(batchSize), eq(null), eq(DATE_TIME), eq(null), eq(null), eq(null), any(),
+                eq(firstSearchAfter))).thenReturn(secondSearchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(batchSize + 1, firstPageResults, null, firstSearchAfter));
+        when(_vmLogExecutor.fetch(_restHighLevelClient, secondSearchRequest, VmLogResponse.class))
+                .thenReturn(new ScrollableListResponse<>(batchSize + 1, secondPageResults, null, Arrays.asList(1525132800000L, null, "tied")));
+
+        VmLogExportResponse result = _vmLogManager.exportVmLogs(VM_ID, DATE_TIME, null, null, null, _temporaryFolder.getRoot().toPath());
+
+        assertEquals(batchSize + 1, result.getCount());
+        List<String> lines = IOUtils.readLines(new GZIPInputStream(new FileInputStream(new File(_temporaryFolder.getRoot(), result.getFile()))), StandardCharsets.UTF_8);
+        assertEquals(batchSize + 1, lines.size());
+        assertTrue(lines.get(batchSize).contains("\"id\":\"tied\""));
+    }
+
+    @Test
+    public void testExportVmLogsNoIndices() throws IOException {
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, DATE_TIME, null)).thenReturn(Collections.emptyList());
+
+        VmLogExportResponse result = _vmLogManager.exportVmLogs(VM_ID, DATE_TIME, null, null, null, _temporaryFolder.getRoot().toPath());
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        File file = new File(_temporaryFolder.getRoot(), result.getFile());
+        assertTrue(IOUtils.readLines(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8).isEmpty());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+    }
+
+    @Test
+    public void testExportVmLogsRequestException() throws IOException {
+        setExceptionExpectation(ServerApiException.class, "export VM logs");
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogSearchRequest(any(), any(), any(Integer.class), any(Integer.class), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetch(_restHighLevelClient, _searchRequest, VmLogResponse.class)).thenThrow(new IOException());
+
+        try {
+            _vmLogManager.exportVmLogs(VM_ID, null, null, null, null, _temporaryFolder.getRoot().toPath());
+        } finally {
+            assertEquals(0, _temporaryFolder.getRoot().list().length);
+        }
+    }
+
+    @Test
+    public void testGetVmLogHistogramInvalidDates() {
+        setExceptionExpectation(InvalidParameterValueException.class, "start/end dates");
+
+        _vmLogManager.getVmLogHistogram(VM_ID, DATE_TIME, DATE_TIME.minusDays(1), null, null);
+    }
+
+    @Test
+    public void testGetVmLogHistogramNonexistentVM() {
+        setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
+        when(_vmInstanceDao.findById(VM_ID)).thenReturn(null);
+
+        _vmLogManager.getVmLogHistogram(VM_ID, null, null, null, null);
+    }
+
+    @Test
+    public void testGetVmLogHistogram() throws IOException {
+        LocalDateTime end = DATE_TIME.plusDays(1);
+        List<String> keywords = ImmutableList.of("keyword");
+        List<VmLogHistogramBucketResponse> buckets = ImmutableList.of(new VmLogHistogramBucketResponse("2018-05-01T00:00:00.000Z", 3),
+                new VmLogHistogramBucketResponse("2018-05-01T00:30:00.000Z", 0));
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogHistogramRequest(UUID, null, DATE_TIME, end, keywords, "/var/log/app.log", 1800000)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchHistogram(_restHighLevelClient, _searchRequest)).thenReturn(new AggregateResponse<>(buckets, 3, null));
+
+        VmLogHistogramResponse result = _vmLogManager.getVmLogHistogram(VM_ID, DATE_TIME, end, keywords, "/var/log/app.log");
+
+        assertNotNull(result);
+        assertEquals(1800, result.getInterval());
+        assertEquals(3, result.getCount());
+        assertEquals(buckets, result.getBuckets());
+    }
+
+    @Test
+    public void testGetVmLogHistogramOpenRange() throws IOException {
+        List<LocalDate> dates = ImmutableList.of(DATE_TIME.toLocalDate().minusDays(3), DATE_TIME.toLocalDate());
+
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, null, DATE_TIME)).thenReturn(dates);
+        when(_vmLogRequestBuilder.getLogHistogramRequest(UUID, dates, null, DATE_TIME, null, null, 3600000)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchHistogram(_restHighLevelClient, _searchRequest)).thenReturn(new AggregateResponse<>(Collections.emptyList(), 0, null));
+
+        VmLogHistogramResponse result = _vmLogManager.getVmLogHistogram(VM_ID, null, DATE_TIME, null, null);
+
+        assertNotNull(result);
+        assertEquals(3600, result.getInterval());
+        assertEquals(0, result.getCount());
+        assertTrue(result.getBuckets().isEmpty());
+    }
+
+    @Test
+    public void testGetVmLogHistogramNoIndices() {
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, DATE_TIME, null)).thenReturn(Collections.emptyList());
+
+        VmLogHistogramResponse result = _vmLogManager.getVmLogHistogram(VM_ID, DATE_TIME, null, null, null);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getBuckets().isEmpty());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+    }
+
+    @Test
+    public void testGetVmLogHistogramRequestException() throws IOException {
+        setExceptionExpectation(ServerApiException.class, "VM log histogram");
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogHistogramRequest(any(), any(), any(), any(), any(), any(), any(Long.class))).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchHistogram(_restHighLevelClient, _searchRequest)).thenThrow(new IOException());
+
+        _vmLogManager.getVmLogHistogram(VM_ID, null, null, null, null);
+    }
+
     @Test
     public void testListVmLogFilesNullPageSize() {
         setExceptionExpectation(InvalidParameterValueException.class, "page size");
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, null);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, null, null);
     }
 
     @Test
     public void testListVmLogFilesNegativePageSize() {
         setExceptionExpectation(InvalidParameterValueException.class, "page size");
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, -1L);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, -1L, null);
     }
 
     @Test
     public void testListVmLogFilesZeroPageSize() {
         setExceptionExpectation(InvalidParameterValueException.class, "page size");
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, 0L);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, null, 0L, null);
     }
 
     @Test
     public void testListVmLogFilesNegativeStartIndex() {
         setExceptionExpectation(InvalidParameterValueException.class, "start index");
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, -1L, PAGE_SIZE_ONE);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, -1L, PAGE_SIZE_ONE, null);
     }
 
     @Test
     public void testListVmLogFilesInvalidDates() {
         setExceptionExpectation(InvalidParameterValueException.class, "start/end dates");
 
-        _vmLogManager.listVmLogFiles(VM_ID, DATE_TIME, DATE_TIME.minusDays(1), START_INDEX, PAGE_SIZE_ONE);
+        _vmLogManager.listVmLogFiles(VM_ID, DATE_TIME, DATE_TIME.minusDays(1), START_INDEX, PAGE_SIZE_ONE, null);
     }
 
     @Test
@@ -346,26 +1000,28 @@ public class VmLogManagerImplTest {
         setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
         when(_vmInstanceDao.findById(VM_ID)).thenReturn(null);
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
     }
 
     @Test
     public void testListVmLogFilesRequestException() throws IOException {
         setExceptionExpectation(ServerApiException.class, "VM log files");
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, (int)PAGE_SIZE_ONE, null, null, null)).thenReturn(_searchRequest);
-        when(_vmLogExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenThrow(new IOException());
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        CompletableFuture<AggregateResponse<VmLogFileResponse>> future = new CompletableFuture<>();
+        future.completeExceptionally(new IOException());
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(future);
 
-        _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE);
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
     }
 
     @Test
     public void testListVmLogFilesEmptyResults() throws IOException {
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, (int)PAGE_SIZE_ONE, null, null, null)).thenReturn(_searchRequest);
-        when(_vmLogExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(new AggregateResponse<>(null, 0, null));
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(null, 0, null)));
 
-        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE);
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
 
         assertNotNull(result);
         assertNotNull(result.getCount());
@@ -383,12 +1039,13 @@ public class VmLogManagerImplTest {
         List<VmLogFileResponse> secondPageResults = ImmutableList.of(new VmLogFileResponse("warning.log"));
 
         setVmExpectations();
-        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, (int)PAGE_SIZE_ONE, null, DATE_TIME, end)).thenReturn(_searchRequest);
-        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, (int)PAGE_SIZE_ONE, searchAfter, DATE_TIME, end)).thenReturn(_searchRequest);
-        when(_vmLogExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(new AggregateResponse<>(firstPageResults, count, searchAfter))
-                .thenReturn(new AggregateResponse<>(secondPageResults, count, null));
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, DATE_TIME, end, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, searchAfter, DATE_TIME, end, LogFileCount.NONE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(firstPageResults, count, searchAfter)))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(secondPageResults, count, null)));
 
-        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, DATE_TIME, end, PAGE_SIZE_ONE, PAGE_SIZE_ONE);
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, DATE_TIME, end, PAGE_SIZE_ONE, PAGE_SIZE_ONE, null);
 
         assertNotNull(result);
         assertNotNull(result.getCount());
@@ -396,6 +1053,305 @@ public class VmLogManagerImplTest {
         assertEquals(secondPageResults, result.getResponses());
     }
 
+    @Test
+    public void testListVmLogFilesCacheHit() throws IOException {
+        LocalDateTime end = DATE_TIME.minusDays(1);
+        AggregateResponse<VmLogFileResponse> response = new AggregateResponse<>(ImmutableList.of(new VmLogFileResponse("server.log")), 1, null);
+
+        setVmExpectations();
+        when(_vmLogCache.get(new CacheKey(UUID, "logfiles", null, end, PAGE_SIZE_ONE, null, LogFileCount.PRECISE))).thenReturn(response);
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, end, START_INDEX, PAGE_SIZE_ONE, null);
+
+        assertNotNull(result);
+        assertEquals(response.getItems(), result.getResponses());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogAsyncExecutor);
+    }
+
+    @Test
+    public void testListVmLogFilesCachedCount() throws IOException {
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("server.log"));
+
+        setVmExpectations();
+        when(_vmLogCache.get(new CacheKey(UUID, "logfilecount", null, null, LogFileCount.PRECISE)))
+                .thenReturn(new VmLogManagerImpl.LogFileCountEntry(7, System.nanoTime()));
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.NONE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, AggregateResponse.UNKNOWN_COUNT, null)));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
+
+        assertEquals(7, result.getCount().intValue());
+        assertEquals(results, result.getResponses());
+    }
+
+    @Test
+    public void testListVmLogFilesExpiredCount() throws IOException {
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("server.log"));
+        CacheKey countCacheKey = new CacheKey(UUID, "logfilecount", null, null, LogFileCount.PRECISE);
+
+        setVmExpectations();
+        when(_vmLogCache.get(countCacheKey))
+                .thenReturn(new VmLogManagerImpl.LogFileCountEntry(7, System.nanoTime() - TimeUnit.SECONDS.toNanos(VmLogManager.VmLogFileCountTtl.value())));
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, 1, null)));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
+
+        assertEquals(1, result.getCount().intValue());
+        verify(_vmLogCache).put(eq(countCacheKey), any(VmLogManagerImpl.LogFileCountEntry.class), anyLong());
+    }
+
+    @Test
+    public void testListVmLogFilesStoresCursors() throws IOException {
+        Map<String, Object> searchAfter = ImmutableMap.of(VmLogRequestBuilder.LOG_FILE_FIELD, "server.log");
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("server.log"));
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, 3, searchAfter)));
+
+        _vmLogManager.listVmLogFiles(VM_ID, null, null, START_INDEX, PAGE_SIZE_ONE, null);
+
+        NavigableMap<Long, Map<String, Object>> cursors = new TreeMap<>();
+        cursors.put(1L, searchAfter);
+        verify(_vmLogCache).put(eq(new CacheKey(UUID, "logfilecursors", null, null, PAGE_SIZE_ONE)), eq(cursors), anyLong());
+    }
+
+    @Test
+    public void testListVmLogFilesCachedCursor() throws IOException {
+        long startIndex = 5;
+        Map<String, Object> searchAfter = ImmutableMap.of(VmLogRequestBuilder.LOG_FILE_FIELD, "server.log");
+        NavigableMap<Long, Map<String, Object>> cursors = new TreeMap<>();
+        cursors.put(startIndex, searchAfter);
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("warning.log"));
+
+        setVmExpectations();
+        when(_vmLogCache.get(new CacheKey(UUID, "logfilecursors", null, null, PAGE_SIZE_ONE))).thenReturn(cursors);
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, searchAfter, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, (int)startIndex + 1, null)));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, startIndex, PAGE_SIZE_ONE, null);
+
+        assertEquals(results, result.getResponses());
+        verify(_vmLogAsyncExecutor).fetchLogFiles(_restHighLevelClient, _searchRequest);
+        verify(_vmLogRequestBuilder, never()).getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, null, null, LogFileCount.PRECISE);
+    }
+
+    @Test
+    public void testListVmLogFilesAfter() throws IOException {
+        Map<String, Object> searchAfter = ImmutableMap.of(VmLogRequestBuilder.LOG_FILE_FIELD, "server.log");
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("warning.log"));
+
+        setVmExpectations();
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, searchAfter, null, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest))
+                .thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, 2, ImmutableMap.of(VmLogRequestBuilder.LOG_FILE_FIELD, "warning.log"))));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, PAGE_SIZE_ONE * 10, PAGE_SIZE_ONE, "server.log");
+
+        assertEquals(2, result.getCount().intValue());
+        assertEquals(results, result.getResponses());
+        verify(_vmLogCache, never()).put(eq(new CacheKey(UUID, "logfilecursors", null, null, PAGE_SIZE_ONE)), any(), anyLong());
+    }
+
+    @Test
+    public void testListVmLogFilesNoIndices() {
+        setVmExpectations();
+        when(_vmLogIndexCatalog.getDates(UUID, null, DATE_TIME)).thenReturn(Collections.emptyList());
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, DATE_TIME, START_INDEX, PAGE_SIZE_ONE, null);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount().intValue());
+        assertTrue(result.getResponses().isEmpty());
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor, _vmLogAsyncExecutor);
+    }
+
+    @Test
+    public void testRefreshIndexCatalog() throws IOException {
+        String index = "vmlog-" + UUID + "-2018-06-01";
+        when(_vmLogRequestBuilder.getLogIndicesRequest()).thenReturn(_request);
+        when(_vmLogExecutor.execute(_restHighLevelClient, _request)).thenReturn(_response);
+        when(_response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, null));
+        when(_response.getEntity()).thenReturn(new StringEntity(index + "\nvmlog-registry\n\n"));
+
+        _vmLogManager.refreshIndexCatalog();
+
+        verify(_vmLogIndexCatalog).update(eq(ImmutableList.of(index, "vmlog-registry")), any());
+    }
+
+    @Test
+    public void testPurgeVmLogs() throws Exception {
+        Request firstTokensRequest = new Request("POST", "vmlog-registry/_update_by_query", Collections.emptyMap(), null);
+        Request secondTokensRequest = new Request("POST", "vmlog-registry/_update_by_query", Collections.emptyMap(), null);
+        Request indicesRequest = new Request("DELETE", "vmlog-" + UUID + "-2018-06-01,vmlog-" + OTHER_UUID + "-2018-06-01", Collections.emptyMap(), null);
+        List<String> indices = ImmutableList.of("vmlog-" + UUID + "-2018-06-01", "vmlog-" + OTHER_UUID + "-2018-06-01");
+
+        _vmLogManager.addExpungedVm(UUID);
+        _vmLogManager.addExpungedVm(OTHER_UUID);
+        _vmLogManager.addExpungedVm("other");
+        setLogIndicesExpectations(String.join("\n", indices) + "\nvmlog-registry\nvmlog-" + UUID + "-other\n");
+        when(_vmLogRequestBuilder.getVmTokensInvalidateRequest(eq(ImmutableList.of(UUID, OTHER_UUID)), any(LocalDateTime.class))).thenReturn(firstTokensRequest);
+        when(_vmLogRequestBuilder.getVmTokensInvalidateRequest(eq(ImmutableList.of("other")), any(LocalDateTime.class))).thenReturn(secondTokensRequest);
+        when(_vmLogRequestBuilder.getLogIndicesDeleteRequests(indices)).thenReturn(ImmutableList.of(indicesRequest));
+        when(_vmLogExecutor.execute(eq(_restHighLevelClient), any(Request.class))).thenReturn(_response);
+
+        _vmLogManager.purgeVmLogs(2);
+
+        verify(_vmLogExecutor).execute(_restHighLevelClient, firstTokensRequest);
+        verify(_vmLogExecutor).execute(_restHighLevelClient, secondTokensRequest);
+        verify(_vmLogExecutor).execute(_restHighLevelClient, indicesRequest);
+        verify(_vmLogRequestBuilder).getLogIndicesDeleteRequests(Collections.emptyList());
+
+        _vmLogManager.purgeVmLogs(2);
+
+        verify(_vmLogRequestBuilder, times(2)).getLogIndicesDeleteRequests(any());
+        verify(_vmLogRequestBuilder, times(1)).getLogIndicesRequest();
+    }
+
+    @Test
+    public void testPurgeVmLogsEmptyQueue() throws Exception {
+        _vmLogManager.purgeVmLogs(2);
+
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+    }
+
+    @Test
+    public void testPurgeVmLogsExpunging() throws Exception {
+        when(_vmInstanceDao.findByUuidIncludingRemoved(UUID)).thenReturn(_vmInstanceVO);
+        _vmLogManager.addExpungedVm(UUID);
+
+        _vmLogManager.purgeVmLogs(2);
+
+        verifyZeroInteractions(_vmLogRequestBuilder, _vmLogExecutor);
+
+        // the virtual machine is purged once its record is removed
+        when(_vmInstanceVO.getRemoved()).thenReturn(new Date());
+        setLogIndicesExpectations("");
+        when(_vmLogExecutor.execute(eq(_restHighLevelClient), any(Request.class))).thenReturn(_response);
+
+        _vmLogManager.purgeVmLogs(2);
+
+        verify(_vmLogRequestBuilder).getVmTokensInvalidateRequest(eq(ImmutableList.of(UUID)), any(LocalDateTime.class));
+        verify(_vmLogRequestBuilder).getLogIndicesDeleteRequests(Collections.emptyList());
+    }
+
+    @Test
+    public void testPurgeVmLogsFailure() throws Exception {
+        Request tokensRequest = new Request("POST", "vmlog-registry/_update_by_query", Collections.emptyMap(), null);
+        Request indicesRequest = new Request("DELETE", "vmlog-" + UUID + "-2018-06-01", Collections.emptyMap(), null);
+        List<String> indices = ImmutableList.of("vmlog-" + UUID + "-2018-06-01");
+
+        _vmLogManager.addExpungedVm(UUID);
+        setLogIndicesExpectations(indices.get(0));
+        when(_vmLogRequestBuilder.getVmTokensInvalidateRequest(eq(ImmutableList.of(UUID)), any(LocalDateTime.class))).thenReturn(tokensRequest);
+        when(_vmLogRequestBuilder.getLogIndicesDeleteRequests(indices)).thenReturn(ImmutableList.of(indicesRequest));
+        when(_vmLogExecutor.execute(_restHighLevelClient, tokensRequest)).thenReturn(_response);
+        when(_vmLogExecutor.execute(_restHighLevelClient, indicesRequest)).thenThrow(new IOException("Elasticsearch is unavailable")).thenReturn(_response);
+
+        try {
+            _vmLogManager.purgeVmLogs(2);
+            fail("Failed purge is expected");
+        } catch (CloudRuntimeException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+
+        // tokens are invalidated regardless of the failed deletion which is retried by the next run
+        _vmLogManager.purgeVmLogs(2);
+
+        verify(_vmLogExecutor, times(1)).execute(_restHighLevelClient, tokensRequest);
+        verify(_vmLogExecutor, times(2)).execute(_restHighLevelClient, indicesRequest);
+    }
+
+    @Test
+    public void testRefreshLogFileCatalog() throws IOException {
+        String index = "vmlog-" + UUID + "-2018-06-01";
+
+        setLogIndicesExpectations(index + "\nvmlog-registry\n");
+        when(_vmLogScheduler.isLeader()).thenReturn(true);
+
+        _vmLogManager.refreshLogFileCatalog();
+
+        verify(_vmLogFileCatalog).refresh(ImmutableSet.of(index, "vmlog-registry"), true);
+    }
+
+    @Test
+    public void testRefreshTokenDictionary() throws IOException {
+        Path file = _temporaryFolder.getRoot().toPath().resolve("registry").resolve("tokens.json");
+        SearchRequest changedTokensRequest = new SearchRequest("changed");
+        Token token = new Token("token", UUID, LocalDateTime.of(2018, 6, 1, 12, 0, 0));
+        Token invalidatedToken = new Token("token", UUID, token.getValidFrom());
+        invalidatedToken.setValidTo(LocalDateTime.of(2018, 6, 2, 12, 0, 0));
+
+        when(_vmLogRequestBuilder.getTokenSearchRequest(null, 1000, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchTokens(_restHighLevelClient, _searchRequest)).thenReturn(ImmutableList.of(token));
+        when(_vmLogRequestBuilder.getTokenSearchRequest(notNull(LocalDateTime.class), eq(1000), isNull(String.class))).thenReturn(changedTokensRequest);
+        when(_vmLogExecutor.fetchTokens(_restHighLevelClient, changedTokensRequest)).thenReturn(ImmutableList.of(invalidatedToken));
+
+        _vmLogManager.refreshTokenDictionary(file);
+
+        assertEquals(ImmutableMap.of("token", UUID + ",1527854400000,"), new ObjectMapper().readValue(file.toFile(), Map.class));
+
+        // the invalidated token has expired
+        _vmLogManager.refreshTokenDictionary(file);
+
+        assertEquals(Collections.emptyMap(), new ObjectMapper().readValue(file.toFile(), Map.class));
+    }
+
+    @Test
+    public void testRefreshTokenDictionaryPages() throws IOException {
+        Path file = _temporaryFolder.getRoot().toPath().resolve("tokens.json");
+        SearchRequest nextPageRequest = new SearchRequest("next");
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            tokens.add(new Token(String.format("token-%04d", i), UUID, DateUtils.getCurrentDateTime()));
+        }
+
+        when(_vmLogRequestBuilder.getTokenSearchRequest(null, 1000, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchTokens(_restHighLevelClient, _searchRequest)).thenReturn(tokens);
+        when(_vmLogRequestBuilder.getTokenSearchRequest(null, 1000, "token-0999")).thenReturn(nextPageRequest);
+        when(_vmLogExecutor.fetchTokens(_restHighLevelClient, nextPageRequest)).thenReturn(ImmutableList.of(new Token("token-1000", UUID, DateUtils.getCurrentDateTime())));
+
+        _vmLogManager.refreshTokenDictionary(file);
+
+        assertEquals(1001, new ObjectMapper().readValue(file.toFile(), Map.class).size());
+    }
+
+    @Test
+    public void testListVmLogFilesCatalog() throws IOException {
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("warning.log"));
+
+        setVmExpectations();
+        when(_vmLogFileCatalog.isReady()).thenReturn(true);
+        when(_vmLogRequestBuilder.getLogFileCatalogSearchRequest(UUID, 5, (int)PAGE_SIZE_ONE, null)).thenReturn(_searchRequest);
+        when(_vmLogExecutor.fetchLogFileCatalog(_restHighLevelClient, _searchRequest)).thenReturn(new AggregateResponse<>(results, 7, null));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, null, null, 5L, PAGE_SIZE_ONE, null);
+
+        assertEquals(7, result.getCount().intValue());
+        assertEquals(results, result.getResponses());
+        verifyZeroInteractions(_vmLogAsyncExecutor, _vmLogCache);
+    }
+
+    @Test
+    public void testListVmLogFilesCatalogDates() throws IOException {
+        List<VmLogFileResponse> results = ImmutableList.of(new VmLogFileResponse("server.log"));
+
+        setVmExpectations();
+        when(_vmLogFileCatalog.isReady()).thenReturn(true);
+        when(_vmLogRequestBuilder.getLogFileSearchRequest(UUID, null, (int)PAGE_SIZE_ONE, null, DATE_TIME, null, LogFileCount.PRECISE)).thenReturn(_searchRequest);
+        when(_vmLogAsyncExecutor.fetchLogFiles(_restHighLevelClient, _searchRequest)).thenReturn(CompletableFuture.completedFuture(new AggregateResponse<>(results, 1, null)));
+
+        ListResponse<VmLogFileResponse> result = _vmLogManager.listVmLogFiles(VM_ID, DATE_TIME, null, START_INDEX, PAGE_SIZE_ONE, null);
+
+        // the catalog does not keep logs by time so requests with dates are served with the aggregation
+        assertEquals(results, result.getResponses());
+        verify(_vmLogRequestBuilder, never()).getLogFileCatalogSearchRequest(any(), any(Integer.class), any(Integer.class), any());
+    }
+
     @Test
     public void testCreateVmLogTokenNonexistentVM() {
         setExceptionExpectation(InvalidParameterValueException.class, "virtual machine");
@@ -410,7 +1366,7 @@ public class VmLogManagerImplTest {
         setVmExpectations();
         when(_tokenGenerator.generate()).thenReturn(TOKEN);
         when(_vmLogRequestBuilder.getCreateTokenRequest(any(Token.class))).thenReturn(_indexRequest);
-        doThrow(new IOException()).when(_vmLogExecutor).index(_restHighLevelClient, _indexRequest);
+        doThrow(new IOException()).when(_bulkIndexer).execute(Collections.singletonList(_indexRequest));
 
         _vmLogManager.createToken(VM_ID);
     }
@@ -430,13 +1386,91 @@ public class VmLogManagerImplTest {
                         && Duration.between(token.getValidFrom(), DateUtils.getCurrentDateTime()).toMillis() < 1000 && token.getValidTo() == null;
             }
         }))).thenReturn(_indexRequest);
-        doNothing().when(_vmLogExecutor).index(_restHighLevelClient, _indexRequest);
+        doNothing().when(_bulkIndexer).execute(Collections.singletonList(_indexRequest));
 
         String result = _vmLogManager.createToken(VM_ID);
 
         assertEquals(TOKEN, result);
     }
 
+    @Test
+    public void testCreateVmLogTokensNoVms() {
+        setExceptionExpectation(InvalidParameterValueException.class, "Either virtual machine ids or an account or a project");
+
+        _vmLogManager.createTokens(null, null, null, null);
+    }
+
+    @Test
+    public void testCreateVmLogTokensIdsAndAccount() {
+        setExceptionExpectation(InvalidParameterValueException.class, "Either virtual machine ids or an account or a project");
+
+        _vmLogManager.createTokens(ImmutableList.of(VM_ID), "account", 1L, null);
+    }
+
+    @Test
+    public void testCreateVmLogTokensNonexistentVm() throws Exception {
+        setVmExpectations();
+        VMInstanceVO removedInstanceVO = mock(VMInstanceVO.class);
+        when(removedInstanceVO.getUuid()).thenReturn(OTHER_UUID);
+        when(_vmInstanceDao.findByIdIncludingRemoved(OTHER_VM_ID)).thenReturn(removedInstanceVO);
+        setCreateTokensExpectations();
+
+        ListResponse<TokenResponse> response = _vmLogManager.createTokens(ImmutableList.of(OTHER_VM_ID, VM_ID, 100L), null, null, null);
+
+        assertEquals(3, response.getCount().intValue());
+        TokenResponse removed = response.getResponses().get(0);
+        assertEquals(OTHER_UUID, removed.getVirtualMachineId());
+        assertFalse(removed.getSuccess());
+        assertNull(removed.getToken());
+        assertEquals("Unable to find a virtual machine with specified id", removed.getErrorText());
+        TokenResponse created = response.getResponses().get(1);
+        assertEquals(UUID, created.getVirtualMachineId());
+        assertTrue(created.getSuccess());
+        assertEquals(TOKEN, created.getToken());
+        TokenResponse nonexistent = response.getResponses().get(2);
+        assertNull(nonexistent.getVirtualMachineId());
+        assertFalse(nonexistent.getSuccess());
+        verify(_bulkIndexer, times(1)).add(any());
+    }
+
+    @Test
+    public void testCreateVmLogTokens() throws Exception {
+        setMultiVmExpectations();
+        setCreateTokensExpectations(OTHER_UUID);
+
+        ListResponse<TokenResponse> response = _vmLogManager.createTokens(ImmutableList.of(VM_ID, OTHER_VM_ID), null, null, null);
+
+        assertEquals(2, response.getCount().intValue());
+        TokenResponse created = response.getResponses().get(0);
+        assertEquals(UUID, created.getVirtualMachineId());
+        assertTrue(created.getSuccess());
+        assertEquals(TOKEN, created.getToken());
+        assertNull(created.getErrorText());
+        TokenResponse failed = response.getResponses().get(1);
+        assertEquals(OTHER_UUID, failed.getVirtualMachineId());
+        assertFalse(failed.getSuccess());
+        assertNull(failed.getToken());
+        assertEquals("Failed to create VM log token", failed.getErrorText());
+    }
+
+    @Test
+    public void testCreateVmLogTokensAccount() throws Exception {
+        long accountId = 10;
+        VMInstanceVO routerInstanceVO = mock(VMInstanceVO.class);
+        when(routerInstanceVO.getType()).thenReturn(VirtualMachine.Type.DomainRouter);
+        when(_vmInstanceVO.getType()).thenReturn(VirtualMachine.Type.User);
+        when(_vmInstanceVO.getUuid()).thenReturn(UUID);
+        when(_accountManager.finalyzeAccountId("account", 1L, null, true)).thenReturn(accountId);
+        when(_vmInstanceDao.listByAccountId(accountId)).thenReturn(ImmutableList.of(_vmInstanceVO, routerInstanceVO));
+        setCreateTokensExpectations();
+
+        ListResponse<TokenResponse> response = _vmLogManager.createTokens(null, "account", 1L, null);
+
+        assertEquals(1, response.getCount().intValue());
+        assertEquals(UUID, response.getResponses().get(0).getVirtualMachineId());
+        assertTrue(response.getResponses().get(0).getSuccess());
+    }
+
     @Test
     public void testInvalidateTokenNullToken() {
         setExceptionExpectation(InvalidParameterValueException.class, "token");
@@ -518,7 +1552,7 @@ public class VmLogManagerImplTest {
         when(_vmInstanceDao.findByUuid(TOKEN_ENTITY.getVmUuid())).thenReturn(_vmInstanceVO);
         doNothing().when(_accountManager).checkAccess(_callerAccount, SecurityChecker.AccessType.OperateEntry, false, _vmInstanceVO);
         when(_vmLogRequestBuilder.getInvalidateTokenRequest(eq(TOKEN_ENTITY.getToken()), any(LocalDateTime.class))).thenReturn(_updateRequest);
-        doThrow(new IOException()).when(_vmLogExecutor).update(_restHighLevelClient, _updateRequest);
+        doThrow(new IOException()).when(_bulkIndexer).execute(Collections.singletonList(_updateRequest));
 
         CallContext.register(_callerUser, _callerAccount);
 
@@ -532,7 +1566,7 @@ public class VmLogManagerImplTest {
         when(_vmInstanceDao.findByUuid(TOKEN_ENTITY.getVmUuid())).thenReturn(_vmInstanceVO);
         doNothing().when(_accountManager).checkAccess(_callerAccount, SecurityChecker.AccessType.OperateEntry, false, _vmInstanceVO);
         when(_vmLogRequestBuilder.getInvalidateTokenRequest(eq(TOKEN_ENTITY.getToken()), any(LocalDateTime.class))).thenReturn(_updateRequest);
-        doNothing().when(_vmLogExecutor).update(_restHighLevelClient, _updateRequest);
+        doNothing().when(_bulkIndexer).execute(Collections.singletonList(_updateRequest));
 
         CallContext.register(_callerUser, _callerAccount);
 
@@ -572,6 +1606,16 @@ public class VmLogManagerImplTest {
         testGetVmLogStatsInvalidResponse(getResource("invalid-stats-response.json"));
     }
 
+    @Test
+    public void testGetVmLogStatsEmptyContent() throws IOException {
+        testGetVmLogStatsInvalidResponse("");
+    }
+
+    @Test
+    public void testGetVmLogStatsNoIndices() throws IOException {
+        testGetVmLogStats("{\"indices\":{}}", Collections.emptyMap());
+    }
+
     @Test
     public void testGetVmLogStatsEmptyStats() throws IOException {
         testGetVmLogStats(getResource("empty-stats-response.json"), Collections.emptyMap());
@@ -579,7 +1623,7 @@ public class VmLogManagerImplTest {
 
     @Test
     public void testGetVmLogStats() throws IOException {
-        testGetVmLogStats(getResource("valid-stats-response.json"), ImmutableMap.of("11207fa9-8cce-481f-a210-016b30d161f4", 0.8431110382080078));
+        testGetVmLogStats(getResource("valid-stats-response.json"), ImmutableMap.of("11207fa9-8cce-481f-a210-016b30d161f4", 0.8431110382080078, OTHER_UUID, 1.0));
     }
 
     private void testGetVmLogStatsInvalidResponse(String response) throws IOException {
@@ -604,6 +1648,15 @@ public class VmLogManagerImplTest {
         assertEquals(stats, result);
     }
 
+    private VmLogResponse getVmLog(String id) {
+        VmLogResponse log = new VmLogResponse();
+        log.setId(id);
+        log.setTimestamp("2018-05-01T00:00:00.000Z");
+        log.setFile("/var/log/app.log");
+        log.setLog("message");
+        return log;
+    }
+
     private String getResource(String resource) throws IOException {
         return IOUtils.resourceToString(resource, Charset.defaultCharset(), this.getClass().getClassLoader());
     }
@@ -613,6 +1666,42 @@ public class VmLogManagerImplTest {
         expectedException.expectMessage(message);
     }
 
+    private void setMultiVmExpectations() {
+        setVmExpectations();
+        VMInstanceVO otherVmInstanceVO = mock(VMInstanceVO.class);
+        when(_vmInstanceDao.findById(OTHER_VM_ID)).thenReturn(otherVmInstanceVO);
+        when(otherVmInstanceVO.getUuid()).thenReturn(OTHER_UUID);
+    }
+
+    private void setLogIndicesExpectations(String indices) throws IOException {
+        when(_vmLogRequestBuilder.getLogIndicesRequest()).thenReturn(_request);
+        when(_vmLogExecutor.execute(_restHighLevelClient, _request)).thenReturn(_response);
+        when(_response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, null));
+        when(_response.getEntity()).thenReturn(new StringEntity(indices));
+    }
+
+    /**
+     * @param failedVmUuids UUIDs of virtual machines tokens of which are not created
+     */
+    private void setCreateTokensExpectations(String... failedVmUuids) throws Exception {
+        List<String> failed = Arrays.asList(failedVmUuids);
+        when(_tokenGenerator.generate()).thenReturn(TOKEN);
+        when(_vmLogRequestBuilder.getCreateTokenRequest(any(Token.class)))
+                .thenAnswer(invocation -> new IndexRequest("vmlog-registry", "_doc", ((Token)invocation.getArguments()[0]).getVmUuid()));
+        when(_bulkIndexer.add(any())).thenAnswer(invocation -> {
+            DocWriteRequest<?> request = (DocWriteRequest<?>)invocation.getArguments()[0];
+            BulkItemResponse response;
+            if (failed.contains(request.id())) {
+                response = new BulkItemResponse(0, DocWriteRequest.OpType.CREATE, new BulkItemResponse.Failure(request.index(), request.type(), request.id(),
+                        new VersionConflictEngineException(new ShardId(request.index(), "_na_", 0), request.type(), request.id(), "document already exists")));
+            } else {
+                response = new BulkItemResponse(0, DocWriteRequest.OpType.CREATE, new IndexResponse(new ShardId(request.index(), "_na_", 0), request.type(), request.id(),
+                        1, 1, 1, true));
+            }
+            return CompletableFuture.completedFuture(response);
+        });
+    }
+
     private void setVmExpectations() {
         when(_vmInstanceDao.findById(VM_ID)).thenReturn(_vmInstanceVO);
         when(_vmInstanceVO.getUuid()).thenReturn(UUID);
@@ -18,6 +18,8 @@
 package com.bwsw.cloudstack.vm.logs.service;
 
 import com.bwsw.cloudstack.vm.logs.entity.EntityConstants;
+import com.bwsw.cloudstack.vm.logs.entity.LogFile;
+import com.bwsw.cloudstack.vm.logs.entity.LogFileCount;
 import com.bwsw.cloudstack.vm.logs.entity.SortField;
 import com.bwsw.cloudstack.vm.logs.entity.Token;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -26,11 +28,14 @@ import com.google.common.collect.ImmutableMap;
 import com.tngtech.java.junit.dataprovider.DataProvider;
 import com.tngtech.java.junit.dataprovider.DataProviderRunner;
 import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.common.unit.TimeValue;
@@ -42,19 +47,26 @@ import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -70,7 +82,8 @@ public class VmLogRequestBuilderImplTest {
     public static Object[][] filters() {
         return new Object[][] {{LocalDateTime.of(2018, 5, 1, 10, 0, 0), null, null, null, "start-date-vm-log-query.json"},
                 {null, LocalDateTime.of(2018, 5, 31, 12, 0, 0), null, null, "end-date-vm-log-query.json"},
-                {null, null, ImmutableList.of("one * ? \\", "two"), null, "keywords-vm-log-query.json"}, {null, null, null, "/var/log/app.log", "logfile-vm-log-query.json"},
+                {null, null, ImmutableList.of("one * ? \\", "two"), null, "keywords-vm-log-query.json"},
+                {null, null, ImmutableList.of("Ok", "*"), null, "short-keywords-vm-log-query.json"}, {null, null, null, "/var/log/app.log", "logfile-vm-log-query.json"},
                 {LocalDateTime.of(2018, 5, 1, 0, 0, 0), LocalDateTime.of(2018, 5, 31, 23, 59, 59), ImmutableList.of("search_keyword"), "/var/log/app.log",
                         "complex-vm-log-query.json"}};
     }
@@ -83,6 +96,7 @@ public class VmLogRequestBuilderImplTest {
     }
 
     private static final String UUID = "uuid";
+    private static final String OTHER_UUID = "other-uuid";
     private static final String TOKEN = "test_token";
     private static final int PAGE_SIZE = 15;
     private static final int PAGE = 1;
@@ -96,7 +110,7 @@ public class VmLogRequestBuilderImplTest {
 
     @Test
     public void testGetLogSearchRequestBasicRequest() {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, null, null, null, null, null, null);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
 
         checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
         assertEquals((PAGE - 1) * PAGE_SIZE, searchRequest.source().from());
@@ -105,7 +119,7 @@ public class VmLogRequestBuilderImplTest {
 
     @Test
     public void testGetLogSearchRequestScroll() {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, TIMEOUT, null, null, null, null, null);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, TIMEOUT, null, null, null, null, null, null);
 
         checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
         assertEquals(-1, searchRequest.source().from());
@@ -117,7 +131,7 @@ public class VmLogRequestBuilderImplTest {
     @Test
     @UseDataProvider("filters")
     public void testGetLogSearchRequestFilters(LocalDateTime start, LocalDateTime end, List<String> keywords, String logFile, String resultFile) throws IOException {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, null, start, end, keywords, logFile, null);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, start, end, keywords, logFile, null, null);
 
         checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
 
@@ -130,7 +144,7 @@ public class VmLogRequestBuilderImplTest {
         sortFields.add(new SortField(VmLogRequestBuilder.LOG_FILE_FIELD, SortField.SortOrder.ASC));
         sortFields.add(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.DESC));
 
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, PAGE, PAGE_SIZE, TIMEOUT, null, null, null, null, sortFields);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, TIMEOUT, null, null, null, null, sortFields, null);
 
         checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
         List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
@@ -152,6 +166,196 @@ public class VmLogRequestBuilderImplTest {
         }
     }
 
+    @Test
+    public void testGetLogSearchRequestTiebreaker() {
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.DESC));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, sortFields, null);
+
+        checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertNotNull(sortBuilders);
+        assertEquals(3, sortBuilders.size());
+        assertEquals(VmLogRequestBuilder.DATE_FIELD, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+        assertEquals(SortOrder.DESC, sortBuilders.get(0).order());
+        assertEquals(VmLogRequestBuilder.LOG_ID_FIELD, ((FieldSortBuilder)sortBuilders.get(1)).getFieldName());
+        assertEquals(SortOrder.ASC, sortBuilders.get(1).order());
+        assertEquals(VmLogRequestBuilder.ID_FIELD, ((FieldSortBuilder)sortBuilders.get(2)).getFieldName());
+        assertEquals(SortOrder.ASC, sortBuilders.get(2).order());
+    }
+
+    @Test
+    public void testGetLogSearchRequestDefaultSorting() {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertNotNull(sortBuilders);
+        assertEquals(3, sortBuilders.size());
+        assertTrue(sortBuilders.get(0) instanceof ScoreSortBuilder);
+        assertEquals(VmLogRequestBuilder.LOG_ID_FIELD, ((FieldSortBuilder)sortBuilders.get(1)).getFieldName());
+        assertEquals(VmLogRequestBuilder.ID_FIELD, ((FieldSortBuilder)sortBuilders.get(2)).getFieldName());
+    }
+
+    @Test
+    public void testGetLogSearchRequestDeepPage() {
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.DESC));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, 3, PAGE_SIZE, null, null, null, null, null, sortFields, null);
+
+        assertEquals(2 * PAGE_SIZE, searchRequest.source().from());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(1, sortBuilders.size());
+        assertEquals(VmLogRequestBuilder.DATE_FIELD, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+    }
+
+    @Test
+    public void testGetLogSearchRequestDeepPageDefaultSorting() {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, 3, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        assertNull(searchRequest.source().sorts());
+    }
+
+    @Test
+    public void testGetLogSearchRequestSearchAfter() {
+        List<Object> searchAfter = ImmutableList.of(1525132800000L, "JSJpfkGvS2yu5qnBTaRPHg", "AWM4Rk2v3r8lFhKjmQ8b");
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, 3, PAGE_SIZE, null, null, null, null, null, sortFields, searchAfter);
+
+        checkCommonSearchQuerySettings(searchRequest, PAGE_SIZE);
+        assertEquals(-1, searchRequest.source().from());
+        assertArrayEquals(searchAfter.toArray(), searchRequest.source().searchAfter());
+        assertNull(searchRequest.scroll());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(3, sortBuilders.size());
+        FieldSortBuilder tiebreaker = (FieldSortBuilder)sortBuilders.get(1);
+        assertEquals(VmLogRequestBuilder.LOG_ID_FIELD, tiebreaker.getFieldName());
+        assertEquals("keyword", tiebreaker.unmappedType());
+        assertEquals(VmLogRequestBuilder.ID_FIELD, ((FieldSortBuilder)sortBuilders.get(2)).getFieldName());
+    }
+
+    @Test
+    public void testGetLogSearchRequestSearchAfterNoLogId() {
+        // the last log of the previous page has been indexed without log_id
+        List<Object> searchAfter = Arrays.asList(1525132800000L, null, "AWM4Rk2v3r8lFhKjmQ8b");
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, null, 1, PAGE_SIZE, null, null, null, null, null, sortFields, searchAfter);
+
+        assertArrayEquals(searchAfter.toArray(), searchRequest.source().searchAfter());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(3, sortBuilders.size());
+        // logs with equal timestamps and no log_id follow the last one by _id
+        assertEquals(VmLogRequestBuilder.ID_FIELD, ((FieldSortBuilder)sortBuilders.get(2)).getFieldName());
+        assertEquals(SortOrder.ASC, sortBuilders.get(2).order());
+    }
+
+    @Test
+    public void testGetLogSearchRequestDates() {
+        List<LocalDate> dates = ImmutableList.of(LocalDate.of(2018, 5, 31), LocalDate.of(2018, 6, 1));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, dates, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        assertArrayEquals(new String[] {"vmlog-" + UUID + "-2018-05-31", "vmlog-" + UUID + "-2018-06-01"}, searchRequest.indices());
+        assertEquals(IndicesOptions.lenientExpandOpen(), searchRequest.indicesOptions());
+    }
+
+    @Test
+    public void testGetLogSearchRequestMonthDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = LocalDate.of(2018, 5, 10); date.isBefore(LocalDate.of(2018, 6, 3)); date = date.plusDays(1)) {
+            dates.add(date);
+        }
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(UUID, dates, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        assertArrayEquals(new String[] {"vmlog-" + UUID + "-2018-05-*", "vmlog-" + UUID + "-2018-06-01", "vmlog-" + UUID + "-2018-06-02"}, searchRequest.indices());
+    }
+
+    @Test
+    public void testGetLogSearchRequestManyIndices() {
+        String vmUuid = java.util.UUID.randomUUID().toString();
+        // a sparse range of several years is not collapsed into monthly patterns
+        List<LocalDate> dates = IntStream.range(0, 60).mapToObj(i -> LocalDate.of(2018, 1, 1).plusMonths(i)).collect(Collectors.toList());
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(vmUuid, dates, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        assertArrayEquals(new String[] {"vmlog-" + vmUuid + "-*"}, searchRequest.indices());
+    }
+
+    @Test
+    public void testGetMultiVmLogSearchRequest() {
+        Map<String, List<LocalDate>> vmDates = new TreeMap<>();
+        vmDates.put(UUID, null);
+        vmDates.put(OTHER_UUID, ImmutableList.of(LocalDate.of(2018, 6, 1), LocalDate.of(2018, 6, 2)));
+        List<SortField> sortFields = ImmutableList.of(new SortField(VmLogRequestBuilder.DATE_FIELD, SortField.SortOrder.ASC));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(vmDates, PAGE, PAGE_SIZE, null, null, null, null, null, sortFields, null);
+
+        assertArrayEquals(new String[] {"vmlog-" + OTHER_UUID + "-2018-06-01", "vmlog-" + OTHER_UUID + "-2018-06-02", "vmlog-" + UUID + "-*"}, searchRequest.indices());
+        assertEquals(IndicesOptions.lenientExpandOpen(), searchRequest.indicesOptions());
+        assertEquals(PAGE_SIZE, searchRequest.source().size());
+        assertArrayEquals(new String[] {VmLogRequestBuilder.LOG_FILE_FIELD, VmLogRequestBuilder.DATA_FIELD, VmLogRequestBuilder.DATE_FIELD, EntityConstants.VM_UUID},
+                searchRequest.source().fetchSource().includes());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(3, sortBuilders.size());
+        assertEquals(VmLogRequestBuilder.DATE_FIELD, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+        assertEquals(VmLogRequestBuilder.LOG_ID_FIELD, ((FieldSortBuilder)sortBuilders.get(1)).getFieldName());
+        assertEquals(VmLogRequestBuilder.ID_FIELD, ((FieldSortBuilder)sortBuilders.get(2)).getFieldName());
+    }
+
+    @Test
+    public void testGetMultiVmLogSearchRequestManyIndices() {
+        List<LocalDate> dates = ImmutableList.of(LocalDate.of(2018, 6, 1), LocalDate.of(2018, 6, 2), LocalDate.of(2018, 6, 3));
+        Map<String, List<LocalDate>> vmDates = new TreeMap<>();
+        IntStream.range(0, 30).forEach(i -> vmDates.put(java.util.UUID.randomUUID().toString(), dates));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogSearchRequest(vmDates, PAGE, PAGE_SIZE, null, null, null, null, null, null, null);
+
+        assertArrayEquals(vmDates.keySet().stream().map(e -> "vmlog-" + e + "-*").toArray(), searchRequest.indices());
+    }
+
+    @Test
+    public void testGetLogFileSearchRequestDates() {
+        List<LocalDate> dates = ImmutableList.of(LocalDate.of(2018, 6, 1));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, dates, PAGE_SIZE, null, null, null, LogFileCount.PRECISE);
+
+        assertArrayEquals(new String[] {"vmlog-" + UUID + "-2018-06-01"}, searchRequest.indices());
+        assertEquals(IndicesOptions.lenientExpandOpen(), searchRequest.indicesOptions());
+    }
+
+    @Test
+    public void testGetLogProbeRequest() throws IOException {
+        List<LocalDate> dates = ImmutableList.of(LocalDate.of(2018, 6, 1));
+
+        SearchRequest searchRequest = _vmLogQueryBuilder
+                .getLogProbeRequest(UUID, dates, LocalDateTime.of(2018, 6, 1, 10, 0, 0, 123000000), ImmutableList.of("search_keyword"), "/var/log/app.log");
+
+        assertArrayEquals(new String[] {"vmlog-" + UUID + "-2018-06-01"}, searchRequest.indices());
+        assertEquals(0, searchRequest.source().size());
+        assertEquals(1, searchRequest.source().terminateAfter());
+        assertNull(searchRequest.source().sorts());
+        checkQuery(searchRequest, IOUtils.resourceToString("probe-vm-log-query.json", Charset.defaultCharset(), this.getClass().getClassLoader()));
+    }
+
+    @Test
+    public void testGetLogHistogramRequest() throws IOException {
+        SearchRequest searchRequest = _vmLogQueryBuilder
+                .getLogHistogramRequest(UUID, null, LocalDateTime.of(2018, 5, 1, 0, 0, 0), LocalDateTime.of(2018, 5, 31, 23, 59, 59), ImmutableList.of("search_keyword"),
+                        "/var/log/app.log", 86400000);
+
+        assertArrayEquals(new String[] {"vmlog-" + UUID + "-*"}, searchRequest.indices());
+        assertEquals(0, searchRequest.source().size());
+        assertNull(searchRequest.source().sorts());
+        checkQuery(searchRequest, IOUtils.resourceToString("complex-vm-log-query.json", Charset.defaultCharset(), this.getClass().getClassLoader()));
+
+        List<AggregationBuilder> builders = searchRequest.source().aggregations().getAggregatorFactories();
+        assertEquals(1, builders.size());
+        String expectedAggregation = IOUtils.resourceToString("histogram-aggregation.json", Charset.defaultCharset(), this.getClass().getClassLoader());
+        assertEquals(expectedAggregation.trim(), builders.get(0).toString());
+    }
+
     @Test
     public void testGetScrollRequest() {
         SearchScrollRequest request = _vmLogQueryBuilder.getScrollRequest(UUID, TIMEOUT);
@@ -164,7 +368,7 @@ public class VmLogRequestBuilderImplTest {
 
     @Test
     public void testGetLogFileSearchRequest() throws IOException {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, PAGE_SIZE, null, null, null);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, null, PAGE_SIZE, null, null, null, LogFileCount.PRECISE);
 
         checkCommonLogFileQuerySettings(searchRequest, PAGE_SIZE, null);
     }
@@ -172,7 +376,7 @@ public class VmLogRequestBuilderImplTest {
     @Test
     @UseDataProvider("logFileFilters")
     public void testGetLogFileSearchRequestFilters(LocalDateTime start, LocalDateTime end, String resultFile) throws IOException {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, PAGE_SIZE, null, start, end);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, null, PAGE_SIZE, null, start, end, LogFileCount.PRECISE);
 
         checkCommonLogFileQuerySettings(searchRequest, PAGE_SIZE, null);
 
@@ -181,11 +385,195 @@ public class VmLogRequestBuilderImplTest {
 
     @Test
     public void testGetLogFileSearchRequestAggregateAfter() throws IOException {
-        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, PAGE_SIZE, AGGREGATE_AFTER, null, null);
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, null, PAGE_SIZE, AGGREGATE_AFTER, null, null, LogFileCount.PRECISE);
 
         checkCommonLogFileQuerySettings(searchRequest, PAGE_SIZE, AGGREGATE_AFTER);
     }
 
+    @Test
+    public void testGetLogFileSearchRequestApproximateCount() {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, null, PAGE_SIZE, null, null, null, LogFileCount.APPROXIMATE);
+
+        List<AggregationBuilder> builders = searchRequest.source().aggregations().getAggregatorFactories();
+        assertEquals(2, builders.size());
+        assertEquals("{\"count_logfiles\":{\"cardinality\":{\"field\":\"source.keyword\",\"precision_threshold\":100}}}", builders.get(1).toString());
+    }
+
+    @Test
+    public void testGetLogFileSearchRequestNoCount() {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileSearchRequest(UUID, null, PAGE_SIZE, AGGREGATE_AFTER, null, null, LogFileCount.NONE);
+
+        List<AggregationBuilder> builders = searchRequest.source().aggregations().getAggregatorFactories();
+        assertEquals(1, builders.size());
+        assertEquals(VmLogRequestBuilder.LOG_FILE_AGGREGATION, builders.get(0).getName());
+    }
+
+    @Test
+    public void testGetLogFileStatsRequest() throws IOException {
+        String index = "vmlog-" + UUID + "-2018-06-01";
+
+        SearchRequest searchRequest = _vmLogQueryBuilder
+                .getLogFileStatsRequest(index, LocalDateTime.of(2018, 6, 1, 10, 0, 0), LocalDateTime.of(2018, 6, 1, 11, 0, 0), PAGE_SIZE, AGGREGATE_AFTER);
+
+        assertArrayEquals(new String[] {index}, searchRequest.indices());
+        assertEquals(IndicesOptions.lenientExpandOpen(), searchRequest.indicesOptions());
+        assertEquals(0, searchRequest.source().size());
+        assertFalse(searchRequest.source().trackTotalHits());
+        checkQuery(searchRequest, "{\"range\":{\"@timestamp\":{\"from\":\"2018-06-01T10:00:00.000Z\",\"to\":\"2018-06-01T11:00:00.000Z\","
+                + "\"include_lower\":false,\"include_upper\":true,\"boost\":1.0}}}");
+
+        List<AggregationBuilder> builders = searchRequest.source().aggregations().getAggregatorFactories();
+        assertEquals(1, builders.size());
+        assertEquals(VmLogRequestBuilder.LOG_FILE_AGGREGATION, builders.get(0).getName());
+        assertTrue(builders.get(0).toString().contains("\"after\":" + s_objectMapper.writeValueAsString(AGGREGATE_AFTER)));
+        List<AggregationBuilder> subAggregations = builders.get(0).getSubAggregations();
+        assertEquals(2, subAggregations.size());
+        assertEquals("{\"first_seen\":{\"min\":{\"field\":\"@timestamp\"}}}", subAggregations.get(0).toString());
+        assertEquals("{\"last_seen\":{\"max\":{\"field\":\"@timestamp\"}}}", subAggregations.get(1).toString());
+    }
+
+    @Test
+    public void testGetLogFileStatsRequestNoCheckpoint() throws IOException {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileStatsRequest("vmlog-" + UUID + "-2018-06-01", null, LocalDateTime.of(2018, 6, 1, 11, 0, 0), PAGE_SIZE, null);
+
+        checkQuery(searchRequest, "{\"range\":{\"@timestamp\":{\"from\":null,\"to\":\"2018-06-01T11:00:00.000Z\","
+                + "\"include_lower\":true,\"include_upper\":true,\"boost\":1.0}}}");
+    }
+
+    @Test
+    public void testGetLogFileCatalogUpdateRequest() {
+        String index = "vmlog-" + UUID + "-2018-06-01";
+        LogFile logFile = new LogFile("/var/log/app.log", 1527847200000L, 1527849000000L, 42);
+
+        UpdateRequest request = _vmLogQueryBuilder
+                .getLogFileCatalogUpdateRequest(UUID, index, logFile, LocalDateTime.of(2018, 6, 1, 10, 0, 0), LocalDateTime.of(2018, 6, 1, 11, 0, 0));
+
+        assertEquals(VmLogRequestBuilder.LOG_FILE_CATALOG_INDEX, request.index());
+        assertEquals(VmLogRequestBuilder.LOG_FILE_CATALOG_TYPE, request.type());
+        assertEquals(DigestUtils.sha1Hex(index + "/" + logFile.getFile()), request.id());
+        Map<String, Object> document = new TreeMap<>();
+        document.put(EntityConstants.VM_UUID, UUID);
+        document.put(EntityConstants.INDEX, index);
+        document.put(EntityConstants.FILE, logFile.getFile());
+        document.put(EntityConstants.FIRST_SEEN, 1527847200000L);
+        document.put(EntityConstants.LAST_SEEN, 1527849000000L);
+        // small numbers are parsed from the source as integers
+        document.put(EntityConstants.DOC_COUNT, 42);
+        document.put(EntityConstants.CHECKPOINT, 1527850800000L);
+        assertEquals(document, new TreeMap<>(request.upsertRequest().sourceAsMap()));
+        assertNotNull(request.script());
+        Map<String, Object> params = request.script().getParams();
+        assertEquals(1527847200000L, params.get(EntityConstants.FIRST_SEEN));
+        assertEquals(1527849000000L, params.get(EntityConstants.LAST_SEEN));
+        assertEquals(42L, params.get(EntityConstants.DOC_COUNT));
+        assertEquals(1527847200000L, params.get("after"));
+        assertEquals(1527850800000L, params.get(EntityConstants.CHECKPOINT));
+    }
+
+    @Test
+    public void testGetLogFileCatalogUpdateRequestNoCheckpoint() {
+        UpdateRequest request = _vmLogQueryBuilder.getLogFileCatalogUpdateRequest(UUID, "vmlog-" + UUID + "-2018-06-01", new LogFile("/var/log/app.log", 1, 2, 3), null,
+                LocalDateTime.of(2018, 6, 1, 11, 0, 0));
+
+        assertEquals(0L, request.script().getParams().get("after"));
+    }
+
+    @Test
+    public void testGetLogFileCheckpointUpdateRequest() {
+        String index = "vmlog-" + UUID + "-2018-06-01";
+
+        UpdateRequest request = _vmLogQueryBuilder.getLogFileCheckpointUpdateRequest(index, LocalDateTime.of(2018, 6, 1, 11, 0, 0));
+
+        assertEquals(VmLogRequestBuilder.LOG_FILE_CATALOG_INDEX, request.index());
+        assertEquals("checkpoint-" + index, request.id());
+        assertEquals(ImmutableMap.of(EntityConstants.INDEX, index, EntityConstants.CHECKPOINT, 1527850800000L), request.upsertRequest().sourceAsMap());
+        assertEquals(Collections.singletonMap(EntityConstants.CHECKPOINT, 1527850800000L), request.script().getParams());
+    }
+
+    @Test
+    public void testGetLogFileCheckpointSearchRequest() throws IOException {
+        String after = "vmlog-" + UUID + "-2018-06-01";
+
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileCheckpointSearchRequest(PAGE_SIZE, after);
+
+        assertArrayEquals(new String[] {VmLogRequestBuilder.LOG_FILE_CATALOG_INDEX}, searchRequest.indices());
+        assertEquals(PAGE_SIZE, searchRequest.source().size());
+        assertArrayEquals(new String[] {EntityConstants.INDEX, EntityConstants.CHECKPOINT}, searchRequest.source().fetchSource().includes());
+        assertArrayEquals(new Object[] {after}, searchRequest.source().searchAfter());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(1, sortBuilders.size());
+        assertEquals(EntityConstants.INDEX, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+        checkQuery(searchRequest, "{\"bool\":{\"must_not\":[{\"exists\":{\"field\":\"vm_uuid\",\"boost\":1.0}}],\"adjust_pure_negative\":true,\"boost\":1.0}}");
+    }
+
+    @Test
+    public void testGetLogFileCatalogDeleteRequest() throws IOException {
+        Request request = _vmLogQueryBuilder.getLogFileCatalogDeleteRequest(ImmutableList.of("vmlog-" + UUID + "-2018-06-01"));
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("vmlog-files/_delete_by_query", request.getEndpoint());
+        assertEquals(Collections.singletonMap("conflicts", "proceed"), request.getParameters());
+        assertEquals("{\"query\":{\"terms\":{\"index\":[\"vmlog-" + UUID + "-2018-06-01\"],\"boost\":1.0}}}", EntityUtils.toString(request.getEntity()));
+    }
+
+    @Test
+    public void testGetVmTokensInvalidateRequest() throws IOException {
+        Request request = _vmLogQueryBuilder.getVmTokensInvalidateRequest(ImmutableList.of(UUID, "other"), LocalDateTime.of(2018, 6, 1, 10, 15, 30));
+
+        assertEquals("POST", request.getMethod());
+        assertEquals(VmLogRequestBuilder.REGISTRY_INDEX + "/_update_by_query", request.getEndpoint());
+        assertEquals(Collections.singletonMap("conflicts", "proceed"), request.getParameters());
+        assertEquals("{\"query\":{\"bool\":{\"filter\":[{\"terms\":{\"vm_uuid\":[\"" + UUID + "\",\"other\"],\"boost\":1.0}}],"
+                + "\"must_not\":[{\"exists\":{\"field\":\"valid_to\",\"boost\":1.0}}],\"adjust_pure_negative\":true,\"boost\":1.0}},"
+                + "\"script\":{\"source\":\"ctx._source.valid_to = params.valid_to\",\"lang\":\"painless\",\"params\":{\"valid_to\":\"2018-06-01T10:15:30\"}}}",
+                EntityUtils.toString(request.getEntity()));
+    }
+
+    @Test
+    public void testGetLogIndicesDeleteRequests() {
+        List<String> indices = IntStream.range(0, 100).mapToObj(i -> "vmlog-" + java.util.UUID.randomUUID() + "-2018-06-01").collect(Collectors.toList());
+
+        List<Request> requests = _vmLogQueryBuilder.getLogIndicesDeleteRequests(indices);
+
+        assertEquals(2, requests.size());
+        List<String> deleted = new ArrayList<>();
+        for (Request request : requests) {
+            assertEquals("DELETE", request.getMethod());
+            assertTrue(request.getEndpoint().length() <= 3000);
+            assertEquals(Collections.singletonMap("ignore_unavailable", "true"), request.getParameters());
+            assertNull(request.getEntity());
+            deleted.addAll(Arrays.asList(request.getEndpoint().split(",")));
+        }
+        assertEquals(indices, deleted);
+    }
+
+    @Test
+    public void testGetLogIndicesDeleteRequestsNoIndices() {
+        assertTrue(_vmLogQueryBuilder.getLogIndicesDeleteRequests(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testGetLogFileCatalogSearchRequest() throws IOException {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getLogFileCatalogSearchRequest(UUID, 30, PAGE_SIZE, "/var/log/app.log");
+
+        assertArrayEquals(new String[] {VmLogRequestBuilder.LOG_FILE_CATALOG_INDEX}, searchRequest.indices());
+        assertEquals(30, searchRequest.source().from());
+        assertEquals(PAGE_SIZE, searchRequest.source().size());
+        assertArrayEquals(new String[] {EntityConstants.FILE}, searchRequest.source().fetchSource().includes());
+        assertNotNull(searchRequest.source().collapse());
+        assertEquals(EntityConstants.FILE, searchRequest.source().collapse().getField());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(1, sortBuilders.size());
+        assertEquals(EntityConstants.FILE, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+        checkQuery(searchRequest, "{\"bool\":{\"filter\":[{\"term\":{\"vm_uuid\":{\"value\":\"" + UUID + "\",\"boost\":1.0}}},"
+                + "{\"range\":{\"file\":{\"from\":\"/var/log/app.log\",\"to\":null,\"include_lower\":false,\"include_upper\":true,\"boost\":1.0}}}],"
+                + "\"adjust_pure_negative\":true,\"boost\":1.0}}");
+
+        List<AggregationBuilder> builders = searchRequest.source().aggregations().getAggregatorFactories();
+        assertEquals(1, builders.size());
+        assertEquals("{\"count_logfiles\":{\"cardinality\":{\"field\":\"file\",\"precision_threshold\":40000}}}", builders.get(0).toString());
+    }
+
     @Test
     public void testCreateTokenRequest() throws IOException {
         Token token = new Token(TOKEN, UUID, LocalDateTime.now());
@@ -224,6 +612,29 @@ public class VmLogRequestBuilderImplTest {
         assertEquals(fields, request.doc().sourceAsMap());
     }
 
+    @Test
+    public void testGetTokenSearchRequest() throws IOException {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getTokenSearchRequest(LocalDateTime.of(2018, 6, 1, 12, 0, 0), PAGE_SIZE, TOKEN);
+
+        assertArrayEquals(new String[] {VmLogRequestBuilder.REGISTRY_INDEX}, searchRequest.indices());
+        assertEquals(PAGE_SIZE, searchRequest.source().size());
+        assertArrayEquals(new Object[] {TOKEN}, searchRequest.source().searchAfter());
+        List<SortBuilder<?>> sortBuilders = searchRequest.source().sorts();
+        assertEquals(1, sortBuilders.size());
+        assertEquals(EntityConstants.TOKEN, ((FieldSortBuilder)sortBuilders.get(0)).getFieldName());
+        checkQuery(searchRequest, "{\"bool\":{\"should\":[{\"range\":{\"valid_from\":{\"from\":\"2018-06-01T12:00:00.000Z\",\"to\":null,\"include_lower\":true,"
+                + "\"include_upper\":true,\"boost\":1.0}}},{\"range\":{\"valid_to\":{\"from\":\"2018-06-01T12:00:00.000Z\",\"to\":null,\"include_lower\":true,"
+                + "\"include_upper\":true,\"boost\":1.0}}}],\"adjust_pure_negative\":true,\"minimum_should_match\":\"1\",\"boost\":1.0}}");
+    }
+
+    @Test
+    public void testGetTokenSearchRequestAllTokens() {
+        SearchRequest searchRequest = _vmLogQueryBuilder.getTokenSearchRequest(null, PAGE_SIZE, null);
+
+        assertNull(searchRequest.source().query());
+        assertNull(searchRequest.source().searchAfter());
+    }
+
     @Test
     public void testGetLogIndicesStatsRequest() {
         Request request = _vmLogQueryBuilder.getLogIndicesStatsRequest();
@@ -231,7 +642,18 @@ public class VmLogRequestBuilderImplTest {
         assertNotNull(request);
         assertEquals("GET", request.getMethod());
         assertEquals("vmlog-*-*/_stats/store", request.getEndpoint());
-        assertEquals(Collections.emptyMap(), request.getParameters());
+        assertEquals(Collections.singletonMap("filter_path", "indices.*.total.store.size_in_bytes"), request.getParameters());
+        assertNull(request.getEntity());
+    }
+
+    @Test
+    public void testGetLogIndicesRequest() {
+        Request request = _vmLogQueryBuilder.getLogIndicesRequest();
+
+        assertNotNull(request);
+        assertEquals("GET", request.getMethod());
+        assertEquals("_cat/indices/vmlog-*-*", request.getEndpoint());
+        assertEquals(Collections.singletonMap("h", "index"), request.getParameters());
         assertNull(request.getEntity());
     }
 
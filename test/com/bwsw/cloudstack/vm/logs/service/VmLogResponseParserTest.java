@@ -0,0 +1,125 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import com.bwsw.cloudstack.vm.logs.response.ScrollableListResponse;
+import com.bwsw.cloudstack.vm.logs.response.VmLogResponse;
+import com.cloud.utils.exception.CloudRuntimeException;
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicStatusLine;
+import org.elasticsearch.client.Response;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VmLogResponseParserTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Mock
+    private Response _response;
+
+    private VmLogResponseParser _parser = new VmLogResponseParser();
+
+    @Test
+    public void testParseSearch() throws IOException {
+        setResponseExpectations(HttpStatus.SC_OK, IOUtils.resourceToString("search-response.json", Charset.defaultCharset(), this.getClass().getClassLoader()));
+
+        ScrollableListResponse<VmLogResponse> result = _parser.parseSearch(_response, VmLogResponse.class);
+
+        assertNotNull(result);
+        assertEquals(15, result.getCount());
+        assertEquals("DnF1ZXJ5VGhlbkZldGNoBQAAAAAAAAAB", result.getScrollId());
+        assertEquals(ImmutableList.of(1525132801000L, "AWM4Rk2v3r8lFhKjmQ8b"), result.getSearchAfter());
+        List<VmLogResponse> logs = result.getItems();
+        assertEquals(2, logs.size());
+        checkLog(logs.get(0), "AWM4Rk2v3r8lFhKjmQ8a", "2018-05-01T00:00:00.000Z", "Application started");
+        checkLog(logs.get(1), "AWM4Rk2v3r8lFhKjmQ8b", "2018-05-01T00:00:01.000Z", "Request {\"id\": 1} processed");
+    }
+
+    @Test
+    public void testParseSearchNoHits() throws IOException {
+        setResponseExpectations(HttpStatus.SC_OK, "{\"hits\":{\"total\":0}}");
+
+        ScrollableListResponse<VmLogResponse> result = _parser.parseSearch(_response, VmLogResponse.class);
+
+        assertNotNull(result);
+        assertEquals(0, result.getCount());
+        assertTrue(result.getItems().isEmpty());
+        assertNull(result.getScrollId());
+        assertNull(result.getSearchAfter());
+    }
+
+    @Test
+    public void testParseSearchNoTotal() throws IOException {
+        expectedException.expect(CloudRuntimeException.class);
+        expectedException.expectMessage("VM logs");
+        setResponseExpectations(HttpStatus.SC_OK, "{}");
+
+        _parser.parseSearch(_response, VmLogResponse.class);
+    }
+
+    @Test
+    public void testParseSearchNoSource() throws IOException {
+        expectedException.expect(IOException.class);
+        expectedException.expectMessage("AWM4Rk2v3r8lFhKjmQ8a");
+        setResponseExpectations(HttpStatus.SC_OK, "{\"hits\":{\"total\":1,\"hits\":[{\"_id\":\"AWM4Rk2v3r8lFhKjmQ8a\"}]}}");
+
+        _parser.parseSearch(_response, VmLogResponse.class);
+    }
+
+    @Test
+    public void testParseSearchInvalidStatus() throws IOException {
+        expectedException.expect(CloudRuntimeException.class);
+        expectedException.expectMessage("VM logs");
+        setResponseExpectations(HttpStatus.SC_ACCEPTED, "{\"hits\":{\"total\":0}}");
+
+        _parser.parseSearch(_response, VmLogResponse.class);
+    }
+
+    private void setResponseExpectations(int status, String content) throws IOException {
+        when(_response.getStatusLine()).thenReturn(new BasicStatusLine(HttpVersion.HTTP_1_1, status, null));
+        when(_response.getEntity()).thenReturn(new StringEntity(content));
+    }
+
+    private void checkLog(VmLogResponse log, String id, String timestamp, String data) {
+        assertEquals(id, log.getId());
+        assertEquals(timestamp, log.getTimestamp());
+        assertEquals("/var/log/app.log", log.getFile());
+        assertEquals(data, log.getLog());
+    }
+}
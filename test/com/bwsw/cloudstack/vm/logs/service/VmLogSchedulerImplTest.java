@@ -0,0 +1,220 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.naming.ConfigurationException;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VmLogSchedulerImplTest {
+
+    private static final String JOB_NAME = "job";
+    private static final long WAIT_TIMEOUT = 5000;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private final VmLogLeaderLock _leaderLock = mock(VmLogLeaderLock.class);
+
+    private VmLogSchedulerImpl _vmLogScheduler = new VmLogSchedulerImpl() {
+
+        @Override
+        VmLogLeaderLock getLeaderLock() {
+            return _leaderLock;
+        }
+    };
+
+    @Before
+    public void setUp() throws ConfigurationException {
+        _vmLogScheduler.configure("vmLogScheduler", Collections.emptyMap());
+    }
+
+    @After
+    public void tearDown() {
+        _vmLogScheduler.stop();
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 0, true, false, runs::incrementAndGet);
+
+        JobStats stats = waitForStats(s -> s.getRuns() >= 2);
+
+        assertEquals(JOB_NAME, stats.getName());
+        assertEquals(0, stats.getFailures());
+        assertEquals(0, stats.getTimeouts());
+        assertNotNull(stats.getLastStart());
+        assertTrue(stats.getMaxDuration() >= stats.getLastDuration());
+        assertEquals(stats.getRuns(), runs.get());
+    }
+
+    @Test
+    public void testScheduleFailure() throws InterruptedException {
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 0, true, false, () -> {
+            throw new IllegalStateException();
+        });
+
+        // the job is run again after a failure
+        JobStats stats = waitForStats(s -> s.getRuns() >= 2);
+
+        assertEquals(stats.getRuns(), stats.getFailures());
+        assertEquals(0, stats.getTimeouts());
+    }
+
+    @Test
+    public void testScheduleDeadline() throws InterruptedException {
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 1, true, false, () -> Thread.sleep(WAIT_TIMEOUT * 2));
+
+        JobStats stats = waitForStats(s -> s.getRuns() >= 1);
+
+        assertEquals(1, stats.getFailures());
+        assertEquals(1, stats.getTimeouts());
+        assertTrue(stats.getLastDuration() < WAIT_TIMEOUT);
+    }
+
+    @Test
+    public void testSchedulePaused() throws InterruptedException {
+        _vmLogScheduler.schedule(JOB_NAME, () -> 0, () -> 0, true, false, () -> fail("The paused job should not run"));
+
+        Thread.sleep(200);
+
+        JobStats stats = _vmLogScheduler.getJobStats().get(0);
+        assertEquals(0, stats.getRuns());
+        assertFalse(stats.isRunning());
+    }
+
+    @Test
+    public void testScheduleLeader() throws Exception {
+        when(_leaderLock.lock()).thenReturn(true);
+        _vmLogScheduler.start();
+
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 0, true, true, () -> assertTrue(_vmLogScheduler.isLeader()));
+
+        JobStats stats = waitForStats(s -> s.getRuns() >= 1);
+        assertEquals(0, stats.getSkipped());
+        assertEquals(0, stats.getFailures());
+
+        _vmLogScheduler.stop();
+
+        assertFalse(_vmLogScheduler.isLeader());
+        verify(_leaderLock).unlock();
+    }
+
+    @Test
+    public void testElectLostLock() throws SQLException {
+        when(_leaderLock.lock()).thenReturn(true, false);
+        when(_leaderLock.isHeld()).thenReturn(true, false);
+
+        _vmLogScheduler.elect();
+        assertTrue(_vmLogScheduler.isLeader());
+        _vmLogScheduler.elect();
+        assertTrue(_vmLogScheduler.isLeader());
+        // another management server has taken the lock released by the database
+        _vmLogScheduler.elect();
+
+        assertFalse(_vmLogScheduler.isLeader());
+        verify(_leaderLock).unlock();
+    }
+
+    @Test
+    public void testElectLeaderTerm() throws SQLException {
+        when(_leaderLock.lock()).thenReturn(true, false, true);
+        when(_leaderLock.isHeld()).thenReturn(false);
+
+        _vmLogScheduler.elect();
+        assertEquals(1, _vmLogScheduler.getLeaderTerm());
+        // the lock is lost and taken by another management server
+        _vmLogScheduler.elect();
+        assertEquals(1, _vmLogScheduler.getLeaderTerm());
+        _vmLogScheduler.elect();
+
+        assertTrue(_vmLogScheduler.isLeader());
+        assertEquals(2, _vmLogScheduler.getLeaderTerm());
+    }
+
+    @Test
+    public void testScheduleNotLeader() throws Exception {
+        when(_leaderLock.lock()).thenReturn(false);
+        _vmLogScheduler.start();
+
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 0, true, true, () -> fail("The leader-only job should not run"));
+
+        JobStats stats = waitForStats(s -> s.getSkipped() >= 1);
+        assertEquals(0, stats.getRuns());
+        assertFalse(_vmLogScheduler.isLeader());
+
+        _vmLogScheduler.stop();
+
+        verify(_leaderLock).unlock();
+    }
+
+    @Test
+    public void testScheduleStopped() throws InterruptedException {
+        _vmLogScheduler.stop();
+
+        // jobs finishing after the scheduler has been stopped are dropped
+        _vmLogScheduler.schedule(JOB_NAME, () -> 1, () -> 0, true, false, () -> fail("The job should not run after the scheduler has been stopped"));
+        Thread.sleep(200);
+
+        assertEquals(0, _vmLogScheduler.getJobStats().get(0).getRuns());
+    }
+
+    @Test
+    public void testScheduleDuplicateName() {
+        expectedException.expect(IllegalArgumentException.class);
+
+        _vmLogScheduler.schedule(JOB_NAME, () -> 0, () -> 0, false, false, () -> {
+        });
+        _vmLogScheduler.schedule(JOB_NAME, () -> 0, () -> 0, false, false, () -> {
+        });
+    }
+
+    private JobStats waitForStats(Predicate<JobStats> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            List<JobStats> stats = _vmLogScheduler.getJobStats();
+            assertEquals(1, stats.size());
+            if (condition.test(stats.get(0))) {
+                return stats.get(0);
+            }
+            Thread.sleep(50);
+        }
+        fail("Job statistics have not been updated");
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IndexNameTest {
+
+    private static final String UUID = "61d12f36-0201-4035-b6fc-c7f768f583f1";
+    private static final LocalDate DATE = LocalDate.of(2018, 6, 9);
+    private static final String INDEX = "vmlog-" + UUID + "-2018-06-09";
+
+    @Test
+    public void testFormat() {
+        assertEquals(INDEX, IndexName.format(UUID, DATE));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(UUID, IndexName.getVmUuid(INDEX));
+        assertEquals(DATE, IndexName.getDate(INDEX));
+    }
+
+    @Test
+    public void testParseOtherIndices() {
+        for (String index : new String[] {"vmlog-registry", "vmlog-files", "vmlog-" + UUID, "vmlog--2018-06-09", "logs-" + UUID + "-2018-06-09",
+                "vmlog-" + UUID + "-2018-06", "vmlog-" + UUID + "-2018_06_09"}) {
+            assertNull(index, IndexName.getVmUuid(index));
+            assertNull(index, IndexName.getDate(index));
+        }
+    }
+
+    @Test
+    public void testParseInvalidDate() {
+        String index = "vmlog-" + UUID + "-2018-13-45";
+
+        assertEquals(UUID, IndexName.getVmUuid(index));
+        assertNull(IndexName.getDate(index));
+    }
+}
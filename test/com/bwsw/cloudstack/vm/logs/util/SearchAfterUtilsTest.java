@@ -0,0 +1,79 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import com.google.common.collect.ImmutableList;
+import com.tngtech.java.junit.dataprovider.DataProvider;
+import com.tngtech.java.junit.dataprovider.DataProviderRunner;
+import com.tngtech.java.junit.dataprovider.UseDataProvider;
+import org.apache.cloudstack.api.ServerApiException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(DataProviderRunner.class)
+public class SearchAfterUtilsTest {
+
+    private final static String PARAM = "param";
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @DataProvider
+    public static Object[][] invalidValues() {
+        return new Object[][] {{""}, {"invalid"}, {SearchAfterUtils.encode(ImmutableList.of("value")).substring(1)}};
+    }
+
+    @Test
+    public void testEncodeDecode() {
+        List<Object> searchAfter = ImmutableList.of(1525132800000L, "/var/log/app.log", 1.0, "AWM4Rk2v3r8lFhKjmQ8b");
+
+        String value = SearchAfterUtils.encode(searchAfter);
+
+        assertNotNull(value);
+        assertEquals(searchAfter, SearchAfterUtils.decode(value, PARAM));
+    }
+
+    @Test
+    public void testEncodeEmpty() {
+        assertNull(SearchAfterUtils.encode(null));
+        assertNull(SearchAfterUtils.encode(Collections.emptyList()));
+    }
+
+    @Test
+    public void testDecodeNull() {
+        assertNull(SearchAfterUtils.decode(null, PARAM));
+    }
+
+    @Test
+    @UseDataProvider("invalidValues")
+    public void testDecodeInvalidValues(String value) {
+        expectedException.expect(ServerApiException.class);
+        expectedException.expectMessage("\"" + PARAM + "\" parameter is invalid");
+
+        SearchAfterUtils.decode(value, PARAM);
+    }
+}
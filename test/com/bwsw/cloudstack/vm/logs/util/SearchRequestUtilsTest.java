@@ -0,0 +1,83 @@
+// Licensed to the Apache Software Foundation (ASF) under one
+// or more contributor license agreements.  See the NOTICE file
+// distributed with this work for additional information
+// regarding copyright ownership.  The ASF licenses this file
+// to you under the Apache License, Version 2.0 (the
+// "License"); you may not use this file except in compliance
+// with the License.  You may obtain a copy of the License at
+//
+//   http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing,
+// software distributed under the License is distributed on an
+// "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+// KIND, either express or implied.  See the License for the
+// specific language governing permissions and limitations
+// under the License.
+
+package com.bwsw.cloudstack.vm.logs.util;
+
+import org.apache.commons.io.IOUtils;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SearchRequestUtilsTest {
+
+    private static final String INDEX = "vmlog-61d12f36-0201-4035-b6fc-c7f768f583f1-2018-05-01";
+    private static final String OTHER_INDEX = "vmlog-61d12f36-0201-4035-b6fc-c7f768f583f1-2018-05-02";
+
+    @Test
+    public void testGetRawSearchRequest() throws IOException {
+        SearchRequest searchRequest = new SearchRequest(INDEX, OTHER_INDEX);
+        searchRequest.indicesOptions(IndicesOptions.lenientExpandOpen());
+        searchRequest.source(new SearchSourceBuilder().size(10));
+
+        Request request = SearchRequestUtils.getRawSearchRequest(searchRequest);
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/" + INDEX + "," + OTHER_INDEX + "/_search", request.getEndpoint());
+        assertEquals(SearchRequestUtils.FILTER_PATH, request.getParameters().get("filter_path"));
+        assertEquals("true", request.getParameters().get("ignore_unavailable"));
+        assertEquals("true", request.getParameters().get("allow_no_indices"));
+        assertEquals("open", request.getParameters().get("expand_wildcards"));
+        assertFalse(request.getParameters().containsKey("scroll"));
+        assertEquals("{\"size\":10}", IOUtils.toString(request.getEntity().getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGetRawSearchRequestScroll() throws IOException {
+        SearchRequest searchRequest = new SearchRequest(INDEX);
+        searchRequest.scroll(TimeValue.timeValueMillis(60000));
+        searchRequest.source(new SearchSourceBuilder());
+
+        Request request = SearchRequestUtils.getRawSearchRequest(searchRequest);
+
+        assertEquals("/" + INDEX + "/_search", request.getEndpoint());
+        assertEquals("60000ms", request.getParameters().get("scroll"));
+        assertEquals("false", request.getParameters().get("ignore_unavailable"));
+    }
+
+    @Test
+    public void testGetRawScrollRequest() throws IOException {
+        SearchScrollRequest scrollRequest = new SearchScrollRequest("scrollId");
+        scrollRequest.scroll(TimeValue.timeValueMillis(60000));
+
+        Request request = SearchRequestUtils.getRawScrollRequest(scrollRequest);
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/_search/scroll", request.getEndpoint());
+        assertEquals(SearchRequestUtils.FILTER_PATH, request.getParameters().get("filter_path"));
+        assertEquals("{\"scroll_id\":\"scrollId\",\"scroll\":\"60000ms\"}", IOUtils.toString(request.getEntity().getContent(), StandardCharsets.UTF_8));
+    }
+}